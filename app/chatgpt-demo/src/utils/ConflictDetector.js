@@ -43,6 +43,33 @@ class ConflictDetector {
         }
     }
 
+    /**
+     * 批量检测日程冲突
+     * @param {Array<Object>} bookingList - 候选日程列表
+     * @returns {Promise<Array<Object>>} 与输入顺序一致的冲突检测结果
+     */
+    async checkConflicts(bookingList) {
+        try {
+            const response = await fetch(`${this.baseURL}/api/conflict/check/batch`, {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/json',
+                    'Authorization': `Bearer ${this.getToken()}`
+                },
+                body: JSON.stringify(bookingList)
+            });
+            
+            if (!response.ok) {
+                throw new Error(`HTTP error! status: ${response.status}`);
+            }
+            
+            return await response.json();
+        } catch (error) {
+            console.error('批量冲突检测失败:', error);
+            throw error;
+        }
+    }
+
     /**
      * 获取智能时间建议
      * @param {Object} params - 查询参数
@@ -169,8 +169,8 @@ public class DatabaseChatMemoryAdvisor implements RequestResponseAdvisor {
                                             }
                                         }
 
-                                        // 保存完整的对话记录
-                                        Conversation savedConversation = conversationServiceImpl.saveConversation(
+                                        // 提交到后台写入队列，流的完成不等待数据库，Reactor线程不阻塞
+                                        boolean queued = conversationServiceImpl.saveConversationAsync(
                                                 userId,
                                                 finalSessionId,
                                                 userMessage,
@@ -180,7 +180,7 @@ public class DatabaseChatMemoryAdvisor implements RequestResponseAdvisor {
                                                 true // successful 默认为true，可以根据实际处理结果调整
                                         );
 
-                                        System.out.println("完整对话记录保存成功，ID: " + savedConversation.getId());
+                                        System.out.println(queued ? "完整对话记录已提交写入队列" : "写入队列已满，完整对话记录被丢弃");
                                     }
                                 }
                             } catch (Exception e) {
@@ -251,8 +251,8 @@ public class DatabaseChatMemoryAdvisor implements RequestResponseAdvisor {
                                             userId = 1L; // fallback到默认用户ID
                                         }
 
-                                        // 保存完整的对话记录
-                                        Conversation savedConversation = conversationServiceImpl.saveConversation(
+                                        // 提交到后台写入队列，流的完成不等待数据库，Reactor线程不阻塞
+                                        boolean queued = conversationServiceImpl.saveConversationAsync(
                                                 userId,
                                                 sessionId,
                                                 userMessage,
@@ -262,7 +262,7 @@ public class DatabaseChatMemoryAdvisor implements RequestResponseAdvisor {
                                                 true // successful 默认为true，可以根据实际处理结果调整
                                         );
 
-                                        System.out.println("完整对话记录保存成功，ID: " + savedConversation.getId());
+                                        System.out.println(queued ? "完整对话记录已提交写入队列" : "写入队列已满，完整对话记录被丢弃");
                                     }
                                 }
                             } catch (Exception e) {
@@ -312,16 +312,12 @@ public class DatabaseChatMemoryAdvisor implements RequestResponseAdvisor {
             // 将AdvisedRequest存储到缓存中
             requestCache.put(sessionId, request);
 
-            // 从数据库获取历史对话记录
-            List<Conversation> conversationHistory = conversationServiceImpl.getConversationHistory(sessionId);
+            // 从数据库获取最近的历史对话记录，查询本身带LIMIT，耗时与会话长度无关
+            List<Conversation> conversationHistory =
+                    conversationServiceImpl.getRecentConversationHistory(sessionId, MAX_HISTORY_COUNT);
 
             System.out.println("从数据库获取到 " + conversationHistory.size() + " 条历史记录");
 
-            // 如果getConversationHistory返回的记录过多，限制数量
-            if (conversationHistory.size() > MAX_HISTORY_COUNT) {
-                conversationHistory = conversationHistory.subList(0, MAX_HISTORY_COUNT);
-            }
-
             // 构建内存格式的对话历史
             String memoryContent = buildMemoryContent(conversationHistory);
 
@@ -1,17 +1,26 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.config;
 
+import com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore.CachingEmbeddingModel;
+import com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore.HnswRedisVectorStore;
 import com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore.SimpleRedisVectorStore;
+import com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore.VectorMath;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import org.springframework.ai.autoconfigure.vectorstore.redis.RedisVectorStoreAutoConfiguration;
 import org.springframework.ai.autoconfigure.vectorstore.redis.RedisVectorStoreProperties;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
 // 禁用SpringAI提供的RedisStack向量数据库的自动配置，会和Redis的配置冲突。
 @EnableAutoConfiguration(exclude = {RedisVectorStoreAutoConfiguration.class})
@@ -22,16 +31,64 @@ public class RedisVectorConfig {
 
     /**
      * 创建基于普通Redis的向量数据库（不使用Redis Stack）
+     * index-type=hnsw 时在进程内维护 HNSW 图做近似检索，flat 时每次查询扫描全部向量
+     * 嵌入模型外包一层内容哈希缓存，重复的文档块和查询不再调用嵌入接口
      *
      * @param embeddingModel 嵌入模型
      * @param properties     redis的配置信息
      * @param connectionFactory Redis连接工厂
+     * @param meterRegistry 嵌入缓存命中率指标
+     * @param quantization 向量存储模式，none 或 int8；index-type=hnsw 时只影响带过滤条件的查询
+     * @param rerankFactor int8 模式下按近似相似度保留 topK 的多少倍候选做精确重排
+     * @param scanBatchSize 搜索时每批 SSCAN / HMGET 的文档数
+     * @param indexedMetadata 建立二级索引、可用于过滤条件预筛选的元数据键
+     * @param indexType 索引类型，hnsw 或 flat
+     * @param m HNSW 每层邻居数
+     * @param efConstruction HNSW 建图时的候选集大小
+     * @param efSearch HNSW 查询时的候选集大小
+     * @param snapshotPath HNSW 索引的本地快照文件，为空时不使用快照
+     * @param changeLogSize 供快照追赶的变更日志保留条数
+     * @param vectorApi 是否使用 Vector API 计算点积
+     * @param embeddingCacheEnabled 是否缓存嵌入结果
+     * @param embeddingModelName 嵌入模型名，作为缓存键的一部分
+     * @param embeddingCacheLocalMaxSize 进程内缓存的向量数
+     * @param embeddingCacheTtlDays Redis中缓存向量的保留天数
      * @return vectorStore 向量数据库
      */
     @Bean
     public VectorStore vectorStore(EmbeddingModel embeddingModel,
                                    RedisVectorStoreProperties properties,
-                                   RedisConnectionFactory connectionFactory) {
-        return new SimpleRedisVectorStore(embeddingModel, connectionFactory, properties.getPrefix());
+                                   RedisConnectionFactory connectionFactory,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spring.ai.vectorstore.redis.quantization:none}") String quantization,
+                                   @Value("${spring.ai.vectorstore.redis.quantization.rerank-factor:4}") int rerankFactor,
+                                   @Value("${spring.ai.vectorstore.redis.scan-batch-size:500}") int scanBatchSize,
+                                   @Value("${spring.ai.vectorstore.redis.indexed-metadata:source,userId,uploadTime}") List<String> indexedMetadata,
+                                   @Value("${spring.ai.vectorstore.redis.index-type:hnsw}") String indexType,
+                                   @Value("${spring.ai.vectorstore.redis.hnsw.m:16}") int m,
+                                   @Value("${spring.ai.vectorstore.redis.hnsw.ef-construction:200}") int efConstruction,
+                                   @Value("${spring.ai.vectorstore.redis.hnsw.ef-search:200}") int efSearch,
+                                   @Value("${spring.ai.vectorstore.redis.snapshot.path:}") String snapshotPath,
+                                   @Value("${spring.ai.vectorstore.redis.snapshot.change-log-size:100000}") int changeLogSize,
+                                   @Value("${spring.ai.vectorstore.redis.vector-api:false}") boolean vectorApi,
+                                   @Value("${spring.ai.vectorstore.redis.embedding-cache.enabled:true}") boolean embeddingCacheEnabled,
+                                   @Value("${spring.ai.dashscope.embedding.options.model:text-embedding-v1}") String embeddingModelName,
+                                   @Value("${spring.ai.vectorstore.redis.embedding-cache.local-max-size:5000}") int embeddingCacheLocalMaxSize,
+                                   @Value("${spring.ai.vectorstore.redis.embedding-cache.ttl-days:30}") long embeddingCacheTtlDays) {
+        if (vectorApi) {
+            VectorMath.enableVectorApi();
+        }
+        if (embeddingCacheEnabled) {
+            embeddingModel = new CachingEmbeddingModel(embeddingModel, embeddingModelName, connectionFactory,
+                    meterRegistry, embeddingCacheLocalMaxSize, Duration.ofDays(embeddingCacheTtlDays));
+        }
+        SimpleRedisVectorStore.Quantization mode = SimpleRedisVectorStore.Quantization.valueOf(quantization.toUpperCase());
+        if ("flat".equalsIgnoreCase(indexType)) {
+            return new SimpleRedisVectorStore(embeddingModel, connectionFactory, properties.getPrefix(), scanBatchSize,
+                    indexedMetadata, mode, rerankFactor);
+        }
+        return new HnswRedisVectorStore(embeddingModel, connectionFactory, properties.getPrefix(), scanBatchSize,
+                indexedMetadata, mode, rerankFactor, m, efConstruction, efSearch,
+                snapshotPath.isBlank() ? null : Path.of(snapshotPath), changeLogSize);
     }
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.controller;
 
+import com.ai.intelligentcalendarandconflictdetectionassistant.request.CommonFreeSlotsRequest;
 import com.ai.intelligentcalendarandconflictdetectionassistant.request.ConflictCheckRequest;
+import com.ai.intelligentcalendarandconflictdetectionassistant.response.CommonFreeSlotsResponse;
 import com.ai.intelligentcalendarandconflictdetectionassistant.response.ConflictCheckResponse;
 import com.ai.intelligentcalendarandconflictdetectionassistant.request.SmartSuggestionsRequest;
 import com.ai.intelligentcalendarandconflictdetectionassistant.response.SmartSuggestionsResponse;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.TimeSuggestion;
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.ConflictDetectionServiceImpl;
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.UserDetailsImpl;
 import lombok.extern.slf4j.Slf4j;
@@ -11,12 +14,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid; // 修复导入错误，使用jakarta.validation替代javax.validation
+import jakarta.validation.constraints.Size;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
+@Validated
 @RestController
 @RequestMapping("/api/conflict")
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -48,6 +59,50 @@ public class ConflictDetectionController {
         }
     }
 
+    /**
+     * 批量检测日程冲突，一次请求评估多个候选时间段，最多 MAX_BATCH_SIZE 个
+     * 列表元素的校验依赖类上的 @Validated（方法参数校验），校验失败由 handleConstraintViolation 返回400
+     */
+    @PostMapping("/check/batch")
+    public ResponseEntity<List<ConflictCheckResponse>> checkConflicts(
+            @RequestBody @Size(max = ConflictDetectionServiceImpl.MAX_BATCH_SIZE,
+                    message = "单次最多检测" + ConflictDetectionServiceImpl.MAX_BATCH_SIZE + "个候选时间段")
+            List<@Valid ConflictCheckRequest> requests) {
+        try {
+            Long userId = getCurrentUserId();
+            log.info("用户 {} 请求批量检测冲突: {} 个候选时间段", userId, requests.size());
+            
+            List<ConflictCheckResponse> responses = conflictDetectionServiceImpl.checkConflicts(requests, userId);
+            return ResponseEntity.ok(responses);
+        } catch (Exception e) {
+            log.error("批量检测冲突失败", e);
+            return ResponseEntity.badRequest().body(List.of(
+                ConflictCheckResponse.builder()
+                    .hasConflict(false)
+                    .message("批量检测冲突失败: " + e.getMessage())
+                    .build()
+            ));
+        }
+    }
+
+    /**
+     * 批量检测请求校验失败（候选数量超限、缺少日期或时间）
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<List<ConflictCheckResponse>> handleConstraintViolation(ConstraintViolationException e) {
+        String message = e.getConstraintViolations().stream()
+            .map(ConstraintViolation::getMessage)
+            .distinct()
+            .collect(Collectors.joining("；"));
+        log.warn("批量检测冲突请求无效: {}", message);
+        return ResponseEntity.badRequest().body(List.of(
+            ConflictCheckResponse.builder()
+                .hasConflict(false)
+                .message("请求参数无效: " + message)
+                .build()
+        ));
+    }
+
     /**
      * 获取智能时间建议
      */
@@ -82,6 +137,42 @@ public class ConflictDetectionController {
         }
     }
 
+    /**
+     * 查找多个参会人的共同空闲时间，参会人含发起人最多 MAX_ATTENDEES 位
+     * 注意：不校验发起人与参会人的关系，任何已登录用户都可以查询任意用户的忙闲（只返回共同空闲段，不返回日程内容）
+     */
+    @PostMapping("/common-free-slots")
+    public ResponseEntity<CommonFreeSlotsResponse> findCommonFreeSlots(@Valid @RequestBody CommonFreeSlotsRequest request) {
+        try {
+            Long userId = getCurrentUserId();
+            
+            // 发起人自动加入参会人
+            List<Long> userIds = new ArrayList<>();
+            userIds.add(userId);
+            if (request.getUserIds() != null) {
+                userIds.addAll(request.getUserIds());
+            }
+            log.info("用户 {} 请求共同空闲时间: 参会人 {}，{} ~ {}，时长 {} 分钟",
+                    userId, userIds, request.getWindowStart(), request.getWindowEnd(), request.getDuration());
+            
+            int limit = request.getLimit() != null ? request.getLimit() : 10;
+            List<TimeSuggestion> slots = conflictDetectionServiceImpl.findCommonFreeSlots(userIds,
+                    request.getWindowStart(), request.getWindowEnd(), request.getDuration(), limit);
+            return ResponseEntity.ok(CommonFreeSlotsResponse.builder()
+                    .userIds(userIds.stream().distinct().toList())
+                    .slots(slots)
+                    .message(String.format("找到 %d 个共同空闲时间段", slots.size()))
+                    .build());
+        } catch (Exception e) {
+            log.error("查找共同空闲时间失败", e);
+            return ResponseEntity.badRequest().body(
+                CommonFreeSlotsResponse.builder()
+                    .message("查找共同空闲时间失败: " + e.getMessage())
+                    .build()
+            );
+        }
+    }
+
     /**
      * 获取当前用户ID
      */
@@ -5,10 +5,12 @@ import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.SessionSumma
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.ConversationServiceImpl;
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -16,6 +18,8 @@ import java.util.List;
 @RequestMapping("/api/conversations")
 public class ConversationController {
 
+    private static final int MAX_SUMMARY_PAGE_SIZE = 200;
+
     @Autowired
     private ConversationServiceImpl conversationServiceImpl;
 
@@ -85,28 +89,41 @@ public class ConversationController {
     }
     
     /**
-     * 获取当前用户的会话总结列表
+     * 获取当前用户的会话总结列表，按最后活动时间倒序分页
+     * 下一页以本页最后一条的 lastActivityTime 和 sessionId 作为 before、beforeSessionId
+     * @param limit 每页会话数，默认50，最大200
+     * @param before 游标：上一页最后一个会话的最后活动时间（可选）
+     * @param beforeSessionId 游标：上一页最后一个会话的ID（可选）
      * @return 会话总结列表
      */
     @GetMapping("/sessions/summaries/current")
-    public List<SessionSummary> getCurrentUserSessionSummaries() {
+    public List<SessionSummary> getCurrentUserSessionSummaries(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeSessionId) {
         Long userId = getCurrentUserId();
-        return conversationServiceImpl.getSessionSummariesByUser(userId);
+        return conversationServiceImpl.getSessionSummariesByUser(userId, before, beforeSessionId,
+                Math.min(Math.max(limit, 1), MAX_SUMMARY_PAGE_SIZE));
     }
     
     /**
-     * 获取指定用户的会话总结列表
+     * 获取指定用户的会话总结列表，分页参数同 /sessions/summaries/current
      * @param userId 用户ID
      * @return 会话总结列表
      */
     @GetMapping("/sessions/summaries/user/{userId}")
-    public List<SessionSummary> getSessionSummariesByUser(@PathVariable Long userId) {
+    public List<SessionSummary> getSessionSummariesByUser(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeSessionId) {
         // 验证当前用户是否有权限访问该用户的数据
         Long currentUserId = getCurrentUserId();
         if (!currentUserId.equals(userId)) {
             throw new SecurityException("无权访问其他用户的会话总结");
         }
-        return conversationServiceImpl.getSessionSummariesByUser(userId);
+        return conversationServiceImpl.getSessionSummariesByUser(userId, before, beforeSessionId,
+                Math.min(Math.max(limit, 1), MAX_SUMMARY_PAGE_SIZE));
     }
     
     /**
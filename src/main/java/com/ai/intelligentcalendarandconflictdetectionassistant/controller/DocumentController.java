@@ -1,8 +1,14 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.controller;
 
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.IngestionJob;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.DocumentIngestionService;
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.RagServiceImpl;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.UserDetailsImpl;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -16,6 +22,18 @@ import org.springframework.web.multipart.MultipartFile;
 public class DocumentController {
 
     private final RagServiceImpl ragService;
+    private final DocumentIngestionService documentIngestionService;
+
+    /**
+     * 获取当前登录用户的ID，未登录时返回null（文档作为公共文档导入）
+     */
+    private Long getCurrentUserIdOrNull() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && authentication.getPrincipal() instanceof UserDetailsImpl) {
+            return ((UserDetailsImpl) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
 
     /**
      * 嵌入文件到向量数据库
@@ -26,7 +44,7 @@ public class DocumentController {
     @PostMapping("/embedding")
     public ResponseEntity<Boolean> embedding(@RequestParam("file") MultipartFile file) {
         try {
-            Boolean result = ragService.embedding(file);
+            Boolean result = ragService.embedding(file, getCurrentUserIdOrNull());
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             System.err.println("文档嵌入失败: " + e.getMessage());
@@ -35,16 +53,46 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 提交异步嵌入任务，立即返回任务信息，进度通过 {@link #getEmbeddingJob} 查询
+     *
+     * @param file 待嵌入的文件
+     * @return 任务信息
+     */
+    @PostMapping("/embedding/jobs")
+    public ResponseEntity<IngestionJob> submitEmbeddingJob(@RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(documentIngestionService.submit(file, getCurrentUserIdOrNull()));
+        } catch (Exception e) {
+            System.err.println("提交文档嵌入任务失败: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 查询嵌入任务进度
+     *
+     * @param jobId 任务ID
+     * @return 任务信息，不存在或已过期时返回404
+     */
+    @GetMapping("/embedding/jobs/{jobId}")
+    public ResponseEntity<IngestionJob> getEmbeddingJob(@PathVariable String jobId) {
+        IngestionJob job = documentIngestionService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
     /**
      * 查询向量数据库
      *
      * @param query 用户的提问
+     * @param filter 元数据过滤表达式，例如 "source == 'manual.pdf'"，可选
      * @return 匹配到的文档内容
      */
     @GetMapping("/query")
-    public ResponseEntity<String> query(@RequestParam("query") String query) {
+    public ResponseEntity<String> query(@RequestParam("query") String query,
+                                        @RequestParam(value = "filter", required = false) String filter) {
         try {
-            var documents = ragService.query(query, 0.7, 5);
+            var documents = ragService.query(query, 0.7, 5, filter);
             StringBuilder result = new StringBuilder();
             if (documents.isEmpty()) {
                 result.append("未找到相关文档");
@@ -70,7 +70,7 @@ public class OpenAiController {
                     """.formatted(currentDate))
                 .defaultAdvisors(new LoggingAdvisor())
                 .defaultAdvisors(new DatabaseChatMemoryAdvisor(conversationServiceImpl))
-                .defaultFunctions("cancelBooking","getBookingDetails","createBooking","changeBooking","findCalendarEvent","getAllBookings","getSmartScheduleSuggestions","deleteBooking")
+                .defaultFunctions("cancelBooking","getBookingDetails","createBooking","changeBooking","findCalendarEvent","getAllBookings","getSmartScheduleSuggestions","deleteBooking","findCommonFreeSlots")
                 .build();
         
         this.ragService = ragService;
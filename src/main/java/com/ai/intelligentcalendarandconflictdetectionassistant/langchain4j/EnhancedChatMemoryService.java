@@ -1,12 +1,17 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.langchain4j;
 
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConversationHistoryCache;
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +23,7 @@ import java.util.Optional;
 public class EnhancedChatMemoryService {
 
     private final ChatMemoryStore chatMemoryStore;
+    private final ConversationHistoryCache conversationHistoryCache;
 
     /**
      * 为会话创建ChatMemory实例
@@ -32,9 +38,25 @@ public class EnhancedChatMemoryService {
 
     /**
      * 获取会话的对话历史
+     * 本进程的记忆中没有该会话时（重启后或会话由其他节点处理），从热会话缓存读取最近的对话记录
      */
     public List<ChatMessage> getConversationHistory(String sessionId) {
-        return chatMemoryStore.getMessages(sessionId);
+        List<ChatMessage> messages = chatMemoryStore.getMessages(sessionId);
+        if (!messages.isEmpty()) {
+            return messages;
+        }
+        List<Conversation> newestFirst = conversationHistoryCache.getRecent(sessionId, conversationHistoryCache.capacity());
+        List<ChatMessage> history = new ArrayList<>(newestFirst.size() * 2);
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            Conversation conversation = newestFirst.get(i);
+            if (conversation.getUserMessage() != null && !conversation.getUserMessage().isEmpty()) {
+                history.add(UserMessage.from(conversation.getUserMessage()));
+            }
+            if (conversation.getAiResponse() != null && !conversation.getAiResponse().isEmpty()) {
+                history.add(AiMessage.from(conversation.getAiResponse()));
+            }
+        }
+        return history;
     }
 
     /**
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -283,6 +284,108 @@ public class LangChainBookingTools {
         }
     }
 
+    /**
+     * 批量检测多个候选时间段的冲突
+     */
+    @Tool("批量检测多个候选时间段的日程冲突，一次调用评估全部候选")
+    public String checkConflicts(
+            @P("候选时间段列表，每项格式为 yyyy-MM-dd HH:mm-HH:mm") List<String> slots
+    ) {
+        try {
+            log.info("开始批量冲突检测，候选时间段: {}", slots);
+
+            // 获取当前用户ID
+            Long userId = getCurrentUserId();
+            if (userId == null) {
+                userId = 3L; // 默认用户ID
+                log.warn("无法获取用户ID，使用默认用户ID: {}", userId);
+            }
+
+            List<ConflictCheckRequest> requests = new ArrayList<>();
+            for (String slot : slots) {
+                String[] dateAndTimes = slot.trim().split("\\s+");
+                String[] times = dateAndTimes[1].split("-");
+                ConflictCheckRequest conflictRequest = new ConflictCheckRequest();
+                conflictRequest.setEventTitle("候选时间段");
+                conflictRequest.setProposedDate(LocalDate.parse(dateAndTimes[0]));
+                conflictRequest.setStartTime(LocalTime.parse(times[0]));
+                conflictRequest.setEndTime(LocalTime.parse(times[1]));
+                conflictRequest.setDescription("批量冲突检测");
+                requests.add(conflictRequest);
+            }
+
+            List<ConflictCheckResponse> responses = conflictDetectionServiceImpl.checkConflicts(requests, userId);
+
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < responses.size(); i++) {
+                ConflictCheckResponse response = responses.get(i);
+                result.append(slots.get(i).trim()).append(": ");
+                if (response.isHasConflict()) {
+                    result.append(String.format("检测到%d个冲突事件，严重程度: %s",
+                            response.getConflictingEvents().size(), response.getSeverity()));
+                } else {
+                    result.append("无冲突");
+                }
+                result.append("\n");
+            }
+
+            log.info("批量冲突检测结果: {}", result);
+            return result.toString();
+        } catch (Exception e) {
+            log.error("批量冲突检测失败: ", e);
+            return "批量冲突检测失败: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 查找多个参会人的共同空闲时间
+     * 不校验当前用户与参会人的关系，可以读到任意用户的忙闲（不含日程内容），参会人数由 MAX_ATTENDEES 限制
+     */
+    @Tool("查找多个参会人的共同空闲时间")
+    public String findCommonFreeSlots(
+            @P("其他参会人的用户ID列表，最多49位") List<Long> userIds,
+            @P("开始日期，格式yyyy-MM-dd") String startDate,
+            @P("结束日期，格式yyyy-MM-dd") String endDate,
+            @P("时长（分钟）") int duration
+    ) {
+        try {
+            log.info("开始查找共同空闲时间，参会人: {}, 日期: {} ~ {}, 时长: {}", userIds, startDate, endDate, duration);
+
+            // 获取当前用户ID
+            Long userId = getCurrentUserId();
+            if (userId == null) {
+                userId = 3L; // 默认用户ID
+                log.warn("无法获取用户ID，使用默认用户ID: {}", userId);
+            }
+
+            // 发起人自动加入参会人
+            List<Long> attendees = new ArrayList<>();
+            attendees.add(userId);
+            if (userIds != null) {
+                attendees.addAll(userIds);
+            }
+
+            List<TimeSuggestion> slots = conflictDetectionServiceImpl.findCommonFreeSlots(attendees,
+                    LocalDate.parse(startDate).atStartOfDay(), LocalDate.parse(endDate).plusDays(1).atStartOfDay(),
+                    duration, 5);
+
+            if (slots.isEmpty()) {
+                return "暂无所有参会人都有空的时间段";
+            }
+            StringBuilder result = new StringBuilder("共同空闲时间:\n");
+            for (TimeSuggestion slot : slots) {
+                result.append(String.format("- %s %s 到 %s (置信度: %.0f%%)\n",
+                        slot.getDate(), slot.getStartTime(), slot.getEndTime(), slot.getConfidence() * 100));
+            }
+
+            log.info("共同空闲时间查找结果: {}", result);
+            return result.toString();
+        } catch (Exception e) {
+            log.error("查找共同空闲时间失败: ", e);
+            return "查找共同空闲时间失败: " + e.getMessage();
+        }
+    }
+
     /**
      * 获取当前用户ID
      */
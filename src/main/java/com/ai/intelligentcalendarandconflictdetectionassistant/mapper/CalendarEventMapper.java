@@ -3,6 +3,7 @@ package com.ai.intelligentcalendarandconflictdetectionassistant.mapper;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -17,6 +18,47 @@ public interface CalendarEventMapper {
     @Select("SELECT * FROM calendar_events WHERE user_id = #{userId}")
     List<CalendarEvent> findByUserId(Long userId);
 
+    /**
+     * 查询与时间窗口 [windowStart, windowEnd) 重叠的日程，排除指定状态
+     * 依赖索引 idx_calendar_events_user_end_start(user_id, end_time, start_time)
+     */
+    @Select("SELECT * FROM calendar_events WHERE user_id = #{userId} " +
+            "AND end_time > #{windowStart} AND start_time < #{windowEnd} AND status <> #{excludedStatus} " +
+            "ORDER BY start_time")
+    List<CalendarEvent> findOverlappingByUserId(Long userId, LocalDateTime windowStart, LocalDateTime windowEnd,
+                                                CalendarEvent.Status excludedStatus);
+
+    /**
+     * 一次查询多个用户与时间窗口 [windowStart, windowEnd) 重叠的日程，排除指定状态
+     */
+    @Select("<script>" +
+            "SELECT * FROM calendar_events WHERE user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach> " +
+            "AND end_time &gt; #{windowStart} AND start_time &lt; #{windowEnd} AND status &lt;&gt; #{excludedStatus}" +
+            "</script>")
+    List<CalendarEvent> findOverlappingByUserIds(List<Long> userIds, LocalDateTime windowStart, LocalDateTime windowEnd,
+                                                 CalendarEvent.Status excludedStatus);
+
+    /**
+     * 查询在 windowEnd 之前开始的重复日程（系列的首个实例），实例由 RecurrenceExpander 在内存中展开
+     * 依赖生成列 is_recurring 上的索引 idx_calendar_events_user_recurring(user_id, is_recurring, start_time)，
+     * 不扫描用户的普通日程
+     */
+    @Select("SELECT * FROM calendar_events WHERE user_id = #{userId} " +
+            "AND is_recurring = 1 AND start_time < #{windowEnd} AND status <> #{excludedStatus}")
+    List<CalendarEvent> findRecurringByUserId(Long userId, LocalDateTime windowEnd, CalendarEvent.Status excludedStatus);
+
+    /**
+     * 一次查询多个用户在 windowEnd 之前开始的重复日程系列，同样走 idx_calendar_events_user_recurring
+     */
+    @Select("<script>" +
+            "SELECT * FROM calendar_events WHERE user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach> " +
+            "AND is_recurring = 1 AND start_time &lt; #{windowEnd} AND status &lt;&gt; #{excludedStatus}" +
+            "</script>")
+    List<CalendarEvent> findRecurringByUserIds(List<Long> userIds, LocalDateTime windowEnd,
+                                               CalendarEvent.Status excludedStatus);
+
     @Insert("INSERT INTO calendar_events(user_id, title, description, location, start_time, end_time, timezone, event_type, priority, is_all_day, recurrence_rule, recurrence_exceptions, status, visibility, external_event_id, external_calendar_id, created_at, updated_at) " +
             "VALUES(#{userId}, #{title}, #{description}, #{location}, #{startTime}, #{endTime}, #{timezone}, #{eventType}, #{priority}, #{allDay}, #{recurrenceRule}, #{recurrenceExceptions}, #{status}, #{visibility}, #{externalEventId}, #{externalCalendarId}, #{createdAt}, #{updatedAt})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
@@ -18,6 +18,16 @@ public interface ConflictDetectionLogMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(ConflictDetectionLog log);
 
+    @Insert("<script>" +
+            "INSERT INTO conflict_detection_logs(user_id, proposed_date, proposed_start_time, proposed_end_time, " +
+            "has_conflict, conflict_count, severity, ai_suggestion_used, created_at) VALUES " +
+            "<foreach collection='logs' item='log' separator=','>" +
+            "(#{log.userId}, #{log.proposedDate}, #{log.proposedStartTime}, #{log.proposedEndTime}, " +
+            "#{log.hasConflict}, #{log.conflictCount}, #{log.severity}, #{log.aiSuggestionUsed}, #{log.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    void insertBatch(List<ConflictDetectionLog> logs);
+
     @Delete("DELETE FROM conflict_detection_logs WHERE user_id = #{userId}")
     void deleteByUserId(Long userId);
 }
\ No newline at end of file
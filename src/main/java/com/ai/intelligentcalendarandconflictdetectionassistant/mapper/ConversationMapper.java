@@ -20,11 +20,26 @@ public interface ConversationMapper {
             "FROM conversations WHERE session_id = #{sessionId} ORDER BY created_at DESC")
     List<Conversation> findBySessionIdOrderByCreatedAtDesc(String sessionId);
 
+    /**
+     * 会话最近的 limit 条对话，只取构建对话记忆需要的列，走 (session_id, created_at) 索引倒序扫描
+     */
+    @Select("SELECT id, session_id, user_message, ai_response, created_at " +
+            "FROM conversations WHERE session_id = #{sessionId} ORDER BY created_at DESC, id DESC LIMIT #{limit}")
+    List<Conversation> findRecentBySessionId(String sessionId, int limit);
+
     @Insert("INSERT INTO conversations(user_id, session_id, user_message, ai_response, intent, entities, successful, created_at) " +
             "VALUES(#{userId}, #{sessionId}, #{userMessage}, #{aiResponse}, #{intent}, #{entities}, #{successful}, #{createdAt})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(Conversation conversation);
 
+    @Insert("<script>" +
+            "INSERT INTO conversations(user_id, session_id, user_message, ai_response, intent, entities, successful, created_at) VALUES " +
+            "<foreach collection='conversations' item='c' separator=','>" +
+            "(#{c.userId}, #{c.sessionId}, #{c.userMessage}, #{c.aiResponse}, #{c.intent}, #{c.entities}, #{c.successful}, #{c.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    void insertBatch(List<Conversation> conversations);
+
     @Delete("DELETE FROM conversations WHERE id = #{id}")
     void deleteById(Long id);
 
@@ -33,16 +48,4 @@ public interface ConversationMapper {
 
     @Select("SELECT * FROM conversations WHERE session_id = #{sessionId}")
     List<Conversation> findBySessionId(String sessionId);
-    
-    @Select("SELECT DISTINCT session_id FROM conversations WHERE user_id = #{userId}")
-    List<String> findDistinctSessionIdsByUserId(Long userId);
-    
-    @Select("SELECT COUNT(*) FROM conversations WHERE session_id = #{sessionId}")
-    int countBySessionId(String sessionId);
-    
-    @Select("SELECT session_id FROM conversations WHERE user_id = #{userId} ORDER BY created_at DESC LIMIT 1")
-    String findLatestSessionIdByUserId(Long userId);
-    
-    @Select("SELECT COUNT(*) > 0 FROM conversations WHERE session_id = #{sessionId}")
-    boolean existsBySessionId(String sessionId);
 }
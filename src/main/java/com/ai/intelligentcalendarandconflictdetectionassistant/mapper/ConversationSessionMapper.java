@@ -0,0 +1,98 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.mapper;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConversationSession;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface ConversationSessionMapper {
+
+    @Select("SELECT * FROM conversation_sessions WHERE session_id = #{sessionId}")
+    ConversationSession findBySessionId(String sessionId);
+
+    @Select("SELECT COUNT(*) > 0 FROM conversation_sessions WHERE session_id = #{sessionId}")
+    boolean existsBySessionId(String sessionId);
+
+    @Select("SELECT message_count FROM conversation_sessions WHERE session_id = #{sessionId}")
+    Integer findMessageCountBySessionId(String sessionId);
+
+    @Select("SELECT session_id FROM conversation_sessions WHERE user_id = #{userId} " +
+            "ORDER BY last_message_at DESC, session_id DESC LIMIT 1")
+    String findLatestSessionIdByUserId(Long userId);
+
+    @Select("SELECT session_id FROM conversation_sessions WHERE user_id = #{userId} " +
+            "ORDER BY last_message_at DESC, session_id DESC")
+    List<String> findSessionIdsByUserId(Long userId);
+
+    /**
+     * 用户的会话，按 (最后活动时间, 会话ID) 倒序做键集分页，走 (user_id, last_message_at, session_id) 索引
+     * beforeTime/beforeSessionId 为上一页最后一个会话的游标，为null时从最新的会话开始
+     */
+    @Select("<script>" +
+            "SELECT * FROM conversation_sessions WHERE user_id = #{userId} " +
+            "<if test='beforeTime != null'>" +
+            "AND (last_message_at &lt; #{beforeTime}" +
+            "<if test='beforeSessionId != null'> OR (last_message_at = #{beforeTime} AND session_id &lt; #{beforeSessionId})</if>) " +
+            "</if>" +
+            "ORDER BY last_message_at DESC, session_id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ConversationSession> findByUserId(Long userId, LocalDateTime beforeTime, String beforeSessionId, int limit);
+
+    /**
+     * 把一个会话新写入的对话合并到汇总行：session.messageCount 为新增条数，intentCounts 为新增的意图计数。
+     * ON DUPLICATE KEY UPDATE 的赋值按顺序生效，title、last_intent 必须在时间列更新之前比较
+     * @return 受影响行数，1 表示新建了汇总行，2 表示更新了已有行（message_count 总会变化，不会返回 0）
+     */
+    @Insert("<script>" +
+            "INSERT INTO conversation_sessions(session_id, user_id, message_count, first_message_at, last_message_at, " +
+            "title, last_intent, intent_counts) " +
+            "VALUES(#{session.sessionId}, #{session.userId}, #{session.messageCount}, #{session.firstMessageAt}, " +
+            "#{session.lastMessageAt}, #{session.title}, #{session.lastIntent}, JSON_OBJECT(" +
+            "<foreach collection='intentCounts' index='intent' item='count' separator=','>#{intent}, #{count}</foreach>)) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "title = IF(VALUES(first_message_at) &lt; first_message_at, VALUES(title), title), " +
+            "last_intent = IF(VALUES(last_message_at) >= last_message_at, VALUES(last_intent), last_intent), " +
+            "<if test='!intentCounts.isEmpty()'>" +
+            "intent_counts = JSON_SET(intent_counts" +
+            "<foreach collection='intentCounts' index='intent' item='count'>, " +
+            "CONCAT('$.', JSON_QUOTE(#{intent})), " +
+            "COALESCE(JSON_EXTRACT(intent_counts, CONCAT('$.', JSON_QUOTE(#{intent}))), 0) + #{count}" +
+            "</foreach>), " +
+            "</if>" +
+            "message_count = message_count + VALUES(message_count), " +
+            "first_message_at = LEAST(first_message_at, VALUES(first_message_at)), " +
+            "last_message_at = GREATEST(last_message_at, VALUES(last_message_at))" +
+            "</script>")
+    int upsert(ConversationSession session, Map<String, Integer> intentCounts);
+
+    /**
+     * 从 conversations 重新计算一个会话的汇总行（删除对话后、为已有历史对话的会话新建汇总行时使用）；
+     * 会话已没有对话时不写入，需再调用 deleteIfEmpty
+     */
+    @Insert("INSERT INTO conversation_sessions(session_id, user_id, message_count, first_message_at, last_message_at, " +
+            "title, last_intent, intent_counts) " +
+            "SELECT s.session_id, s.user_id, s.message_count, s.first_message_at, s.last_message_at, " +
+            "(SELECT LEFT(f.user_message, 100) FROM conversations f WHERE f.session_id = #{sessionId} " +
+            "ORDER BY f.created_at, f.id LIMIT 1), " +
+            "(SELECT l.intent FROM conversations l WHERE l.session_id = #{sessionId} " +
+            "ORDER BY l.created_at DESC, l.id DESC LIMIT 1), " +
+            "(SELECT COALESCE(JSON_OBJECTAGG(i.intent, i.n), JSON_OBJECT()) FROM (SELECT intent, COUNT(*) AS n " +
+            "FROM conversations WHERE session_id = #{sessionId} AND intent IS NOT NULL GROUP BY intent) i) " +
+            "FROM (SELECT session_id, MIN(user_id) AS user_id, COUNT(*) AS message_count, " +
+            "MIN(created_at) AS first_message_at, MAX(created_at) AS last_message_at " +
+            "FROM conversations WHERE session_id = #{sessionId} GROUP BY session_id) s " +
+            "ON DUPLICATE KEY UPDATE user_id = VALUES(user_id), message_count = VALUES(message_count), " +
+            "first_message_at = VALUES(first_message_at), last_message_at = VALUES(last_message_at), " +
+            "title = VALUES(title), last_intent = VALUES(last_intent), intent_counts = VALUES(intent_counts)")
+    void refresh(String sessionId);
+
+    @Delete("DELETE FROM conversation_sessions WHERE session_id = #{sessionId} " +
+            "AND NOT EXISTS (SELECT 1 FROM conversations WHERE session_id = #{sessionId})")
+    void deleteIfEmpty(String sessionId);
+
+    @Select("SELECT COUNT(*) FROM conversations WHERE session_id = #{sessionId}")
+    int countConversations(String sessionId);
+}
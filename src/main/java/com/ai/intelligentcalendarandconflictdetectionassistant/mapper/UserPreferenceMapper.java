@@ -3,6 +3,7 @@ package com.ai.intelligentcalendarandconflictdetectionassistant.mapper;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.UserPreference;
 import org.apache.ibatis.annotations.*;
 
+import java.util.List;
 import java.util.Optional;
 
 @Mapper
@@ -11,6 +12,12 @@ public interface UserPreferenceMapper {
     @Select("SELECT * FROM user_preferences WHERE user_id = #{userId}")
     Optional<UserPreference> findByUserId(Long userId);
 
+    @Select("<script>" +
+            "SELECT * FROM user_preferences WHERE user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>" +
+            "</script>")
+    List<UserPreference> findByUserIds(List<Long> userIds);
+
     @Insert("INSERT INTO user_preferences(user_id, work_day_start, work_day_end, include_weekends, " +
             "default_event_duration, buffer_time_before_events, buffer_time_after_events, " +
             "default_reminder_time, theme, notification_enabled, email_notifications, created_at, updated_at) " +
@@ -0,0 +1,20 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.pojo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话汇总，对应 conversation_sessions 表，随对话写入增量维护
+ */
+@Data
+public class ConversationSession {
+    private String sessionId;
+    private Long userId;
+    private int messageCount; // 对话数量
+    private LocalDateTime firstMessageAt; // 第一条对话时间
+    private LocalDateTime lastMessageAt; // 最后活动时间
+    private String title; // 第一条用户消息的前100个字符
+    private String lastIntent; // 最后一条对话的意图
+    private String intentCounts; // 意图分布，JSON格式存储，如 {"create_event": 3}
+}
@@ -0,0 +1,39 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.pojo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档嵌入任务状态
+ */
+@Data
+public class IngestionJob {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    private String jobId;
+    private String fileName;
+    private volatile Status status = Status.PENDING;
+    private volatile int totalChunks; // 切分后的文本块数，解析完成前为0
+    private volatile int embeddedChunks; // 已生成向量并写入Redis的文本块数
+    private volatile String error;
+    private LocalDateTime createdAt;
+    private volatile LocalDateTime finishedAt;
+
+    /**
+     * 完成百分比（0~100）
+     */
+    public int getProgress() {
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        return totalChunks == 0 ? 0 : (int) (embeddedChunks * 100L / totalChunks);
+    }
+
+    public synchronized void addEmbeddedChunks(int count) {
+        embeddedChunks += count;
+    }
+}
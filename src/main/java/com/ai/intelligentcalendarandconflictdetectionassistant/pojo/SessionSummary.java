@@ -1,12 +1,16 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.pojo;
 
 import lombok.Data;
+
+import java.util.Map;
+
 @Data
 public class SessionSummary {
     private String sessionId;
     private String summary; // 会话内容总结
     private String lastActivityTime; // 最后活动时间
     private int conversationCount; // 对话数量
+    private Map<String, Integer> intentCounts; // 意图分布
     
     public SessionSummary() {}
     
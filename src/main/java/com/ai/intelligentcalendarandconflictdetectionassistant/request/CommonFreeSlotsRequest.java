@@ -0,0 +1,19 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.request;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.impls.ConflictDetectionServiceImpl;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class CommonFreeSlotsRequest {
+    // 参会人ID，发起人会自动加入，加上发起人不超过 MAX_ATTENDEES 位
+    @Size(max = ConflictDetectionServiceImpl.MAX_ATTENDEES - 1,
+            message = "除发起人外最多" + (ConflictDetectionServiceImpl.MAX_ATTENDEES - 1) + "位参会人")
+    private List<Long> userIds;
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+    private int duration; // 分钟
+    private Integer limit; // 返回的候选时间段数量，默认10
+}
@@ -1,5 +1,6 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.request;
 
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -7,9 +8,14 @@ import java.time.LocalTime;
 @Data
 public class ConflictCheckRequest {
     private String eventTitle;
+    @NotNull(message = "提议日期不能为空")
     private LocalDate proposedDate;
+    @NotNull(message = "开始时间不能为空")
     private LocalTime startTime;
+    @NotNull(message = "结束时间不能为空")
     private LocalTime endTime;
     private String location;
     private String description;
+    // 提议时间所在时区（IANA ID，如 Asia/Shanghai），为空时使用系统默认时区
+    private String timezone;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.response;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.TimeSuggestion;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommonFreeSlotsResponse {
+    private List<Long> userIds;
+    private List<TimeSuggestion> slots;
+    private String message;
+}
@@ -0,0 +1,107 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.EventTimes.Interval;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 冲突判定
+ * 提议时间段和现有日程都按绝对时间（epoch 秒）的半开区间比较，
+ * 跨午夜、多天日程以及不同时区的日程不需要任何特殊分支。
+ */
+public final class ConflictEngine {
+
+    private ConflictEngine() {
+    }
+
+    /**
+     * 与提议时间段冲突的日程，按开始时间升序
+     * 日程前 bufferBeforeMinutes、后 bufferAfterMinutes 分钟也视为占用，与建议搜索使用相同的缓冲
+     */
+    public static List<CalendarEvent> findConflicts(List<CalendarEvent> events, Interval proposal,
+                                                    long bufferBeforeMinutes, long bufferAfterMinutes, ZoneId fallback) {
+        Interval buffered = buffered(proposal, bufferBeforeMinutes, bufferAfterMinutes);
+        List<CalendarEvent> conflicts = new ArrayList<>();
+        for (CalendarEvent event : events) {
+            if (EventTimes.intervalOf(event, fallback).overlaps(buffered)) {
+                conflicts.add(event);
+            }
+        }
+        conflicts.sort(Comparator.comparingLong(event -> EventTimes.startEpochSecond(event, fallback)));
+        return conflicts;
+    }
+
+    /**
+     * 提议时间段与日程实际重叠的分钟数（不含缓冲），不重叠时为0
+     */
+    public static long conflictMinutes(Interval proposal, CalendarEvent event, ZoneId fallback) {
+        return proposal.overlapSeconds(EventTimes.intervalOf(event, fallback)) / 60;
+    }
+
+    /**
+     * 扫描线批量判定多个提议时间段的冲突日程
+     * 提议时间段按（含缓冲的）开始时间排序，日程按开始时间依次进入以结束时间为序的活动堆，
+     * 结束不晚于当前提议开始的日程出堆，之后的提议也不会再与其冲突。
+     * @return 与 proposals 顺序一一对应的冲突列表
+     */
+    public static List<List<CalendarEvent>> sweep(List<Interval> proposals, List<CalendarEvent> events,
+                                                  long bufferBeforeMinutes, long bufferAfterMinutes, ZoneId fallback) {
+        int slotCount = proposals.size();
+        Interval[] buffered = new Interval[slotCount];
+        Integer[] order = new Integer[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            buffered[i] = buffered(proposals.get(i), bufferBeforeMinutes, bufferAfterMinutes);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> buffered[i].start()));
+
+        List<TimedEvent> sortedEvents = new ArrayList<>(events.size());
+        for (CalendarEvent event : events) {
+            sortedEvents.add(new TimedEvent(EventTimes.intervalOf(event, fallback), event));
+        }
+        sortedEvents.sort(Comparator.comparingLong(timed -> timed.interval().start()));
+        PriorityQueue<TimedEvent> active = new PriorityQueue<>(
+            Comparator.comparingLong(timed -> timed.interval().end()));
+
+        List<List<CalendarEvent>> result = new ArrayList<>(Collections.nCopies(slotCount, null));
+        int next = 0;
+        for (int slot : order) {
+            Interval window = buffered[slot];
+            while (next < sortedEvents.size() && sortedEvents.get(next).interval().start() < window.end()) {
+                active.add(sortedEvents.get(next++));
+            }
+            while (!active.isEmpty() && active.peek().interval().end() <= window.start()) {
+                active.poll();
+            }
+            List<TimedEvent> conflicts = new ArrayList<>();
+            for (TimedEvent timed : active) {
+                // 活动堆可能包含为更晚结束的提议加入的日程
+                if (timed.interval().overlaps(window)) {
+                    conflicts.add(timed);
+                }
+            }
+            conflicts.sort(Comparator.comparingLong(timed -> timed.interval().start()));
+            List<CalendarEvent> slotConflicts = new ArrayList<>(conflicts.size());
+            conflicts.forEach(timed -> slotConflicts.add(timed.event()));
+            result.set(slot, slotConflicts);
+        }
+        return result;
+    }
+
+    /**
+     * 日程向前扩展 before、向后扩展 after 后与提议重叠，等价于提议向前扩展 after、向后扩展 before 后与日程重叠
+     */
+    public static Interval buffered(Interval proposal, long bufferBeforeMinutes, long bufferAfterMinutes) {
+        return proposal.widen(bufferAfterMinutes, bufferBeforeMinutes);
+    }
+
+    private record TimedEvent(Interval interval, CalendarEvent event) {
+    }
+}
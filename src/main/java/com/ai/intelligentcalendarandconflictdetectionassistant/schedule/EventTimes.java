@@ -0,0 +1,151 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日程时间换算工具
+ * 数据库中的开始/结束时间是日程所在时区（calendar_events.timezone）的本地时间，
+ * 冲突判断统一换算为 epoch 秒的绝对时间区间，跨午夜、跨天和夏令时切换都不需要特殊分支。
+ * 本地时间落在夏令时跳过的间隙中时顺延到间隙之后，落在重复的一小时中时取较早的偏移。
+ */
+public final class EventTimes {
+
+    /**
+     * 任意时区与UTC的最大偏移（UTC+14），按本地时间查询数据库时窗口需要向两侧各放宽这么多
+     */
+    public static final Duration MAX_ZONE_OFFSET = Duration.ofHours(14);
+
+    private static final Map<String, ZoneId> ZONES = new ConcurrentHashMap<>();
+
+    private EventTimes() {
+    }
+
+    /**
+     * 解析时区ID，为空或无效时返回 fallback
+     */
+    public static ZoneId zoneOf(String timezone, ZoneId fallback) {
+        if (timezone == null || timezone.isBlank()) {
+            return fallback;
+        }
+        ZoneId zone = ZONES.computeIfAbsent(timezone.trim(), EventTimes::parseZone);
+        return zone != null ? zone : fallback;
+    }
+
+    /**
+     * 日程开始时间的 epoch 秒
+     */
+    public static long startEpochSecond(CalendarEvent event, ZoneId fallback) {
+        return toEpochSecond(event.getStartTime(), zoneOf(event.getTimezone(), fallback));
+    }
+
+    /**
+     * 日程结束时间的 epoch 秒，结束早于开始时按开始时间处理
+     */
+    public static long endEpochSecond(CalendarEvent event, ZoneId fallback) {
+        ZoneId zone = zoneOf(event.getTimezone(), fallback);
+        return Math.max(toEpochSecond(event.getStartTime(), zone), toEpochSecond(event.getEndTime(), zone));
+    }
+
+    /**
+     * 日程的绝对时间区间
+     */
+    public static Interval intervalOf(CalendarEvent event, ZoneId fallback) {
+        return new Interval(startEpochSecond(event, fallback), endEpochSecond(event, fallback));
+    }
+
+    /**
+     * 某一天内 [start, end) 的提议时间段；end 不晚于 start 时视为跨午夜，结束在第二天
+     */
+    public static Interval proposal(LocalDate date, LocalTime start, LocalTime end, ZoneId zone) {
+        LocalDateTime startTime = date.atTime(start);
+        LocalDateTime endTime = end.isAfter(start) ? date.atTime(end) : date.plusDays(1).atTime(end);
+        return new Interval(toEpochSecond(startTime, zone), toEpochSecond(endTime, zone));
+    }
+
+    /**
+     * 某一天在指定时区内的 [当天0点, 次日0点)，夏令时切换日为23或25小时
+     */
+    public static Interval day(LocalDate date, ZoneId zone) {
+        return new Interval(date.atStartOfDay(zone).toEpochSecond(), date.plusDays(1).atStartOfDay(zone).toEpochSecond());
+    }
+
+    public static long toEpochSecond(LocalDateTime local, ZoneId zone) {
+        return ZonedDateTime.ofLocal(local, zone, null).toEpochSecond();
+    }
+
+    /**
+     * 把 epoch 秒换算为指定时区的本地时间
+     */
+    public static LocalDateTime toLocal(long epochSecond, ZoneId zone) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond)));
+    }
+
+    /**
+     * 把日程在自身时区的本地时间换算为 targetZone 的本地时间
+     */
+    public static LocalDateTime convert(LocalDateTime local, String timezone, ZoneId fallback, ZoneId targetZone) {
+        ZoneId zone = zoneOf(timezone, fallback);
+        if (zone.equals(targetZone)) {
+            return local;
+        }
+        return toLocal(toEpochSecond(local, zone), targetZone);
+    }
+
+    /**
+     * 任意时区下不早于 fromEpochSecond 的本地时间的下界，用于按本地时间列粗筛数据库
+     */
+    public static LocalDateTime localLowerBound(long fromEpochSecond) {
+        return LocalDateTime.ofEpochSecond(fromEpochSecond, 0, ZoneOffset.UTC).minus(MAX_ZONE_OFFSET);
+    }
+
+    /**
+     * 任意时区下不晚于 toEpochSecond 的本地时间的上界
+     */
+    public static LocalDateTime localUpperBound(long toEpochSecond) {
+        return LocalDateTime.ofEpochSecond(toEpochSecond, 0, ZoneOffset.UTC).plus(MAX_ZONE_OFFSET);
+    }
+
+    private static ZoneId parseZone(String timezone) {
+        try {
+            return ZoneId.of(timezone);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 以 epoch 秒表示的半开区间 [start, end)
+     */
+    public record Interval(long start, long end) {
+
+        public boolean overlaps(Interval other) {
+            return start < other.end && other.start < end;
+        }
+
+        /**
+         * 重叠的秒数，不重叠时为0
+         */
+        public long overlapSeconds(Interval other) {
+            return Math.max(0, Math.min(end, other.end) - Math.max(start, other.start));
+        }
+
+        /**
+         * 向前扩展 beforeMinutes、向后扩展 afterMinutes 分钟
+         */
+        public Interval widen(long beforeMinutes, long afterMinutes) {
+            return new Interval(start - beforeMinutes * 60, end + afterMinutes * 60);
+        }
+    }
+}
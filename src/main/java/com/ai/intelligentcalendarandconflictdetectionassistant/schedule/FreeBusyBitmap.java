@@ -0,0 +1,205 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 空闲/忙碌位图
+ * 把一段时间窗口按固定粒度（1分钟或5分钟）栅格化为 long[] 位图，置位表示忙碌。
+ * 忙碌区间的开始向下取整、结束向上取整，保证找到的空闲段一定真实空闲；
+ * 空闲段查找按64位字扫描，不逐分钟遍历，也不需要对日程排序。
+ */
+public final class FreeBusyBitmap {
+
+    private final LocalDateTime origin;
+    private final int granularityMinutes;
+    private final int slotCount;
+    private final long[] busy;
+
+    /**
+     * @param from 窗口开始（包含）
+     * @param to 窗口结束（不包含）
+     * @param granularityMinutes 每一位代表的分钟数
+     */
+    public FreeBusyBitmap(LocalDateTime from, LocalDateTime to, int granularityMinutes) {
+        if (granularityMinutes <= 0) {
+            throw new IllegalArgumentException("粒度必须大于0");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("窗口结束时间必须晚于开始时间");
+        }
+        this.origin = from;
+        this.granularityMinutes = granularityMinutes;
+        long minutes = Duration.between(from, to).toMinutes();
+        this.slotCount = Math.toIntExact((minutes + granularityMinutes - 1) / granularityMinutes);
+        this.busy = new long[(slotCount + 63) >>> 6];
+        // 最后一个字中超出窗口的位视为忙碌，扫描时无需额外判断边界
+        if ((slotCount & 63) != 0) {
+            busy[busy.length - 1] |= -1L << slotCount;
+        }
+    }
+
+    /**
+     * 覆盖若干整天的位图
+     */
+    public static FreeBusyBitmap forDays(LocalDate fromDate, LocalDate toDateExclusive, int granularityMinutes) {
+        return new FreeBusyBitmap(fromDate.atStartOfDay(), toDateExclusive.atStartOfDay(), granularityMinutes);
+    }
+
+    /**
+     * 标记 [start, end) 为忙碌，超出窗口的部分忽略
+     */
+    public void markBusy(LocalDateTime start, LocalDateTime end) {
+        setRange(floorIndex(start), ceilIndex(end));
+    }
+
+    /**
+     * 只保留每天 [workStart, workEnd) 为可用时间，其余时间标记为忙碌
+     * workEnd 不晚于 workStart 时视为跨午夜的工作时段
+     * @param includeWeekends 为false时周六周日整天标记为忙碌
+     */
+    public void restrictToDailyWindow(LocalTime workStart, LocalTime workEnd, boolean includeWeekends) {
+        LocalDate lastDate = origin.plusMinutes((long) slotCount * granularityMinutes).toLocalDate();
+        for (LocalDate date = origin.toLocalDate(); !date.isAfter(lastDate); date = date.plusDays(1)) {
+            LocalDateTime dayStart = date.atStartOfDay();
+            LocalDateTime dayEnd = dayStart.plusDays(1);
+            if (!includeWeekends && isWeekend(date)) {
+                markBusy(dayStart, dayEnd);
+            } else if (workStart.isBefore(workEnd)) {
+                markBusy(dayStart, date.atTime(workStart));
+                markBusy(date.atTime(workEnd), dayEnd);
+            } else {
+                markBusy(date.atTime(workEnd), date.atTime(workStart));
+            }
+        }
+    }
+
+    /**
+     * [start, end) 是否完全空闲，超出窗口的部分视为忙碌
+     */
+    public boolean isFree(LocalDateTime start, LocalDateTime end) {
+        if (start.isBefore(origin) || end.isAfter(timeAt(slotCount))) {
+            return false;
+        }
+        int from = floorIndex(start);
+        int to = ceilIndex(end);
+        return from < to && nextBusy(from) >= to;
+    }
+
+    /**
+     * 查找所有长度不小于 minMinutes 的空闲段，按时间先后返回
+     */
+    public List<FreeRun> freeRuns(long minMinutes) {
+        int minSlots = (int) Math.max(1, (minMinutes + granularityMinutes - 1) / granularityMinutes);
+        List<FreeRun> runs = new ArrayList<>();
+        int from = nextFree(0);
+        while (from < slotCount) {
+            int to = nextBusy(from);
+            if (to - from >= minSlots) {
+                runs.add(new FreeRun(timeAt(from), timeAt(to)));
+            }
+            from = nextFree(to);
+        }
+        return runs;
+    }
+
+    public int getGranularityMinutes() {
+        return granularityMinutes;
+    }
+
+    /**
+     * 从 from 开始第一个空闲位，不存在时返回 slotCount
+     */
+    private int nextFree(int from) {
+        if (from >= slotCount) {
+            return slotCount;
+        }
+        int w = from >>> 6;
+        long word = ~busy[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == busy.length) {
+                return slotCount;
+            }
+            word = ~busy[w];
+        }
+        return Math.min(slotCount, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * 从 from 开始第一个忙碌位，不存在时返回 slotCount
+     */
+    private int nextBusy(int from) {
+        if (from >= slotCount) {
+            return slotCount;
+        }
+        int w = from >>> 6;
+        long word = busy[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == busy.length) {
+                return slotCount;
+            }
+            word = busy[w];
+        }
+        return Math.min(slotCount, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    private void setRange(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(slotCount, to);
+        if (from >= to) {
+            return;
+        }
+        int startWord = from >>> 6;
+        int endWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (startWord == endWord) {
+            busy[startWord] |= firstMask & lastMask;
+            return;
+        }
+        busy[startWord] |= firstMask;
+        for (int w = startWord + 1; w < endWord; w++) {
+            busy[w] = -1L;
+        }
+        busy[endWord] |= lastMask;
+    }
+
+    private int floorIndex(LocalDateTime time) {
+        long minutes = Duration.between(origin, time).toMinutes();
+        return clampIndex(Math.floorDiv(minutes, granularityMinutes));
+    }
+
+    private int ceilIndex(LocalDateTime time) {
+        long seconds = Duration.between(origin, time).getSeconds();
+        long slotSeconds = granularityMinutes * 60L;
+        return clampIndex(Math.floorDiv(seconds + slotSeconds - 1, slotSeconds));
+    }
+
+    private int clampIndex(long index) {
+        return (int) Math.max(0, Math.min(slotCount, index));
+    }
+
+    private LocalDateTime timeAt(int index) {
+        return origin.plusMinutes((long) index * granularityMinutes);
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * 一段连续空闲时间 [start, end)
+     */
+    public record FreeRun(LocalDateTime start, LocalDateTime end) {
+
+        public long minutes() {
+            return Duration.between(start, end).toMinutes();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 不可变的区间索引（隐式增强区间树）
+ * 区间按开始时间排序存放在数组中，数组的二分结构即一棵平衡二叉树，
+ * 每个节点额外记录子树内最大的结束时间，重叠查询和点查询的复杂度为 O(log n + k)。
+ * 区间均为半开区间 [start, end)，修改操作返回新的索引实例（写时复制）。
+ *
+ * @param <T> 区间携带的数据类型
+ */
+public final class IntervalIndex<T> {
+
+    private static final IntervalIndex<?> EMPTY = new IntervalIndex<>(new long[0], new long[0], new Object[0]);
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final Object[] values;
+
+    private IntervalIndex(long[] starts, long[] ends, Object[] values) {
+        this.starts = starts;
+        this.ends = ends;
+        this.values = values;
+        this.maxEnds = new long[starts.length];
+        buildMaxEnds(0, starts.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> IntervalIndex<T> empty() {
+        return (IntervalIndex<T>) EMPTY;
+    }
+
+    /**
+     * 构建索引
+     * @param items 区间数据
+     * @param startFn 开始时间
+     * @param endFn 结束时间，小于开始时间时按开始时间处理
+     */
+    public static <T> IntervalIndex<T> build(List<T> items, ToLongFunction<? super T> startFn,
+                                             ToLongFunction<? super T> endFn) {
+        if (items == null || items.isEmpty()) {
+            return empty();
+        }
+        int n = items.size();
+        Integer[] order = new Integer[n];
+        long[] rawStarts = new long[n];
+        long[] rawEnds = new long[n];
+        for (int i = 0; i < n; i++) {
+            T item = items.get(i);
+            order[i] = i;
+            rawStarts[i] = startFn.applyAsLong(item);
+            rawEnds[i] = Math.max(rawStarts[i], endFn.applyAsLong(item));
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> rawStarts[i]));
+
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        Object[] values = new Object[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = rawStarts[order[i]];
+            ends[i] = rawEnds[order[i]];
+            values[i] = items.get(order[i]);
+        }
+        return new IntervalIndex<>(starts, ends, values);
+    }
+
+    /**
+     * 查询与 [from, to) 重叠的区间，结果按开始时间升序
+     */
+    public List<T> overlapping(long from, long to) {
+        if (starts.length == 0 || from >= to) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>();
+        collect(0, starts.length, from, to, result);
+        return result;
+    }
+
+    /**
+     * 查询包含时间点 point 的区间
+     */
+    public List<T> stabbing(long point) {
+        return overlapping(point, point + 1);
+    }
+
+    /**
+     * 是否存在与 [from, to) 重叠的区间
+     */
+    public boolean anyOverlapping(long from, long to) {
+        return from < to && exists(0, starts.length, from, to);
+    }
+
+    /**
+     * 返回加入一个区间后的新索引
+     */
+    public IntervalIndex<T> with(T value, long start, long end) {
+        int n = starts.length;
+        long safeEnd = Math.max(start, end);
+        // 插入位置：最后一个开始时间不大于start的元素之后
+        int pos = upperBound(start);
+
+        long[] newStarts = new long[n + 1];
+        long[] newEnds = new long[n + 1];
+        Object[] newValues = new Object[n + 1];
+        System.arraycopy(starts, 0, newStarts, 0, pos);
+        System.arraycopy(ends, 0, newEnds, 0, pos);
+        System.arraycopy(values, 0, newValues, 0, pos);
+        newStarts[pos] = start;
+        newEnds[pos] = safeEnd;
+        newValues[pos] = value;
+        System.arraycopy(starts, pos, newStarts, pos + 1, n - pos);
+        System.arraycopy(ends, pos, newEnds, pos + 1, n - pos);
+        System.arraycopy(values, pos, newValues, pos + 1, n - pos);
+        return new IntervalIndex<>(newStarts, newEnds, newValues);
+    }
+
+    /**
+     * 返回移除满足条件的区间后的新索引
+     */
+    @SuppressWarnings("unchecked")
+    public IntervalIndex<T> without(Predicate<? super T> predicate) {
+        int n = starts.length;
+        int kept = 0;
+        long[] newStarts = new long[n];
+        long[] newEnds = new long[n];
+        Object[] newValues = new Object[n];
+        for (int i = 0; i < n; i++) {
+            if (!predicate.test((T) values[i])) {
+                newStarts[kept] = starts[i];
+                newEnds[kept] = ends[i];
+                newValues[kept] = values[i];
+                kept++;
+            }
+        }
+        if (kept == n) {
+            return this;
+        }
+        if (kept == 0) {
+            return empty();
+        }
+        return new IntervalIndex<>(Arrays.copyOf(newStarts, kept), Arrays.copyOf(newEnds, kept),
+                Arrays.copyOf(newValues, kept));
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo >= hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(int lo, int hi, long from, long to, List<T> out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        // 整棵子树都在from之前结束，剪枝
+        if (maxEnds[mid] <= from) {
+            return;
+        }
+        collect(lo, mid, from, to, out);
+        // 右子树的开始时间都不小于当前节点，当前节点已经越过to时右子树无需访问
+        if (starts[mid] < to) {
+            if (ends[mid] > from) {
+                out.add((T) values[mid]);
+            }
+            collect(mid + 1, hi, from, to, out);
+        }
+    }
+
+    private boolean exists(int lo, int hi, long from, long to) {
+        if (lo >= hi) {
+            return false;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] <= from) {
+            return false;
+        }
+        if (exists(lo, mid, from, to)) {
+            return true;
+        }
+        if (starts[mid] < to) {
+            return ends[mid] > from || exists(mid + 1, hi, from, to);
+        }
+        return false;
+    }
+
+    private int upperBound(long key) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
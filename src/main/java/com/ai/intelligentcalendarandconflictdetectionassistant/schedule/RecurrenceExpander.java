@@ -0,0 +1,164 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+import com.ai.intelligentcalendarandconflictdetectionassistant.utils.ExpiringLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 重复日程展开器
+ * 只在查询窗口内惰性迭代重复日程的实例并排除例外日期，不会把整个系列写入数据库或内存。
+ * 编译后的规则按日程ID缓存，规则或例外文本变化时自动重新编译。
+ */
+@Slf4j
+@Component
+public class RecurrenceExpander {
+
+    // 单个日程在一个窗口内最多展开的实例数，防止超大窗口配合 FREQ=DAILY 产生过多对象
+    private static final int MAX_OCCURRENCES_PER_WINDOW = 5000;
+
+    private final ExpiringLruCache<Long, CompiledRecurrence> compiledRules;
+
+    public RecurrenceExpander(@Value("${schedule.recurrence.cache-size:10000}") int cacheSize) {
+        this.compiledRules = new ExpiringLruCache<>(cacheSize, null, null);
+    }
+
+    /**
+     * 是否为重复日程
+     */
+    public static boolean isRecurring(CalendarEvent event) {
+        return event.getRecurrenceRule() != null && !event.getRecurrenceRule().isBlank();
+    }
+
+    /**
+     * 展开多个日程在 [from, to) 内的实例，非重复日程与窗口重叠时原样保留，结果按开始时间升序
+     */
+    public List<CalendarEvent> expandAll(List<CalendarEvent> events, LocalDateTime from, LocalDateTime to) {
+        List<CalendarEvent> result = new ArrayList<>();
+        for (CalendarEvent event : events) {
+            result.addAll(expand(event, from, to));
+        }
+        result.sort(Comparator.comparing(CalendarEvent::getStartTime));
+        return result;
+    }
+
+    /**
+     * 展开单个日程在 [from, to) 内的实例
+     * 每个实例是原日程的副本，ID与原日程相同，开始和结束时间替换为该次实例的时间
+     */
+    public List<CalendarEvent> expand(CalendarEvent event, LocalDateTime from, LocalDateTime to) {
+        CompiledRecurrence compiled = isRecurring(event) ? compile(event) : null;
+        if (compiled == null || compiled.rule() == null) {
+            boolean overlaps = event.getStartTime().isBefore(to) && event.getEndTime().isAfter(from);
+            return overlaps ? List.of(event) : List.of();
+        }
+
+        Duration duration = Duration.between(event.getStartTime(), event.getEndTime());
+        if (duration.isNegative()) {
+            duration = Duration.ZERO;
+        }
+        List<CalendarEvent> occurrences = new ArrayList<>();
+        Iterator<LocalDateTime> iterator = compiled.rule().iterator(event.getStartTime(), from.minus(duration));
+        while (iterator.hasNext() && occurrences.size() < MAX_OCCURRENCES_PER_WINDOW) {
+            LocalDateTime start = iterator.next();
+            if (!start.isBefore(to)) {
+                break;
+            }
+            LocalDateTime end = start.plus(duration);
+            if (end.isAfter(from) && !compiled.isExcluded(start)) {
+                occurrences.add(occurrence(event, start, end));
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * 日程修改或删除后移除缓存的编译结果
+     */
+    public void evict(Long eventId) {
+        if (eventId != null) {
+            compiledRules.invalidate(eventId);
+        }
+    }
+
+    private CompiledRecurrence compile(CalendarEvent event) {
+        if (event.getId() == null) {
+            return CompiledRecurrence.compile(event);
+        }
+        CompiledRecurrence cached = compiledRules.getIfPresent(event.getId());
+        if (cached != null && cached.matches(event)) {
+            return cached;
+        }
+        CompiledRecurrence compiled = CompiledRecurrence.compile(event);
+        compiledRules.put(event.getId(), compiled);
+        return compiled;
+    }
+
+    private static CalendarEvent occurrence(CalendarEvent series, LocalDateTime start, LocalDateTime end) {
+        CalendarEvent occurrence = new CalendarEvent();
+        BeanUtils.copyProperties(series, occurrence);
+        occurrence.setStartTime(start);
+        occurrence.setEndTime(end);
+        return occurrence;
+    }
+
+    /**
+     * 编译后的重复规则和例外列表
+     * @param rule 规则无效时为null，此时按普通日程处理
+     */
+    record CompiledRecurrence(String ruleText, String exceptionsText, RecurrenceRule rule,
+                              Set<LocalDate> excludedDates, Set<LocalDateTime> excludedStarts) {
+
+        static CompiledRecurrence compile(CalendarEvent event) {
+            RecurrenceRule rule = null;
+            try {
+                rule = RecurrenceRule.parse(event.getRecurrenceRule());
+            } catch (IllegalArgumentException e) {
+                log.warn("日程 {} 的重复规则无效，按单次日程处理: {} ({})", event.getId(), event.getRecurrenceRule(), e.getMessage());
+            }
+
+            // 例外可以是整天（2024-01-15 / 20240115）或某一次实例的开始时间（2024-01-15T09:00 / 20240115T090000）
+            Set<LocalDate> excludedDates = new HashSet<>();
+            Set<LocalDateTime> excludedStarts = new HashSet<>();
+            String exceptions = event.getRecurrenceExceptions();
+            if (exceptions != null && !exceptions.isBlank()) {
+                for (String item : exceptions.trim().split("[,;\\s]+")) {
+                    try {
+                        if (item.indexOf('T') > 0 || item.indexOf('t') > 0) {
+                            excludedStarts.add(RecurrenceRule.parseDateTime(item, LocalTime.MIDNIGHT));
+                        } else {
+                            excludedDates.add(RecurrenceRule.parseDateTime(item, LocalTime.MIDNIGHT).toLocalDate());
+                        }
+                    } catch (IllegalArgumentException e) {
+                        log.warn("日程 {} 的重复例外无效，已忽略: {}", event.getId(), item);
+                    }
+                }
+            }
+            return new CompiledRecurrence(event.getRecurrenceRule(), exceptions, rule,
+                Set.copyOf(excludedDates), Set.copyOf(excludedStarts));
+        }
+
+        boolean matches(CalendarEvent event) {
+            return Objects.equals(ruleText, event.getRecurrenceRule())
+                && Objects.equals(exceptionsText, event.getRecurrenceExceptions());
+        }
+
+        boolean isExcluded(LocalDateTime start) {
+            return excludedStarts.contains(start) || excludedDates.contains(start.toLocalDate());
+        }
+    }
+}
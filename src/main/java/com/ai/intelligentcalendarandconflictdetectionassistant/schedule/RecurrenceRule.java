@@ -0,0 +1,408 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * 编译后的 RRULE（RFC 5545 常用子集）
+ * 支持 FREQ=DAILY/WEEKLY/MONTHLY/YEARLY、INTERVAL、COUNT、UNTIL、BYDAY（含序号，如 1MO、-1FR）、
+ * BYMONTHDAY、BYMONTH；WKST 固定为周一，不支持 BYHOUR/BYMINUTE/BYSETPOS 等按时刻展开的规则。
+ * 实例不可变、线程安全，展开时按周期惰性迭代，没有 COUNT 时直接跳到查询窗口附近的周期。
+ */
+public final class RecurrenceRule {
+
+    // 连续多少个周期没有产生任何实例时停止迭代，防止 BYMONTH=2;BYMONTHDAY=30 这类永远为空的规则死循环
+    private static final int MAX_EMPTY_PERIODS = 1000;
+
+    private static final DateTimeFormatter BASIC_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Integer count;
+    private final LocalDateTime until;
+    private final List<WeekdayNum> byDay;
+    private final List<Integer> byMonthDay;
+    private final List<Integer> byMonth;
+
+    private RecurrenceRule(Frequency frequency, int interval, Integer count, LocalDateTime until,
+                           List<WeekdayNum> byDay, List<Integer> byMonthDay, List<Integer> byMonth) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.byDay = byDay;
+        this.byMonthDay = byMonthDay;
+        this.byMonth = byMonth;
+    }
+
+    /**
+     * 解析 RRULE 字符串，允许带 "RRULE:" 前缀
+     * @throws IllegalArgumentException 规则格式错误或包含不支持的部分
+     */
+    public static RecurrenceRule parse(String rule) {
+        if (rule == null || rule.isBlank()) {
+            throw new IllegalArgumentException("重复规则为空");
+        }
+        String text = rule.trim();
+        if (text.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            text = text.substring(6);
+        }
+
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDateTime until = null;
+        List<WeekdayNum> byDay = Collections.emptyList();
+        List<Integer> byMonthDay = Collections.emptyList();
+        List<Integer> byMonth = Collections.emptyList();
+
+        for (String part : text.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("无效的重复规则片段: " + part);
+            }
+            String name = part.substring(0, eq).trim().toUpperCase(Locale.ROOT);
+            String value = part.substring(eq + 1).trim().toUpperCase(Locale.ROOT);
+            switch (name) {
+                case "FREQ" -> {
+                    try {
+                        frequency = Frequency.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("不支持的重复频率: " + value);
+                    }
+                }
+                case "INTERVAL" -> interval = parsePositive(name, value);
+                case "COUNT" -> count = parsePositive(name, value);
+                case "UNTIL" -> until = parseDateTime(value, LocalTime.MAX);
+                case "BYDAY" -> byDay = parseByDay(value);
+                case "BYMONTHDAY" -> byMonthDay = parseIntList(name, value, -31, 31);
+                case "BYMONTH" -> byMonth = parseIntList(name, value, 1, 12);
+                case "WKST" -> {
+                    // 周起始日固定为周一
+                }
+                default -> throw new IllegalArgumentException("不支持的重复规则部分: " + name);
+            }
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("重复规则缺少FREQ");
+        }
+        return new RecurrenceRule(frequency, interval, count, until, byDay, byMonthDay, byMonth);
+    }
+
+    /**
+     * 解析日期或日期时间，支持 ISO（2024-01-15、2024-01-15T09:00）和 iCalendar 基本格式（20240115、20240115T090000Z）
+     * @param dateOnlyTime 只有日期时使用的时刻
+     */
+    static LocalDateTime parseDateTime(String value, LocalTime dateOnlyTime) {
+        String text = value.trim();
+        if (text.endsWith("Z") || text.endsWith("z")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        try {
+            if (text.indexOf('-') > 0) {
+                return text.indexOf('T') > 0 ? LocalDateTime.parse(text) : LocalDate.parse(text).atTime(dateOnlyTime);
+            }
+            return text.indexOf('T') > 0 ? LocalDateTime.parse(text, BASIC_DATE_TIME)
+                : LocalDate.parse(text, BASIC_DATE).atTime(dateOnlyTime);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的日期时间: " + value);
+        }
+    }
+
+    /**
+     * 从 dtStart 开始按时间顺序惰性迭代实例开始时间（包含 dtStart 本身，如果它符合规则）
+     * @param seekTo 提示：调用方不关心早于该时间的实例，没有 COUNT 时可以直接跳过之前的周期，可为null
+     */
+    public Iterator<LocalDateTime> iterator(LocalDateTime dtStart, LocalDateTime seekTo) {
+        return new OccurrenceIterator(dtStart, seekTo);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * 第 periodIndex 个周期内的候选实例（已排序，未做 dtStart/UNTIL/COUNT 过滤）
+     */
+    private List<LocalDateTime> candidates(LocalDateTime dtStart, long periodIndex) {
+        LocalDate startDate = dtStart.toLocalDate();
+        LocalTime time = dtStart.toLocalTime();
+        List<LocalDate> dates = new ArrayList<>(4);
+        long step = periodIndex * interval;
+        switch (frequency) {
+            case DAILY -> {
+                LocalDate date = startDate.plusDays(step);
+                if (matchesMonth(date) && matchesMonthDay(date) && matchesDayFilter(date)) {
+                    dates.add(date);
+                }
+            }
+            case WEEKLY -> {
+                LocalDate weekStart = startDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(step);
+                if (byDay.isEmpty()) {
+                    dates.add(weekStart.with(TemporalAdjusters.nextOrSame(startDate.getDayOfWeek())));
+                } else {
+                    for (WeekdayNum weekday : byDay) {
+                        dates.add(weekStart.with(TemporalAdjusters.nextOrSame(weekday.day())));
+                    }
+                }
+                dates.removeIf(date -> !matchesMonth(date) || !matchesMonthDay(date));
+            }
+            case MONTHLY -> {
+                YearMonth month = YearMonth.from(startDate).plusMonths(step);
+                if (byMonth.isEmpty() || byMonth.contains(month.getMonthValue())) {
+                    addDaysInMonth(month, startDate, dates);
+                }
+            }
+            case YEARLY -> {
+                int year = startDate.getYear() + (int) step;
+                if (byMonth.isEmpty()) {
+                    addDaysInMonth(YearMonth.of(year, startDate.getMonth()), startDate, dates);
+                } else {
+                    for (int month : byMonth) {
+                        addDaysInMonth(YearMonth.of(year, month), startDate, dates);
+                    }
+                }
+            }
+        }
+        List<LocalDateTime> result = new ArrayList<>(dates.size());
+        dates.stream().distinct().sorted().forEach(date -> result.add(date.atTime(time)));
+        return result;
+    }
+
+    private void addDaysInMonth(YearMonth month, LocalDate startDate, List<LocalDate> dates) {
+        if (!byMonthDay.isEmpty()) {
+            for (int day : byMonthDay) {
+                int dayOfMonth = day > 0 ? day : month.lengthOfMonth() + day + 1;
+                if (dayOfMonth >= 1 && dayOfMonth <= month.lengthOfMonth()) {
+                    LocalDate date = month.atDay(dayOfMonth);
+                    // BYMONTHDAY 与 BYDAY 同时出现时 BYDAY 作为过滤条件
+                    if (byDay.isEmpty() || matchesDayFilter(date)) {
+                        dates.add(date);
+                    }
+                }
+            }
+        } else if (!byDay.isEmpty()) {
+            for (WeekdayNum weekday : byDay) {
+                if (weekday.ordinal() == 0) {
+                    for (LocalDate date = month.atDay(1).with(TemporalAdjusters.nextOrSame(weekday.day()));
+                         !date.isAfter(month.atEndOfMonth()); date = date.plusWeeks(1)) {
+                        dates.add(date);
+                    }
+                } else {
+                    LocalDate date = month.atDay(1).with(TemporalAdjusters.dayOfWeekInMonth(weekday.ordinal(), weekday.day()));
+                    if (YearMonth.from(date).equals(month)) {
+                        dates.add(date);
+                    }
+                }
+            }
+        } else if (startDate.getDayOfMonth() <= month.lengthOfMonth()) {
+            // 与 RFC 5545 一致：开始日期在当月不存在（如31日）时跳过该月
+            dates.add(month.atDay(startDate.getDayOfMonth()));
+        }
+    }
+
+    private boolean matchesMonth(LocalDate date) {
+        return byMonth.isEmpty() || byMonth.contains(date.getMonthValue());
+    }
+
+    /**
+     * DAILY/WEEKLY 下 BYMONTHDAY 作为过滤条件，负数从月末倒数（-1 为当月最后一天）
+     */
+    private boolean matchesMonthDay(LocalDate date) {
+        if (byMonthDay.isEmpty()) {
+            return true;
+        }
+        for (int day : byMonthDay) {
+            int dayOfMonth = day > 0 ? day : date.lengthOfMonth() + day + 1;
+            if (dayOfMonth == date.getDayOfMonth()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesDayFilter(LocalDate date) {
+        if (byDay.isEmpty()) {
+            return true;
+        }
+        for (WeekdayNum weekday : byDay) {
+            if (weekday.day() == date.getDayOfWeek()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 估算不早于 seekTo 的第一个周期序号（保守地少估一个周期）
+     */
+    private long firstPeriodNotBefore(LocalDateTime dtStart, LocalDateTime seekTo) {
+        if (seekTo == null || count != null || !seekTo.isAfter(dtStart)) {
+            return 0;
+        }
+        LocalDate from = dtStart.toLocalDate();
+        LocalDate to = seekTo.toLocalDate();
+        long units = switch (frequency) {
+            case DAILY -> ChronoUnit.DAYS.between(from, to);
+            case WEEKLY -> ChronoUnit.WEEKS.between(from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                to.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            case MONTHLY -> ChronoUnit.MONTHS.between(YearMonth.from(from), YearMonth.from(to));
+            case YEARLY -> to.getYear() - from.getYear();
+        };
+        return Math.max(0, units / interval - 1);
+    }
+
+    private static int parsePositive(String name, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // 统一在下面抛出
+        }
+        throw new IllegalArgumentException(name + "必须是正整数: " + value);
+    }
+
+    private static List<Integer> parseIntList(String name, String value, int min, int max) {
+        List<Integer> values = new ArrayList<>();
+        for (String item : value.split(",")) {
+            try {
+                int parsed = Integer.parseInt(item.trim());
+                if (parsed != 0 && parsed >= min && parsed <= max) {
+                    values.add(parsed);
+                    continue;
+                }
+            } catch (NumberFormatException ignored) {
+                // 统一在下面抛出
+            }
+            throw new IllegalArgumentException(name + "取值无效: " + item);
+        }
+        return List.copyOf(values);
+    }
+
+    private static List<WeekdayNum> parseByDay(String value) {
+        List<WeekdayNum> days = new ArrayList<>();
+        for (String item : value.split(",")) {
+            String text = item.trim();
+            if (text.length() < 2) {
+                throw new IllegalArgumentException("BYDAY取值无效: " + item);
+            }
+            DayOfWeek day = switch (text.substring(text.length() - 2)) {
+                case "MO" -> DayOfWeek.MONDAY;
+                case "TU" -> DayOfWeek.TUESDAY;
+                case "WE" -> DayOfWeek.WEDNESDAY;
+                case "TH" -> DayOfWeek.THURSDAY;
+                case "FR" -> DayOfWeek.FRIDAY;
+                case "SA" -> DayOfWeek.SATURDAY;
+                case "SU" -> DayOfWeek.SUNDAY;
+                default -> throw new IllegalArgumentException("BYDAY取值无效: " + item);
+            };
+            int ordinal = 0;
+            String prefix = text.substring(0, text.length() - 2);
+            if (!prefix.isEmpty()) {
+                try {
+                    ordinal = Integer.parseInt(prefix.startsWith("+") ? prefix.substring(1) : prefix);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("BYDAY取值无效: " + item);
+                }
+                if (ordinal == 0 || ordinal < -5 || ordinal > 5) {
+                    throw new IllegalArgumentException("BYDAY取值无效: " + item);
+                }
+            }
+            days.add(new WeekdayNum(ordinal, day));
+        }
+        return List.copyOf(days);
+    }
+
+    /**
+     * BYDAY 中的一项，ordinal 为0表示不带序号
+     */
+    private record WeekdayNum(int ordinal, DayOfWeek day) {
+    }
+
+    private final class OccurrenceIterator implements Iterator<LocalDateTime> {
+
+        private final LocalDateTime dtStart;
+        private long periodIndex;
+        private List<LocalDateTime> buffer = Collections.emptyList();
+        private int bufferPos;
+        private int emitted;
+        private LocalDateTime next;
+        private boolean finished;
+
+        OccurrenceIterator(LocalDateTime dtStart, LocalDateTime seekTo) {
+            this.dtStart = dtStart;
+            this.periodIndex = firstPeriodNotBefore(dtStart, seekTo);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public LocalDateTime next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            LocalDateTime current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            if (finished || (count != null && emitted >= count)) {
+                finished = true;
+                return;
+            }
+            int emptyPeriods = 0;
+            while (bufferPos >= buffer.size()) {
+                if (emptyPeriods++ > MAX_EMPTY_PERIODS) {
+                    finished = true;
+                    return;
+                }
+                buffer = candidates(dtStart, periodIndex++);
+                bufferPos = 0;
+                // 早于 dtStart 的候选不算实例，也不计入 COUNT
+                while (bufferPos < buffer.size() && buffer.get(bufferPos).isBefore(dtStart)) {
+                    bufferPos++;
+                }
+                if (until != null && !buffer.isEmpty() && buffer.get(0).isAfter(until)) {
+                    finished = true;
+                    return;
+                }
+            }
+            LocalDateTime candidate = buffer.get(bufferPos++);
+            if (until != null && candidate.isAfter(until)) {
+                finished = true;
+                return;
+            }
+            emitted++;
+            next = candidate;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.FreeBusyBitmap.FreeRun;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 多日候选时间段搜索
+ * 在若干天内为指定时长的日程寻找候选时间，每天独立栅格化为空闲/忙碌位图并在线程池上并行评估，
+ * 候选按距原定时间的远近、是否在工作时段内、是否留下碎片时间、需要调整的低优先级日程综合打分，
+ * 每天和全局都只用大小为 K 的小顶堆保留得分最高的候选，不对全部候选排序。
+ * 所有时间都是同一时区的本地时间，调用方负责换算。
+ */
+public final class SuggestionSearch {
+
+    private static final double DISTANCE_WEIGHT = 0.4;
+    private static final double PREFERENCE_WEIGHT = 0.2;
+    private static final double FRAGMENTATION_WEIGHT = 0.2;
+    private static final double DISPLACEMENT_WEIGHT = 0.2;
+
+    // 距原定时间多少分钟时距离得分降为一半
+    private static final double DISTANCE_HALF_SCORE_MINUTES = 240;
+
+    // 得分低的在堆顶；得分相同时开始时间晚的在堆顶，先被淘汰
+    private static final Comparator<Candidate> WORST_FIRST = Comparator
+        .comparingDouble(Candidate::score)
+        .thenComparing(Candidate::start, Comparator.reverseOrder());
+
+    private final int granularityMinutes;
+    private final int offHoursMinutes;
+    private final int minUsefulGapMinutes;
+    private final Executor executor;
+
+    /**
+     * @param granularityMinutes 位图粒度
+     * @param offHoursMinutes 工作时段前后允许给出建议的分钟数，这部分时间会降低偏好得分
+     * @param minUsefulGapMinutes 短于该时长的剩余空闲时间视为碎片
+     * @param executor 按天并行评估使用的有界线程池
+     */
+    public SuggestionSearch(int granularityMinutes, int offHoursMinutes, int minUsefulGapMinutes, Executor executor) {
+        this.granularityMinutes = granularityMinutes;
+        this.offHoursMinutes = Math.max(0, offHoursMinutes);
+        this.minUsefulGapMinutes = minUsefulGapMinutes;
+        this.executor = executor;
+    }
+
+    /**
+     * 搜索得分最高的 topK 个候选，按得分降序返回
+     * @param busy 搜索范围内的所有日程，已换算为本地时间
+     */
+    public List<Candidate> search(Query query, List<Busy> busy) {
+        List<CompletableFuture<List<Candidate>>> perDay = new ArrayList<>(query.days().size());
+        for (LocalDate date : query.days()) {
+            perDay.add(CompletableFuture.supplyAsync(() -> searchDay(date, query, busy), executor));
+        }
+
+        PriorityQueue<Candidate> top = new PriorityQueue<>(query.topK() + 1, WORST_FIRST);
+        for (CompletableFuture<List<Candidate>> day : perDay) {
+            for (Candidate candidate : day.join()) {
+                offer(top, candidate, query.topK());
+            }
+        }
+        List<Candidate> result = new ArrayList<>(top);
+        result.sort(WORST_FIRST.reversed());
+        return result;
+    }
+
+    /**
+     * 评估某一天，返回当天得分最高的 topK 个候选
+     */
+    List<Candidate> searchDay(LocalDate date, Query query, List<Busy> busy) {
+        LocalDateTime workStart = date.atTime(query.workStart());
+        LocalDateTime workEnd = query.workEnd().isAfter(query.workStart())
+            ? date.atTime(query.workEnd()) : date.plusDays(1).atTime(query.workEnd());
+        LocalDateTime from = workStart.minusMinutes(offHoursMinutes);
+        LocalDateTime to = workEnd.plusMinutes(offHoursMinutes);
+        long duration = query.durationMinutes();
+
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(from, to, granularityMinutes);
+        if (query.notBefore() != null && query.notBefore().isAfter(from)) {
+            bitmap.markBusy(from, query.notBefore());
+        }
+        // 原定时间段已判定冲突，即使冲突的都是可调整日程也不再作为候选
+        bitmap.markBusy(query.requestedStart(), query.requestedStart().plusMinutes(duration));
+        List<Busy> displaceable = new ArrayList<>();
+        for (Busy block : busy) {
+            LocalDateTime start = block.start().minusMinutes(query.bufferBefore());
+            LocalDateTime end = block.end().plusMinutes(query.bufferAfter());
+            if (!start.isBefore(to) || !end.isAfter(from)) {
+                continue;
+            }
+            if (block.displaceable()) {
+                displaceable.add(new Busy(start, end, true));
+            } else {
+                bitmap.markBusy(start, end);
+            }
+        }
+
+        PriorityQueue<Candidate> top = new PriorityQueue<>(query.topK() + 1, WORST_FIRST);
+        Set<LocalDateTime> seen = new HashSet<>();
+        for (FreeRun run : bitmap.freeRuns(duration)) {
+            LocalDateTime latestStart = run.end().minusMinutes(duration);
+            List<LocalDateTime> starts = new ArrayList<>();
+            // 空闲段开头、结尾、离原定时间最近的位置，以及紧挨可调整日程前后的位置
+            starts.add(run.start());
+            starts.add(latestStart);
+            starts.add(clamp(align(date.atTime(query.requestedStart().toLocalTime())), run.start(), latestStart));
+            for (Busy block : displaceable) {
+                starts.add(clamp(block.end(), run.start(), latestStart));
+                starts.add(clamp(block.start().minusMinutes(duration), run.start(), latestStart));
+            }
+            for (LocalDateTime start : starts) {
+                if (seen.add(start)) {
+                    offer(top, score(start, duration, run, workStart, workEnd, displaceable, query), query.topK());
+                }
+            }
+        }
+        return new ArrayList<>(top);
+    }
+
+    private Candidate score(LocalDateTime start, long duration, FreeRun run,
+                            LocalDateTime workStart, LocalDateTime workEnd, List<Busy> displaceable, Query query) {
+        LocalDateTime end = start.plusMinutes(duration);
+
+        long distanceMinutes = Math.abs(Duration.between(query.requestedStart(), start).toMinutes());
+        double distance = 1 / (1 + distanceMinutes / DISTANCE_HALF_SCORE_MINUTES);
+
+        double preference = (double) overlapMinutes(start, end, workStart, workEnd) / duration;
+
+        // 每在候选前后留下一段用不上的碎片时间扣一半
+        long before = Duration.between(run.start(), start).toMinutes();
+        long after = Duration.between(end, run.end()).toMinutes();
+        int fragments = (before > 0 && before < minUsefulGapMinutes ? 1 : 0)
+            + (after > 0 && after < minUsefulGapMinutes ? 1 : 0);
+        double fragmentation = 1 - 0.5 * fragments;
+
+        long displacedMinutes = 0;
+        for (Busy block : displaceable) {
+            displacedMinutes += overlapMinutes(start, end, block.start(), block.end());
+        }
+        double displacement = 1 - Math.min(1.0, (double) displacedMinutes / duration);
+
+        double score = DISTANCE_WEIGHT * distance + PREFERENCE_WEIGHT * preference
+            + FRAGMENTATION_WEIGHT * fragmentation + DISPLACEMENT_WEIGHT * displacement;
+        return new Candidate(start, end, Math.round(score * 1000) / 1000.0,
+            describe(start, query.requestedStart().toLocalDate(), preference < 1, displacedMinutes > 0));
+    }
+
+    private static String describe(LocalDateTime start, LocalDate requestedDate, boolean offHours, boolean displaces) {
+        long days = ChronoUnit.DAYS.between(requestedDate, start.toLocalDate());
+        LocalTime time = start.toLocalTime();
+        String period = time.isBefore(LocalTime.NOON) ? "上午" : time.isBefore(LocalTime.of(17, 0)) ? "下午" : "傍晚";
+        StringBuilder reason = new StringBuilder(days == 0 ? "当天" : days == 1 ? "第二天" : days + "天后")
+            .append(period).append("空闲时段");
+        if (offHours) {
+            reason.append("（超出工作时间）");
+        }
+        if (displaces) {
+            reason.append("，需调整低优先级日程");
+        }
+        return reason.toString();
+    }
+
+    private static long overlapMinutes(LocalDateTime start, LocalDateTime end, LocalDateTime otherStart, LocalDateTime otherEnd) {
+        LocalDateTime from = start.isAfter(otherStart) ? start : otherStart;
+        LocalDateTime to = end.isBefore(otherEnd) ? end : otherEnd;
+        return Math.max(0, Duration.between(from, to).toMinutes());
+    }
+
+    private LocalDateTime align(LocalDateTime time) {
+        int minuteOfDay = time.getHour() * 60 + time.getMinute();
+        int aligned = Math.round((float) minuteOfDay / granularityMinutes) * granularityMinutes;
+        return time.toLocalDate().atStartOfDay().plusMinutes(aligned);
+    }
+
+    private static LocalDateTime clamp(LocalDateTime time, LocalDateTime min, LocalDateTime max) {
+        return time.isBefore(min) ? min : time.isAfter(max) ? max : time;
+    }
+
+    private static void offer(PriorityQueue<Candidate> top, Candidate candidate, int k) {
+        if (top.size() < k) {
+            top.add(candidate);
+        } else if (WORST_FIRST.compare(candidate, top.peek()) > 0) {
+            top.poll();
+            top.add(candidate);
+        }
+    }
+
+    /**
+     * 搜索条件
+     * @param requestedStart 原定开始时间，[requestedStart, requestedStart + durationMinutes) 不会出现在候选中
+     * @param days 需要评估的日期
+     * @param notBefore 不早于该时间给出建议，为null时不限制
+     */
+    public record Query(LocalDateTime requestedStart, long durationMinutes, List<LocalDate> days,
+                        LocalTime workStart, LocalTime workEnd, int bufferBefore, int bufferAfter,
+                        LocalDateTime notBefore, int topK) {
+    }
+
+    /**
+     * 已有日程占用的时间
+     * @param displaceable 可以为新日程让路的低优先级日程，不阻塞候选，但重叠部分会扣分
+     */
+    public record Busy(LocalDateTime start, LocalDateTime end, boolean displaceable) {
+    }
+
+    /**
+     * 候选时间段 [start, end) 及其得分（0~1）
+     */
+    public record Candidate(LocalDateTime start, LocalDateTime end, double score, String reason) {
+    }
+}
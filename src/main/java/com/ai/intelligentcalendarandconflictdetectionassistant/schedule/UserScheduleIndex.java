@@ -0,0 +1,227 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.CalendarEventMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.EventTimes.Interval;
+import com.ai.intelligentcalendarandconflictdetectionassistant.utils.ExpiringLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 用户日程内存索引
+ * 为活跃用户在内存中维护一份按绝对时间（epoch 秒，按日程自身时区换算）排序的区间索引，冲突检测不再每次访问MySQL。
+ * 索引覆盖 [今天 - lookbackDays, +∞) 范围内未取消的日程，更早的查询直接走数据库。
+ * 重复日程只保存系列本身（不受 lookbackDays 限制，历史查询和已加载用户的多人空闲时间查询也直接复用），
+ * 查询时由 RecurrenceExpander 展开窗口内的实例。
+ * 日程的创建、修改、取消和删除需调用 onEventSaved / onEventDeleted 保持索引一致。
+ */
+@Slf4j
+@Service
+public class UserScheduleIndex {
+
+    static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    private final CalendarEventMapper calendarEventMapper;
+    private final RecurrenceExpander recurrenceExpander;
+    private final ExpiringLruCache<Long, UserSchedule> schedules;
+    private final long lookbackDays;
+    private final ZoneId defaultZone;
+
+    public UserScheduleIndex(CalendarEventMapper calendarEventMapper, RecurrenceExpander recurrenceExpander,
+                             @Value("${schedule.index.max-users:2000}") int maxUsers,
+                             @Value("${schedule.index.idle-minutes:30}") long idleMinutes,
+                             @Value("${schedule.index.lookback-days:7}") long lookbackDays,
+                             @Value("${schedule.default-timezone:UTC}") String defaultTimezone) {
+        this.calendarEventMapper = calendarEventMapper;
+        this.recurrenceExpander = recurrenceExpander;
+        this.lookbackDays = lookbackDays;
+        this.defaultZone = ZoneId.of(defaultTimezone);
+        // 按最近访问时间淘汰空闲用户，总用户数超过上限时淘汰最久未访问的用户
+        this.schedules = new ExpiringLruCache<>(maxUsers, null, Duration.ofMinutes(idleMinutes));
+    }
+
+    /**
+     * 日程和提议时间未指定时区时使用的默认时区
+     */
+    public ZoneId defaultZone() {
+        return defaultZone;
+    }
+
+    /**
+     * 查询与默认时区本地时间 [from, to) 重叠的未取消日程
+     */
+    public List<CalendarEvent> findOverlapping(Long userId, LocalDateTime from, LocalDateTime to) {
+        return findOverlapping(userId, new Interval(EventTimes.toEpochSecond(from, defaultZone),
+                EventTimes.toEpochSecond(to, defaultZone)));
+    }
+
+    /**
+     * 查询与绝对时间区间重叠的未取消日程（重复日程展开为窗口内的实例），按开始时间升序
+     * 前一天开始、跨午夜延续到窗口内的日程同样会被返回
+     */
+    public List<CalendarEvent> findOverlapping(Long userId, Interval window) {
+        UserSchedule schedule = schedules.get(userId, this::load);
+        if (window.start() < schedule.safeFromEpochSecond()) {
+            // 早于索引覆盖范围的历史查询直接走数据库
+            return loadOverlapping(userId, window, schedule.recurring());
+        }
+        List<CalendarEvent> events = schedule.events().overlapping(window.start(), window.end());
+        return withOccurrences(events, schedule.recurring(), window);
+    }
+
+    /**
+     * 用户未取消的重复日程系列（未展开），只在用户索引已驻留内存时返回，否则返回null
+     * 不会为了查询加载用户索引，调用方自行查询数据库，避免一次性查询把冷用户挤进LRU
+     */
+    public List<CalendarEvent> findRecurringIfLoaded(Long userId) {
+        UserSchedule schedule = schedules.getIfPresent(userId);
+        return schedule != null ? schedule.recurring() : null;
+    }
+
+    /**
+     * 查询在指定时刻（epoch 秒）正在进行的未取消日程
+     */
+    public List<CalendarEvent> findAt(Long userId, long epochSecond) {
+        return findOverlapping(userId, new Interval(epochSecond, epochSecond + 1));
+    }
+
+    /**
+     * 直接从数据库查询与窗口重叠的普通日程，并展开已缓存的重复日程系列
+     * 数据库中是各日程时区的本地时间，先按最大时区偏移放宽窗口粗筛，再按绝对时间精确过滤
+     */
+    private List<CalendarEvent> loadOverlapping(Long userId, Interval window, List<CalendarEvent> recurring) {
+        LocalDateTime localFrom = EventTimes.localLowerBound(window.start());
+        LocalDateTime localTo = EventTimes.localUpperBound(window.end());
+        List<CalendarEvent> events = calendarEventMapper.findOverlappingByUserId(userId, localFrom, localTo,
+                CalendarEvent.Status.CANCELLED);
+        events.removeIf(event -> RecurrenceExpander.isRecurring(event)
+                || !EventTimes.intervalOf(event, defaultZone).overlaps(window));
+        return withOccurrences(events, recurring, window);
+    }
+
+    private List<CalendarEvent> withOccurrences(List<CalendarEvent> events, List<CalendarEvent> recurring,
+                                                Interval window) {
+        if (recurring.isEmpty()) {
+            return events;
+        }
+        // 重复规则按日程自身时区的本地时间展开，夏令时前后实例的本地时刻保持不变
+        List<CalendarEvent> occurrences = recurrenceExpander.expandAll(recurring,
+                EventTimes.localLowerBound(window.start()), EventTimes.localUpperBound(window.end()));
+        occurrences.removeIf(occurrence -> !EventTimes.intervalOf(occurrence, defaultZone).overlaps(window));
+        if (occurrences.isEmpty()) {
+            return events;
+        }
+        List<CalendarEvent> merged = new ArrayList<>(events.size() + occurrences.size());
+        merged.addAll(events);
+        merged.addAll(occurrences);
+        merged.sort(Comparator.comparingLong(event -> EventTimes.startEpochSecond(event, defaultZone)));
+        return merged;
+    }
+
+    /**
+     * 日程创建或修改后调用，索引中已存在的同ID日程会被替换，已取消的日程会被移除
+     */
+    public void onEventSaved(CalendarEvent event) {
+        if (event == null || event.getUserId() == null) {
+            return;
+        }
+        recurrenceExpander.evict(event.getId());
+        UserSchedule updated = schedules.computeIfPresent(event.getUserId(), (userId, schedule) -> {
+            IntervalIndex<CalendarEvent> events = schedule.events()
+                    .without(existing -> Objects.equals(existing.getId(), event.getId()));
+            List<CalendarEvent> recurring = withoutEvent(schedule.recurring(), event.getId());
+            if (event.getStatus() != CalendarEvent.Status.CANCELLED) {
+                if (RecurrenceExpander.isRecurring(event)) {
+                    recurring.add(event);
+                } else if (event.getEndTime().isAfter(schedule.coveredFrom())) {
+                    events = events.with(event, EventTimes.startEpochSecond(event, defaultZone),
+                            EventTimes.endEpochSecond(event, defaultZone));
+                }
+            }
+            return new UserSchedule(schedule.coveredFrom(), events, List.copyOf(recurring));
+        });
+        if (updated == null) {
+            // 用户索引未加载（或正在加载），丢弃可能已过时的加载结果
+            schedules.invalidate(event.getUserId());
+        }
+    }
+
+    /**
+     * 日程删除后调用
+     */
+    public void onEventDeleted(Long userId, Long eventId) {
+        if (userId == null) {
+            return;
+        }
+        recurrenceExpander.evict(eventId);
+        UserSchedule updated = schedules.computeIfPresent(userId, (id, schedule) -> new UserSchedule(
+                schedule.coveredFrom(),
+                schedule.events().without(existing -> Objects.equals(existing.getId(), eventId)),
+                List.copyOf(withoutEvent(schedule.recurring(), eventId))));
+        if (updated == null) {
+            schedules.invalidate(userId);
+        }
+    }
+
+    /**
+     * 使用户索引失效，下次查询时重新加载
+     */
+    public void invalidate(Long userId) {
+        schedules.invalidate(userId);
+    }
+
+    /**
+     * 当前驻留内存的用户数
+     */
+    public int residentUsers() {
+        return schedules.size();
+    }
+
+    private UserSchedule load(Long userId) {
+        // coveredFrom 与数据库中的日程时间比较，按默认时区取“今天”，与 JVM 时区无关
+        LocalDateTime coveredFrom = LocalDate.now(defaultZone).minusDays(lookbackDays).atStartOfDay();
+        List<CalendarEvent> events = calendarEventMapper.findOverlappingByUserId(userId, coveredFrom, FAR_FUTURE,
+                CalendarEvent.Status.CANCELLED);
+        events.removeIf(RecurrenceExpander::isRecurring);
+        List<CalendarEvent> recurring = calendarEventMapper.findRecurringByUserId(userId, FAR_FUTURE,
+                CalendarEvent.Status.CANCELLED);
+        log.info("加载用户 {} 的日程索引，共 {} 个日程，{} 个重复日程", userId, events.size(), recurring.size());
+        return new UserSchedule(coveredFrom, IntervalIndex.build(events,
+                event -> EventTimes.startEpochSecond(event, defaultZone),
+                event -> EventTimes.endEpochSecond(event, defaultZone)), List.copyOf(recurring));
+    }
+
+    private static List<CalendarEvent> withoutEvent(List<CalendarEvent> events, Long eventId) {
+        List<CalendarEvent> remaining = new ArrayList<>(events);
+        remaining.removeIf(existing -> Objects.equals(existing.getId(), eventId));
+        return remaining;
+    }
+
+    /**
+     * 单个用户的索引快照
+     * @param coveredFrom 索引覆盖的起始时间（数据库本地时间）
+     * @param events 按 epoch 秒索引的日程区间
+     * @param recurring 重复日程系列
+     */
+    record UserSchedule(LocalDateTime coveredFrom, IntervalIndex<CalendarEvent> events,
+                        List<CalendarEvent> recurring) {
+
+        /**
+         * 任意时区的日程都已加载的最早绝对时间
+         */
+        long safeFromEpochSecond() {
+            return coveredFrom.toEpochSecond(ZoneOffset.UTC) + EventTimes.MAX_ZONE_OFFSET.getSeconds();
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.springframework.core.NestedExceptionUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.Authentication;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
@@ -506,6 +507,60 @@ public class BookingTools {
 		};
 	}
 
+	/**
+	 * 共同空闲时间查询不校验当前用户与参会人的关系，可以读到任意用户的忙闲（不含日程内容），
+	 * 参会人数由 ConflictDetectionServiceImpl.MAX_ATTENDEES 限制
+	 */
+	public record CommonFreeSlotsToolRequest(List<Long> userIds, String startDate, String endDate, Integer duration) {
+	}
+
+	@Bean
+	@Description("查找多个参会人的共同空闲时间，userIds为其他参会人的用户ID（最多49位），日期格式yyyy-MM-dd，duration为分钟数")
+	public Function<CommonFreeSlotsToolRequest, String> findCommonFreeSlots() {
+		return request -> {
+			try {
+				log.info("开始查找共同空闲时间，请求参数: userIds={}, startDate={}, endDate={}, duration={}",
+						request.userIds(), request.startDate(), request.endDate(), request.duration());
+
+				Long userId = getCurrentUserId();
+				if (userId == null) {
+					userId = 3L; // 默认用户ID
+					log.warn("无法从认证上下文获取用户ID，使用默认用户ID: {}", userId);
+				} else {
+					log.info("成功获取当前用户ID: {}", userId);
+				}
+
+				// 发起人自动加入参会人
+				List<Long> userIds = new ArrayList<>();
+				userIds.add(userId);
+				if (request.userIds() != null) {
+					userIds.addAll(request.userIds());
+				}
+				LocalDate startDate = LocalDate.parse(request.startDate());
+				LocalDate endDate = request.endDate() != null ? LocalDate.parse(request.endDate()) : startDate;
+				int duration = request.duration() != null ? request.duration() : 60;
+
+				List<TimeSuggestion> slots = conflictDetectionServiceImpl.findCommonFreeSlots(userIds,
+						startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), duration, 5);
+
+				StringBuilder result = new StringBuilder();
+				result.append("共同空闲时间:\n");
+				if (slots.isEmpty()) {
+					result.append("- 暂无所有参会人都有空的时间段\n");
+				} else {
+					slots.forEach(slot -> result.append(String.format("- %s %s 到 %s (置信度: %.0f%%)\n",
+							slot.getDate(), slot.getStartTime(), slot.getEndTime(), slot.getConfidence() * 100)));
+				}
+
+				log.info("成功查找共同空闲时间: {}", result);
+				return result.toString();
+			} catch (Exception e) {
+				log.error("查找共同空闲时间失败: ", e);
+				return "查找共同空闲时间失败: " + e.getMessage();
+			}
+		};
+	}
+
 	/**
 	 * 获取当前登录用户的ID
 	 * @return 当前用户ID，如果无法获取返回null
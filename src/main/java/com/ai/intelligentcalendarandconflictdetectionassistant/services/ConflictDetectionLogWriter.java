@@ -0,0 +1,205 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConflictDetectionLogMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConflictDetectionLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冲突检测日志异步批量写入器
+ * 冲突检测只把日志放入有界队列，后台线程每攒够 batch-size 条或距本批第一条超过 flush-interval-ms 时
+ * 用一条多行 INSERT 写入数据库，检测请求的响应时间不再包含数据库写入。
+ * 队列满时丢弃新日志并计数；应用关闭时停止接收并把队列中剩余的日志全部写完。
+ */
+@Slf4j
+@Component
+public class ConflictDetectionLogWriter implements SmartLifecycle {
+
+    private final ConflictDetectionLogMapper conflictDetectionLogMapper;
+    private final BlockingQueue<ConflictDetectionLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long shutdownTimeoutMillis;
+
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ConflictDetectionLogWriter(ConflictDetectionLogMapper conflictDetectionLogMapper,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${schedule.conflict-log.queue-capacity:10000}") int queueCapacity,
+                                      @Value("${schedule.conflict-log.batch-size:200}") int batchSize,
+                                      @Value("${schedule.conflict-log.flush-interval-ms:500}") long flushIntervalMillis,
+                                      @Value("${schedule.conflict-log.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.conflictDetectionLogMapper = conflictDetectionLogMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+
+        Gauge.builder("conflict.log.queue.depth", queue, BlockingQueue::size)
+            .description("等待写入的冲突检测日志数")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("conflict.log.dropped")
+            .description("队列已满被丢弃的冲突检测日志数")
+            .register(meterRegistry);
+        this.writtenCounter = Counter.builder("conflict.log.written")
+            .description("已写入数据库的冲突检测日志数")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("conflict.log.failed")
+            .description("批量写入失败的冲突检测日志数")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("conflict.log.flush")
+            .description("每批冲突检测日志的写入耗时")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 提交一条日志，不阻塞调用方
+     * @return 队列已满或写入器已停止时返回false，日志被丢弃
+     */
+    public boolean submit(ConflictDetectionLog log) {
+        if (running && queue.offer(log)) {
+            return true;
+        }
+        droppedCounter.increment();
+        return false;
+    }
+
+    /**
+     * 提交多条日志，放不下的部分被丢弃
+     * @return 成功进入队列的条数
+     */
+    public int submitAll(List<ConflictDetectionLog> logs) {
+        int accepted = 0;
+        for (ConflictDetectionLog log : logs) {
+            if (submit(log)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "conflict-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            log.warn("冲突检测日志写入线程未在 {} ms 内结束，剩余 {} 条日志未写入", shutdownTimeoutMillis, queue.size());
+            flusher.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 阶段值越小越晚停止：在Web服务器优雅停机之后才停止，关闭过程中仍在处理的请求产生的日志也能写入
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runFlusher() {
+        List<ConflictDetectionLog> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                collectBatch(batch);
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(batch);
+        // 停止接收后写完队列中剩余的日志
+        while (!Thread.currentThread().isInterrupted() && queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * 等待第一条日志，然后在 flush-interval-ms 内继续收集，直到攒够 batch-size 条
+     */
+    private void collectBatch(List<ConflictDetectionLog> batch) throws InterruptedException {
+        ConflictDetectionLog first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                return;
+            }
+            ConflictDetectionLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<ConflictDetectionLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            conflictDetectionLogMapper.insertBatch(batch);
+            writtenCounter.increment(batch.size());
+            log.debug("批量写入冲突检测日志 {} 条", batch.size());
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("批量写入冲突检测日志失败，丢弃 {} 条", batch.size(), e);
+        } finally {
+            flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import com.ai.intelligentcalendarandconflictdetectionassistant.utils.ExpiringLruCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 热会话对话历史缓存
+ * 每个会话保存最近 turns 条对话的环形缓冲区，冷会话第一次读取时从数据库加载一次，
+ * 之后每次保存对话都追加到缓冲区，每轮对话读取历史不再查询数据库。
+ * 只追加到已经加载过的会话，不会出现只有最新几条、缺少更早历史的不完整条目。
+ * 默认只用进程内缓存（按会话数限制大小、按最后访问时间过期）；redis-enabled=true 时改用Redis列表
+ * conversation-history:&lt;sessionId&gt;（RPUSHX 追加、LTRIM 保留最近 turns 条、带过期时间），
+ * 多个节点共享同一份历史，不存在进程内副本过期不一致的问题。冷会话加载时列表以一个标记元素开头，
+ * 数据库中还没有对话的新会话也会创建列表，之后的对话能追加进来，不必每轮都回到数据库（可能漏掉还在写入队列中的对话）。
+ * 指标：conversation.history.cache（按 result=local/redis/miss 计数，miss 即查询数据库的次数）。
+ */
+@Slf4j
+@Component
+public class ConversationHistoryCache {
+
+    private static final String KEY_PREFIX = "conversation-history:";
+    // 列表中表示"已从数据库加载"的元素，对话序列化后是JSON对象，不会与之相同
+    private static final String LOADED_MARKER = "loaded";
+
+    private final ConversationMapper conversationMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int turns;
+    private final boolean redisEnabled;
+    private final Duration ttl;
+    private final ExpiringLruCache<String, SessionTurns> local;
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    public ConversationHistoryCache(ConversationMapper conversationMapper,
+                                    StringRedisTemplate redisTemplate,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${schedule.conversation-cache.turns:10}") int turns,
+                                    @Value("${schedule.conversation-cache.max-sessions:10000}") int maxSessions,
+                                    @Value("${schedule.conversation-cache.ttl-minutes:30}") long ttlMinutes,
+                                    @Value("${schedule.conversation-cache.redis-enabled:false}") boolean redisEnabled) {
+        this.conversationMapper = conversationMapper;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.turns = Math.max(1, turns);
+        this.redisEnabled = redisEnabled;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.local = new ExpiringLruCache<>(maxSessions, null, ttl);
+
+        this.localHits = Counter.builder("conversation.history.cache").tag("result", "local")
+            .description("对话历史缓存查询次数").register(meterRegistry);
+        this.redisHits = Counter.builder("conversation.history.cache").tag("result", "redis")
+            .description("对话历史缓存查询次数").register(meterRegistry);
+        this.misses = Counter.builder("conversation.history.cache").tag("result", "miss")
+            .description("对话历史缓存查询次数").register(meterRegistry);
+    }
+
+    /**
+     * 每个会话缓存的对话条数，请求更多条时调用方应直接查询数据库
+     */
+    public int capacity() {
+        return turns;
+    }
+
+    /**
+     * 会话最近的对话，按时间倒序，最多 min(limit, capacity) 条；未缓存时从数据库加载并缓存
+     */
+    public List<Conversation> getRecent(String sessionId, int limit) {
+        List<Conversation> newestFirst = redisEnabled ? readRedis(sessionId) : readLocal(sessionId);
+        return newestFirst.size() > limit ? new ArrayList<>(newestFirst.subList(0, limit)) : newestFirst;
+    }
+
+    /**
+     * 对话保存后调用，追加到已缓存的会话；会话未缓存时忽略，下次读取时从数据库加载
+     */
+    public void append(Conversation conversation) {
+        String sessionId = conversation.getSessionId();
+        if (sessionId == null) {
+            return;
+        }
+        if (!redisEnabled) {
+            local.computeIfPresent(sessionId, (key, sessionTurns) -> {
+                sessionTurns.add(conversation);
+                return sessionTurns;
+            });
+            return;
+        }
+        try {
+            byte[] key = bytes(KEY_PREFIX + sessionId);
+            byte[] value = bytes(serialize(conversation));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.listCommands().rPushX(key, value);
+                connection.listCommands().lTrim(key, -turns, -1);
+                connection.keyCommands().expire(key, ttl.toSeconds());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // 追加失败时删除缓存，避免之后读到缺少这一条的历史
+            log.warn("Failed to append conversation to history cache of session {}: {}", sessionId, e.getMessage());
+            invalidate(sessionId);
+        }
+    }
+
+    /**
+     * 会话中的对话被删除时调用
+     */
+    public void invalidate(String sessionId) {
+        local.invalidate(sessionId);
+        if (redisEnabled) {
+            try {
+                redisTemplate.delete(KEY_PREFIX + sessionId);
+            } catch (RuntimeException e) {
+                log.warn("Failed to invalidate history cache of session {}: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+
+    private List<Conversation> readLocal(String sessionId) {
+        SessionTurns cached = local.getIfPresent(sessionId);
+        if (cached != null) {
+            localHits.increment();
+            return cached.newestFirst();
+        }
+        return local.get(sessionId, key -> {
+            misses.increment();
+            SessionTurns loaded = new SessionTurns(turns);
+            List<Conversation> newestFirst = conversationMapper.findRecentBySessionId(key, turns);
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                loaded.add(newestFirst.get(i));
+            }
+            return loaded;
+        }).newestFirst();
+    }
+
+    /**
+     * Redis列表按时间正序保存，LRANGE 一次读出；列表不存在时从数据库加载，连同开头的标记元素整体写入
+     * Redis不可用时直接查询数据库
+     */
+    private List<Conversation> readRedis(String sessionId) {
+        String key = KEY_PREFIX + sessionId;
+        List<String> values;
+        try {
+            values = redisTemplate.opsForList().range(key, 0, -1);
+        } catch (RuntimeException e) {
+            log.warn("History cache lookup failed for session {}, reading database: {}", sessionId, e.getMessage());
+            misses.increment();
+            return conversationMapper.findRecentBySessionId(sessionId, turns);
+        }
+        if (values != null && !values.isEmpty()) {
+            redisHits.increment();
+            List<Conversation> newestFirst = new ArrayList<>(values.size());
+            for (int i = values.size() - 1; i >= 0; i--) {
+                if (!LOADED_MARKER.equals(values.get(i))) {
+                    newestFirst.add(deserialize(values.get(i)));
+                }
+            }
+            return newestFirst;
+        }
+
+        misses.increment();
+        List<Conversation> newestFirst = conversationMapper.findRecentBySessionId(sessionId, turns);
+        // 数据库中没有对话时也写入标记，创建出列表；标记在追加满 turns 条后被 LTRIM 裁掉，此时列表已不会为空
+        List<String> oldestFirst = new ArrayList<>(newestFirst.size() + 1);
+        oldestFirst.add(LOADED_MARKER);
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            oldestFirst.add(serialize(newestFirst.get(i)));
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] rawKey = bytes(key);
+                connection.keyCommands().del(rawKey);
+                for (String value : oldestFirst) {
+                    connection.listCommands().rPush(rawKey, bytes(value));
+                }
+                connection.keyCommands().expire(rawKey, ttl.toSeconds());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to fill history cache of session {}: {}", sessionId, e.getMessage());
+        }
+        return newestFirst;
+    }
+
+    private String serialize(Conversation conversation) {
+        try {
+            return objectMapper.writeValueAsString(conversation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("对话记录序列化失败", e);
+        }
+    }
+
+    private Conversation deserialize(String value) {
+        try {
+            return objectMapper.readValue(value, Conversation.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("对话记录反序列化失败", e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 固定容量的环形缓冲区，写满后覆盖最旧的对话
+     */
+    private static final class SessionTurns {
+
+        private final Conversation[] ring;
+        private int next;
+        private int size;
+
+        SessionTurns(int capacity) {
+            this.ring = new Conversation[capacity];
+        }
+
+        synchronized void add(Conversation conversation) {
+            ring[next] = conversation;
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+
+        synchronized List<Conversation> newestFirst() {
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            List<Conversation> result = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                result.add(ring[(next - i + ring.length) % ring.length]);
+            }
+            return result;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.ai.intelligentcalendarandconflictdetectionassistant.services;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.SessionSummary;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -23,6 +24,14 @@ public interface ConversationService {
      */
     Conversation saveConversation(Long userId, String sessionId, String userMessage, String aiResponse,
                                    String intent, String entities, Boolean successful);
+
+    /**
+     * 异步保存对话记录，立即返回，记录由后台线程批量写入数据库
+     * 参数同 {@link #saveConversation}
+     * @return 是否已进入写入队列
+     */
+    boolean saveConversationAsync(Long userId, String sessionId, String userMessage, String aiResponse,
+                                  String intent, String entities, Boolean successful);
     
     /**
      * 根据ID查找对话记录
@@ -37,6 +46,14 @@ public interface ConversationService {
      * @return 对话历史列表
      */
     List<Conversation> getConversationHistory(String sessionId);
+
+    /**
+     * 获取会话最近的对话，按时间倒序，只包含用户消息和AI回复等构建对话记忆所需的字段
+     * @param sessionId 会话ID
+     * @param limit 最多返回的条数
+     * @return 对话历史列表
+     */
+    List<Conversation> getRecentConversationHistory(String sessionId, int limit);
     
     /**
      * 根据用户ID获取对话历史
@@ -64,6 +81,17 @@ public interface ConversationService {
      * @return 会话总结列表
      */
     List<SessionSummary> getSessionSummariesByUser(Long userId);
+
+    /**
+     * 分页获取用户的会话总结列表，按最后活动时间倒序（键集分页）
+     * @param userId 用户ID
+     * @param beforeTime 游标：上一页最后一个会话的最后活动时间，为null时返回第一页
+     * @param beforeSessionId 游标：上一页最后一个会话的ID
+     * @param limit 每页会话数
+     * @return 会话总结列表
+     */
+    List<SessionSummary> getSessionSummariesByUser(Long userId, LocalDateTime beforeTime, String beforeSessionId,
+                                                   int limit);
     
     /**
      * 创建新对话会话
@@ -0,0 +1,96 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationSessionMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConversationSession;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 维护 conversation_sessions 会话汇总表
+ * 写入对话的调用方在同一事务中调用 record：同一批对话先在内存中按会话合并，每个会话只执行一条
+ * INSERT ... ON DUPLICATE KEY UPDATE（对话数量累加、首末时间取最小/最大、意图分布累加），
+ * 按会话ID顺序更新，并发批次之间不会因加锁顺序不同而死锁。
+ * 删除对话后调用 refresh 从 conversations 重新计算该会话。本表上线前的历史会话由 upgrade.sql 在部署前一次性补建；
+ * 之后仍没有汇总行的会话（例如补建后旧版本又写入的）在新建汇总行时发现已有更早的对话，改为从 conversations 重新计算。
+ */
+@Component
+public class ConversationSessionRecorder {
+
+    private static final int TITLE_LENGTH = 100;
+
+    private final ConversationSessionMapper conversationSessionMapper;
+
+    public ConversationSessionRecorder(ConversationSessionMapper conversationSessionMapper) {
+        this.conversationSessionMapper = conversationSessionMapper;
+    }
+
+    /**
+     * 把新写入的对话合并到所属会话的汇总行，应在这些对话写入 conversations 之后、同一事务中调用
+     */
+    public void record(List<Conversation> conversations) {
+        Map<String, List<Conversation>> bySession = new TreeMap<>();
+        for (Conversation conversation : conversations) {
+            if (conversation.getSessionId() != null) {
+                bySession.computeIfAbsent(conversation.getSessionId(), key -> new ArrayList<>()).add(conversation);
+            }
+        }
+        for (List<Conversation> sessionConversations : bySession.values()) {
+            upsert(sessionConversations);
+        }
+    }
+
+    /**
+     * 从 conversations 重新计算会话的汇总行，会话已没有对话时删除该行
+     */
+    public void refresh(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        conversationSessionMapper.refresh(sessionId);
+        conversationSessionMapper.deleteIfEmpty(sessionId);
+    }
+
+    private void upsert(List<Conversation> conversations) {
+        Conversation first = conversations.get(0);
+        Conversation last = first;
+        Map<String, Integer> intentCounts = new LinkedHashMap<>();
+        for (Conversation conversation : conversations) {
+            if (conversation.getCreatedAt().isBefore(first.getCreatedAt())) {
+                first = conversation;
+            }
+            if (!conversation.getCreatedAt().isBefore(last.getCreatedAt())) {
+                last = conversation;
+            }
+            if (conversation.getIntent() != null) {
+                intentCounts.merge(conversation.getIntent(), 1, Integer::sum);
+            }
+        }
+
+        ConversationSession session = new ConversationSession();
+        session.setSessionId(first.getSessionId());
+        session.setUserId(first.getUserId());
+        session.setMessageCount(conversations.size());
+        session.setFirstMessageAt(first.getCreatedAt());
+        session.setLastMessageAt(last.getCreatedAt());
+        session.setTitle(title(first.getUserMessage()));
+        session.setLastIntent(last.getIntent());
+        if (conversationSessionMapper.upsert(session, intentCounts) == 1
+                && conversationSessionMapper.countConversations(session.getSessionId()) > conversations.size()) {
+            // 新建了汇总行，但会话还有汇总表之外的历史对话，只累加本批会永久少计
+            conversationSessionMapper.refresh(session.getSessionId());
+        }
+    }
+
+    private static String title(String userMessage) {
+        if (userMessage == null || userMessage.length() <= TITLE_LENGTH) {
+            return userMessage;
+        }
+        return userMessage.substring(0, TITLE_LENGTH);
+    }
+}
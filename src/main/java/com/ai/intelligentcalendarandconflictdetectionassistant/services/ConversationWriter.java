@@ -0,0 +1,268 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话记录后写（write-behind）写入器
+ * 流式对话结束时只把记录放入有界队列，不等待数据库；后台线程每攒够 batch-size 条或距本批第一条超过
+ * flush-interval-ms 时用一条多行 INSERT 写入 conversations 表，并在同一事务中更新 conversation_sessions
+ * 会话汇总。写入失败按指数退避重试 max-attempts 次，最后一次仍失败时拆成逐条写入，只放弃写不进去的记录并计数，
+ * 同时使这些记录所属会话的历史缓存失效（提交时已追加到缓存）。队列满时拒绝新记录并计数，调用方（Reactor/Netty 线程）永远不会阻塞。
+ * 应用关闭时停止接收并把队列中剩余的记录全部写完。
+ */
+@Slf4j
+@Component
+public class ConversationWriter implements SmartLifecycle {
+
+    private final ConversationMapper conversationMapper;
+    private final ConversationSessionRecorder sessionRecorder;
+    private final ConversationHistoryCache historyCache;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Conversation> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long shutdownTimeoutMillis;
+
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ConversationWriter(ConversationMapper conversationMapper,
+                              ConversationSessionRecorder sessionRecorder,
+                              ConversationHistoryCache historyCache,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${schedule.conversation-writer.queue-capacity:10000}") int queueCapacity,
+                              @Value("${schedule.conversation-writer.batch-size:100}") int batchSize,
+                              @Value("${schedule.conversation-writer.flush-interval-ms:200}") long flushIntervalMillis,
+                              @Value("${schedule.conversation-writer.max-attempts:3}") int maxAttempts,
+                              @Value("${schedule.conversation-writer.retry-backoff-ms:200}") long retryBackoffMillis,
+                              @Value("${schedule.conversation-writer.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.conversationMapper = conversationMapper;
+        this.sessionRecorder = sessionRecorder;
+        this.historyCache = historyCache;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = Math.max(0, retryBackoffMillis);
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+
+        Gauge.builder("conversation.write.queue.depth", queue, BlockingQueue::size)
+            .description("等待写入的对话记录数")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("conversation.write.dropped")
+            .description("队列已满被拒绝的对话记录数")
+            .register(meterRegistry);
+        this.writtenCounter = Counter.builder("conversation.write.written")
+            .description("已写入数据库的对话记录数")
+            .register(meterRegistry);
+        this.retriedCounter = Counter.builder("conversation.write.retried")
+            .description("批量写入失败后重试的次数")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("conversation.write.failed")
+            .description("重试后仍写入失败而放弃的对话记录数")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("conversation.write.flush")
+            .description("每批对话记录的写入耗时（含重试）")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 提交一条对话记录，不阻塞调用方
+     * @return 队列已满或写入器已停止时返回false，记录被丢弃
+     */
+    public boolean submit(Conversation conversation) {
+        if (running && queue.offer(conversation)) {
+            return true;
+        }
+        droppedCounter.increment();
+        log.warn("对话记录写入队列已满或已停止，丢弃会话 {} 的一条记录", conversation.getSessionId());
+        return false;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "conversation-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            log.warn("对话记录写入线程未在 {} ms 内结束，剩余 {} 条记录未写入", shutdownTimeoutMillis, queue.size());
+            flusher.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 阶段值越小越晚停止：在Web服务器优雅停机之后才停止，关闭过程中结束的流式对话也能写入
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runFlusher() {
+        List<Conversation> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                collectBatch(batch);
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(batch);
+        // 停止接收后写完队列中剩余的记录
+        while (!Thread.currentThread().isInterrupted() && queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * 等待第一条记录，然后在 flush-interval-ms 内继续收集，直到攒够 batch-size 条
+     */
+    private void collectBatch(List<Conversation> batch) throws InterruptedException {
+        Conversation first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                return;
+            }
+            Conversation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * 写入一批记录并更新会话汇总（同一事务，失败时整体回滚，重试不会重复写入），失败时等待 retry-backoff-ms × 2^(n-1) 后重试；
+     * 最后一次（或重试期间被中断）仍失败时改为逐条写入，一条坏记录不会连累同批的其他记录
+     */
+    void flush(List<Conversation> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    write(batch);
+                    writtenCounter.increment(batch.size());
+                    log.debug("批量写入对话记录 {} 条", batch.size());
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+                        log.error("批量写入对话记录失败 {} 次，改为逐条写入 {} 条", attempt, batch.size(), e);
+                        writeOneByOne(batch);
+                        return;
+                    }
+                    retriedCounter.increment();
+                    log.warn("批量写入对话记录失败（第 {} 次），稍后重试: {}", attempt, e.getMessage());
+                    try {
+                        Thread.sleep(retryBackoffMillis << (attempt - 1));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Conversation> conversations) {
+        transactionTemplate.executeWithoutResult(status -> {
+            conversationMapper.insertBatch(conversations);
+            sessionRecorder.record(conversations);
+        });
+    }
+
+    /**
+     * 每条记录单独一个事务写入，放弃写入失败的记录；这些记录提交时已追加到历史缓存，
+     * 使其所属会话的缓存失效，下次读取从数据库重新加载，不会读到数据库中并不存在的对话
+     */
+    private void writeOneByOne(List<Conversation> batch) {
+        Set<String> staleSessions = new LinkedHashSet<>();
+        int written = 0;
+        for (Conversation conversation : batch) {
+            try {
+                write(List.of(conversation));
+                written++;
+            } catch (Exception e) {
+                failedCounter.increment();
+                log.error("写入会话 {} 的对话记录失败，丢弃该条: {}", conversation.getSessionId(), e.getMessage());
+                if (conversation.getSessionId() != null) {
+                    staleSessions.add(conversation.getSessionId());
+                }
+            }
+        }
+        writtenCounter.increment(written);
+        for (String sessionId : staleSessions) {
+            historyCache.invalidate(sessionId);
+        }
+        log.info("逐条写入对话记录 {} 条，丢弃 {} 条", written, batch.size() - written);
+    }
+}
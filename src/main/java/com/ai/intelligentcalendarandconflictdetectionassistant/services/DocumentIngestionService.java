@@ -0,0 +1,224 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.IngestionJob;
+import com.ai.intelligentcalendarandconflictdetectionassistant.utils.ExpiringLruCache;
+import com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore.SimpleRedisVectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 文档嵌入导入
+ * 文件切分后每 batch-size 个文本块合并为一次多文本嵌入调用，各批在有界的 embeddingExecutor 上并行执行，
+ * 调用失败按指数退避重试，生成的向量按批用一次流水线写入Redis。
+ * 每个文本块带 source（文件名）、userId（上传用户）、uploadTime（毫秒时间戳）元数据，可用于检索时过滤。
+ * 文本块的ID由上传用户、文件名和内容的哈希生成，同一文件中重复的块只保留一个，重复上传同一文件会覆盖已有文档而不是新增一份；
+ * 向量本身由 {@link com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore.CachingEmbeddingModel} 缓存，不会重复调用嵌入接口。
+ * 大文件以异步任务导入：{@link #submit} 立即返回任务，进度通过 {@link #getJob} 查询。
+ */
+@Slf4j
+@Service
+public class DocumentIngestionService {
+
+    private final VectorStore vectorStore;
+    private final Executor ingestionJobExecutor;
+    private final Executor embeddingExecutor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final ExpiringLruCache<String, IngestionJob> jobs;
+
+    public DocumentIngestionService(VectorStore vectorStore,
+                                    @Qualifier("ingestionJobExecutor") Executor ingestionJobExecutor,
+                                    @Qualifier("embeddingExecutor") Executor embeddingExecutor,
+                                    @Value("${spring.ai.vectorstore.redis.ingestion.batch-size:10}") int batchSize,
+                                    @Value("${spring.ai.vectorstore.redis.ingestion.max-attempts:3}") int maxAttempts,
+                                    @Value("${spring.ai.vectorstore.redis.ingestion.backoff-ms:500}") long backoffMillis,
+                                    @Value("${spring.ai.vectorstore.redis.ingestion.job-ttl-hours:24}") long jobTtlHours) {
+        this.vectorStore = vectorStore;
+        this.ingestionJobExecutor = ingestionJobExecutor;
+        this.embeddingExecutor = embeddingExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+        this.jobs = new ExpiringLruCache<>(1000, Duration.ofHours(jobTtlHours), null);
+    }
+
+    /**
+     * 同步导入，返回写入的文本块数
+     * @param source 来源文件名
+     * @param userId 上传用户，可以为null
+     */
+    public int ingest(Resource resource, String source, Long userId) {
+        List<Document> chunks = split(resource, source, userId);
+        embedAndStore(chunks, count -> { });
+        return chunks.size();
+    }
+
+    /**
+     * 提交异步导入任务
+     * 文件内容在返回前读入内存，请求结束后上传的临时文件可以被清理
+     * @param userId 上传用户，可以为null
+     * @throws IllegalStateException 排队的任务过多
+     */
+    public IngestionJob submit(MultipartFile file, Long userId) throws IOException {
+        byte[] content = file.getBytes();
+        IngestionJob job = new IngestionJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setFileName(file.getOriginalFilename());
+        job.setCreatedAt(LocalDateTime.now());
+        jobs.put(job.getJobId(), job);
+        try {
+            ingestionJobExecutor.execute(() -> run(job, content, userId));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getJobId());
+            throw new IllegalStateException("导入任务过多，请稍后再试");
+        }
+        return job;
+    }
+
+    /**
+     * 查询任务状态，任务不存在或已过期返回null
+     */
+    public IngestionJob getJob(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    private void run(IngestionJob job, byte[] content, Long userId) {
+        job.setStatus(IngestionJob.Status.RUNNING);
+        long start = System.nanoTime();
+        try {
+            List<Document> chunks = split(new ByteArrayResource(content), job.getFileName(), userId);
+            job.setTotalChunks(chunks.size());
+            embedAndStore(chunks, job::addEmbeddedChunks);
+            job.setStatus(IngestionJob.Status.COMPLETED);
+            log.info("Ingestion job {} ({}) stored {} chunks in {} ms", job.getJobId(), job.getFileName(),
+                chunks.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            job.setError(e.getMessage());
+            job.setStatus(IngestionJob.Status.FAILED);
+            log.error("Ingestion job {} ({}) failed after {} of {} chunks", job.getJobId(), job.getFileName(),
+                job.getEmbeddedChunks(), job.getTotalChunks(), e);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * 从IO流中读取文件并将文本内容划分成更小的块，按内容去重，附加来源元数据并以内容哈希作为文档ID
+     */
+    private List<Document> split(Resource resource, String source, Long userId) {
+        List<Document> chunks = new TokenTextSplitter().apply(new TikaDocumentReader(resource).read());
+        long uploadTime = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+        List<Document> unique = new ArrayList<>(chunks.size());
+        for (Document chunk : chunks) {
+            String identity = userId + "\n" + source + "\n" + chunk.getContent();
+            String id = UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)).toString();
+            if (!seen.add(id)) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+            if (source != null) {
+                metadata.put("source", source);
+            }
+            if (userId != null) {
+                metadata.put("userId", userId);
+            }
+            metadata.put("uploadTime", uploadTime);
+            unique.add(new Document(id, chunk.getContent(), metadata));
+        }
+        if (unique.size() < chunks.size()) {
+            log.info("Skipped {} duplicate chunks", chunks.size() - unique.size());
+        }
+        return unique;
+    }
+
+    /**
+     * 按批并行生成向量并写入，某一批重试后仍失败时抛出异常，已写入的批次保留
+     * @param progress 每写完一批回调一次写入的文本块数
+     */
+    private void embedAndStore(List<Document> chunks, IntConsumer progress) {
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < chunks.size(); from += batchSize) {
+            List<Document> batch = chunks.subList(from, Math.min(from + batchSize, chunks.size()));
+            batches.add(CompletableFuture.runAsync(() -> {
+                store(batch);
+                progress.accept(batch.size());
+            }, embeddingExecutor));
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void store(List<Document> batch) {
+        if (!(vectorStore instanceof SimpleRedisVectorStore redisVectorStore)) {
+            withRetry(() -> {
+                vectorStore.add(batch);
+                return null;
+            });
+            return;
+        }
+        List<String> texts = new ArrayList<>(batch.size());
+        for (Document document : batch) {
+            texts.add(document.getContent());
+        }
+        List<float[]> embeddings = withRetry(() -> redisVectorStore.embed(texts));
+        redisVectorStore.add(batch, embeddings);
+    }
+
+    /**
+     * 失败后等待 backoff-ms、2×backoff-ms…（加最多50%随机抖动）重试，共尝试 max-attempts 次
+     */
+    private <T> T withRetry(Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long delay = (backoffMillis << (attempt - 1));
+                delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                log.warn("Embedding call failed (attempt {}/{}), retrying in {} ms: {}",
+                    attempt, maxAttempts, delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.UserPreferenceMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.UserPreference;
+import com.ai.intelligentcalendarandconflictdetectionassistant.utils.ExpiringLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户偏好缓存
+ * 按用户ID缓存 user_preferences，写入后过期并限制条目数；同一用户的并发未命中只查询一次，
+ * 首次使用的用户也只插入一次默认偏好。
+ * 应用内没有修改偏好的入口，直接修改数据库中的偏好后，各实例最多在 ttl-minutes 后读到新值；
+ * 以后增加修改入口时，写入数据库后调用 {@link #invalidate}。
+ */
+@Slf4j
+@Component
+public class UserPreferenceCache {
+
+    private final UserPreferenceMapper userPreferenceMapper;
+    private final ExpiringLruCache<Long, UserPreference> preferences;
+
+    public UserPreferenceCache(UserPreferenceMapper userPreferenceMapper,
+                               @Value("${schedule.preference-cache.max-size:10000}") int maxSize,
+                               @Value("${schedule.preference-cache.ttl-minutes:10}") long ttlMinutes) {
+        this.userPreferenceMapper = userPreferenceMapper;
+        this.preferences = new ExpiringLruCache<>(maxSize, Duration.ofMinutes(ttlMinutes), null);
+    }
+
+    /**
+     * 获取用户偏好，不存在时创建并保存默认偏好
+     */
+    public UserPreference get(Long userId) {
+        return preferences.get(userId, this::loadOrCreate);
+    }
+
+    /**
+     * 批量获取用户偏好，只对未命中的用户查询一次数据库
+     * 没有偏好记录的用户返回默认偏好，但不写入数据库也不缓存
+     */
+    public Map<Long, UserPreference> getAll(List<Long> userIds) {
+        Map<Long, UserPreference> result = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long userId : userIds) {
+            UserPreference cached = preferences.getIfPresent(userId);
+            if (cached != null) {
+                result.put(userId, cached);
+            } else {
+                misses.add(userId);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (UserPreference preference : userPreferenceMapper.findByUserIds(misses)) {
+                if (result.putIfAbsent(preference.getUserId(), preference) == null) {
+                    preferences.put(preference.getUserId(), preference);
+                }
+            }
+            for (Long userId : misses) {
+                result.computeIfAbsent(userId, UserPreferenceCache::defaultPreference);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 使本实例缓存的用户偏好失效，其他实例仍要等到过期
+     */
+    public void invalidate(Long userId) {
+        preferences.invalidate(userId);
+    }
+
+    /**
+     * 构造默认用户偏好（不写入数据库）
+     */
+    public static UserPreference defaultPreference(Long userId) {
+        UserPreference preference = new UserPreference();
+        preference.setUserId(userId);
+        preference.setWorkDayStart(LocalTime.of(9, 0));
+        preference.setWorkDayEnd(LocalTime.of(17, 0));
+        preference.setIncludeWeekends(false);
+        preference.setDefaultEventDuration(60);
+        preference.setBufferTimeBeforeEvents(15);
+        preference.setBufferTimeAfterEvents(15);
+        preference.setDefaultReminderTime(30);
+        preference.setTheme("light");
+        preference.setNotificationEnabled(true);
+        preference.setEmailNotifications(true);
+
+        LocalDateTime now = LocalDateTime.now();
+        preference.setCreatedAt(now);
+        preference.setUpdatedAt(now);
+        return preference;
+    }
+
+    private UserPreference loadOrCreate(Long userId) {
+        return userPreferenceMapper.findByUserId(userId).orElseGet(() -> createDefault(userId));
+    }
+
+    /**
+     * 创建默认用户偏好；其他实例抢先插入时（user_id 唯一键冲突）改为读取已有记录
+     */
+    private UserPreference createDefault(Long userId) {
+        UserPreference preference = defaultPreference(userId);
+        try {
+            userPreferenceMapper.insert(preference);
+            log.info("为用户 {} 创建默认偏好设置", userId);
+            return preference;
+        } catch (DuplicateKeyException e) {
+            return userPreferenceMapper.findByUserId(userId).orElse(preference);
+        }
+    }
+}
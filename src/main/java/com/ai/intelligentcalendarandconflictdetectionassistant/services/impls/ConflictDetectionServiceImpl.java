@@ -6,35 +6,88 @@ import com.ai.intelligentcalendarandconflictdetectionassistant.request.SmartSugg
 import com.ai.intelligentcalendarandconflictdetectionassistant.response.SmartSuggestionsResponse;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.TimeSuggestion;
 import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.CalendarEventMapper;
-import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConflictDetectionLogMapper;
-import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.UserPreferenceMapper;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConflictDetectionLog;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConflictDetectionLog.Severity;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.UserPreference;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.ConflictEngine;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.EventTimes;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.EventTimes.Interval;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.FreeBusyBitmap;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.FreeBusyBitmap.FreeRun;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.RecurrenceExpander;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.SuggestionSearch;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.UserScheduleIndex;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConflictDetectionLogWriter;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.UserPreferenceCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class ConflictDetectionServiceImpl {
 
+    // 多人共同空闲时间查找的最大窗口天数
+    private static final int MAX_COMMON_WINDOW_DAYS = 31;
+
+    // 批量冲突检测单次最多的候选时间段数
+    public static final int MAX_BATCH_SIZE = 50;
+
+    // 共同空闲时间查找最多的参会人数（含发起人）
+    public static final int MAX_ATTENDEES = 50;
+
+    // 短于该时长的剩余空闲时间视为难以利用的碎片
+    private static final int MIN_USEFUL_GAP_MINUTES = 30;
+
+    // 建议按置信度降序，置信度相同时时间早的在前
+    private static final Comparator<TimeSuggestion> SUGGESTION_ORDER =
+        Comparator.comparingDouble(TimeSuggestion::getConfidence).reversed()
+            .thenComparing(TimeSuggestion::getDate)
+            .thenComparing(TimeSuggestion::getStartTime);
+
+    @Value("${schedule.freebusy.granularity-minutes:5}")
+    private int freeBusyGranularityMinutes;
+
+    @Value("${schedule.suggestion.horizon-days:14}")
+    private int suggestionHorizonDays;
+
+    @Value("${schedule.suggestion.top-k:5}")
+    private int suggestionTopK;
+
+    @Value("${schedule.suggestion.off-hours-minutes:60}")
+    private int suggestionOffHoursMinutes;
+
+    @Autowired
+    @Qualifier("suggestionExecutor")
+    private Executor suggestionExecutor;
+
+    @Autowired
+    private UserScheduleIndex userScheduleIndex;
+
     @Autowired
     private CalendarEventMapper calendarEventMapper;
 
     @Autowired
-    private UserPreferenceMapper userPreferenceMapper;
+    private RecurrenceExpander recurrenceExpander;
+
+    @Autowired
+    private UserPreferenceCache userPreferenceCache;
 
     @Autowired
-    private ConflictDetectionLogMapper conflictDetectionLogMapper;
+    private ConflictDetectionLogWriter conflictDetectionLogWriter;
 
     /**
      * 检测日程冲突
@@ -42,33 +95,152 @@ public class ConflictDetectionServiceImpl {
     public ConflictCheckResponse checkConflict(ConflictCheckRequest request, Long userId) {
         log.info("开始检测用户 {} 的日程冲突: {} {}", userId, request.getProposedDate(), request.getStartTime());
         
-        // 获取用户当天的现有日程
-        List<CalendarEvent> existingEvents = getEventsByDate(userId, request.getProposedDate());
-        log.info("用户 {} 在 {} 有 {} 个现有日程", userId, request.getProposedDate(), existingEvents.size());
+        // 提议时间段换算为绝对时间，结束不晚于开始时视为跨午夜
+        ZoneId zone = zoneOf(request);
+        Interval proposal = proposalOf(request, zone);
+        // 冲突判定与生成建议使用同一组用户偏好中的缓冲时间
+        UserPreference preferences = getUserPreferences(userId);
+        int bufferBefore = minutesOrZero(preferences.getBufferTimeBeforeEvents());
+        int bufferAfter = minutesOrZero(preferences.getBufferTimeAfterEvents());
         
-        // 转换时间格式
-        LocalTime proposedStart = request.getStartTime();
-        LocalTime proposedEnd = request.getEndTime();
+        // 获取用户当天的现有日程（包括前一天开始、延续到当天的日程）
+        List<CalendarEvent> existingEvents = userScheduleIndex.findOverlapping(userId,
+            checkWindow(request, proposal, zone, bufferBefore, bufferAfter));
+        log.info("用户 {} 在 {} 有 {} 个现有日程", userId, request.getProposedDate(), existingEvents.size());
         
         // 查找冲突的日程
-        List<CalendarEvent> conflicts = findConflictingEvents(existingEvents, proposedStart, proposedEnd);
+        List<CalendarEvent> conflicts = ConflictEngine.findConflicts(existingEvents, proposal,
+            bufferBefore, bufferAfter, defaultZone());
         log.info("检测到 {} 个冲突日程", conflicts.size());
         
         // 计算冲突严重程度
-        Severity severity = calculateSeverity(conflicts, proposedStart, proposedEnd);
+        Severity severity = calculateSeverity(conflicts, proposal);
         
         // 生成建议
         List<TimeSuggestion> suggestions = conflicts.isEmpty() ? 
-            Collections.emptyList() : generateSuggestions(request, existingEvents, userId);
+            Collections.emptyList() : generateSuggestions(request, proposal, zone, preferences, userId);
         
         // 记录冲突检测日志
         recordConflictDetectionLog(userId, request, !conflicts.isEmpty(), conflicts.size(), severity);
         
-        // 转换冲突事件为BookingDetails
-        // List<BookingDetails> conflictDetails = conflicts.stream()
-        //     .map(this::convertToBookingDetails)
-        //     .collect(Collectors.toList());
-        
+        return buildConflictCheckResponse(conflicts, severity, suggestions);
+    }
+
+    /**
+     * 批量检测日程冲突
+     * 候选时间段的检测窗口（提议日期整天）按时间排序后合并为若干连续簇，每个簇只读取一次日程，
+     * 相隔很远的日期不会把中间的全部日程一起加载；簇内用扫描线算法逐个判定，日志批量写入
+     * @return 与请求顺序一一对应的检测结果
+     */
+    public List<ConflictCheckResponse> checkConflicts(List<ConflictCheckRequest> requests, Long userId) {
+        if (requests == null || requests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("单次最多检测" + MAX_BATCH_SIZE + "个候选时间段");
+        }
+        log.info("开始批量检测用户 {} 的日程冲突，共 {} 个候选时间段", userId, requests.size());
+        UserPreference preferences = getUserPreferences(userId);
+        int bufferBefore = minutesOrZero(preferences.getBufferTimeBeforeEvents());
+        int bufferAfter = minutesOrZero(preferences.getBufferTimeAfterEvents());
+
+        List<ZoneId> zones = new ArrayList<>(requests.size());
+        List<Interval> proposals = new ArrayList<>(requests.size());
+        List<Interval> windows = new ArrayList<>(requests.size());
+        for (ConflictCheckRequest request : requests) {
+            if (request == null || request.getProposedDate() == null
+                    || request.getStartTime() == null || request.getEndTime() == null) {
+                throw new IllegalArgumentException("提议日期、开始时间和结束时间不能为空");
+            }
+            ZoneId zone = zoneOf(request);
+            Interval proposal = proposalOf(request, zone);
+            zones.add(zone);
+            proposals.add(proposal);
+            windows.add(checkWindow(request, proposal, zone, bufferBefore, bufferAfter));
+        }
+
+        List<List<CalendarEvent>> conflictsPerRequest = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        Integer[] order = new Integer[requests.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> windows.get(i).start()));
+        int clusters = 0;
+        for (int first = 0; first < order.length; ) {
+            // 与当前簇重叠或相接（相邻日期）的窗口并入同一簇
+            long clusterStart = windows.get(order[first]).start();
+            long clusterEnd = windows.get(order[first]).end();
+            int next = first + 1;
+            while (next < order.length && windows.get(order[next]).start() <= clusterEnd) {
+                clusterEnd = Math.max(clusterEnd, windows.get(order[next]).end());
+                next++;
+            }
+            List<Interval> clusterProposals = new ArrayList<>(next - first);
+            for (int k = first; k < next; k++) {
+                clusterProposals.add(proposals.get(order[k]));
+            }
+            List<CalendarEvent> clusterEvents = userScheduleIndex.findOverlapping(userId,
+                new Interval(clusterStart, clusterEnd));
+            List<List<CalendarEvent>> clusterConflicts = ConflictEngine.sweep(clusterProposals, clusterEvents,
+                bufferBefore, bufferAfter, defaultZone());
+            for (int k = first; k < next; k++) {
+                conflictsPerRequest.set(order[k], clusterConflicts.get(k - first));
+            }
+            clusters++;
+            first = next;
+        }
+        log.info("用户 {} 的 {} 个候选时间段分为 {} 个窗口检测", userId, requests.size(), clusters);
+
+        List<ConflictCheckResponse> responses = new ArrayList<>(requests.size());
+        List<ConflictDetectionLog> logs = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ConflictCheckRequest request = requests.get(i);
+            List<CalendarEvent> conflicts = conflictsPerRequest.get(i);
+            Severity severity = calculateSeverity(conflicts, proposals.get(i));
+
+            List<TimeSuggestion> suggestions = Collections.emptyList();
+            if (!conflicts.isEmpty()) {
+                suggestions = generateSuggestions(request, proposals.get(i), zones.get(i), preferences, userId);
+            }
+
+            logs.add(buildConflictDetectionLog(userId, request, !conflicts.isEmpty(), conflicts.size(), severity));
+            responses.add(buildConflictCheckResponse(conflicts, severity, suggestions));
+        }
+
+        recordConflictDetectionLogs(logs);
+        return responses;
+    }
+
+    private ZoneId defaultZone() {
+        return userScheduleIndex.defaultZone();
+    }
+
+    /**
+     * 提议时间段使用的时区，请求未指定或无效时使用默认时区
+     */
+    private ZoneId zoneOf(ConflictCheckRequest request) {
+        return EventTimes.zoneOf(request.getTimezone(), defaultZone());
+    }
+
+    private Interval proposalOf(ConflictCheckRequest request, ZoneId zone) {
+        return EventTimes.proposal(request.getProposedDate(), request.getStartTime(), request.getEndTime(), zone);
+    }
+
+    /**
+     * 冲突检测需要加载的窗口：提议日期整天，加上含缓冲的提议时间段（跨午夜时延伸到第二天）
+     */
+    private Interval checkWindow(ConflictCheckRequest request, Interval proposal, ZoneId zone,
+                                 int bufferBefore, int bufferAfter) {
+        Interval day = EventTimes.day(request.getProposedDate(), zone);
+        Interval buffered = ConflictEngine.buffered(proposal, bufferBefore, bufferAfter);
+        return new Interval(Math.min(day.start(), buffered.start()), Math.max(day.end(), buffered.end()));
+    }
+
+    /**
+     * 构造冲突检测响应
+     */
+    private ConflictCheckResponse buildConflictCheckResponse(List<CalendarEvent> conflicts, Severity severity,
+                                                             List<TimeSuggestion> suggestions) {
         String message = conflicts.isEmpty() ? 
             "该时间段无冲突，可以安排日程" : 
             String.format("检测到 %d 个冲突日程，建议调整时间", conflicts.size());
@@ -92,11 +264,15 @@ public class ConflictDetectionServiceImpl {
         UserPreference preferences = getUserPreferences(userId);
         
         // 获取当天的日程
-        List<CalendarEvent> dayEvents = getEventsByDate(userId, request.getDate());
+        List<CalendarEvent> dayEvents = getEventsByDate(userId, request.getDate(), defaultZone());
         
-        // 查找最佳时间段
+        // 在当天的真实空闲段中查找最佳时间段
         List<TimeSuggestion> optimalSlots = findOptimalTimeSlots(
-            request.getDate(), request.getDuration(), dayEvents, preferences);
+            findFreeRuns(request.getDate(), dayEvents, preferences, request.getDuration(), defaultZone()),
+            request.getDuration())
+            .stream()
+            .limit(5)
+            .collect(Collectors.toList());
         
         return SmartSuggestionsResponse.builder()
             .date(request.getDate())
@@ -107,92 +283,122 @@ public class ConflictDetectionServiceImpl {
     }
 
     /**
-     * 获取用户偏好（如果不存在则创建默认偏好）
+     * 查找多个用户在时间窗口内的共同空闲时间段
+     * 所有参会人的日程（普通日程、重复日程系列）和偏好按参会人批量查询，按各自的工作时段和缓冲时间标记到同一张位图上（位或），
+     * 剩下的空闲段即所有人都有空的时间，按日期先后和碎片程度排序。
+     * 不校验调用方与参会人的关系：任何已登录用户都可以查询任意用户的忙闲（只返回共同空闲段，不返回日程内容），
+     * 参会人数限制为 MAX_ATTENDEES，避免一次请求遍历大量用户的日程。
      */
-    private UserPreference getUserPreferences(Long userId) {
-        return userPreferenceMapper.findByUserId(userId)
-            .orElseGet(() -> createDefaultUserPreference(userId));
-    }
+    public List<TimeSuggestion> findCommonFreeSlots(List<Long> userIds, LocalDateTime windowStart,
+                                                    LocalDateTime windowEnd, long duration, int limit) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("参会人不能为空");
+        }
+        if (duration <= 0) {
+            throw new IllegalArgumentException("时长必须大于0");
+        }
+        if (windowStart == null || windowEnd == null || !windowEnd.isAfter(windowStart)) {
+            throw new IllegalArgumentException("时间窗口无效");
+        }
+        if (windowEnd.isAfter(windowStart.plusDays(MAX_COMMON_WINDOW_DAYS))) {
+            throw new IllegalArgumentException("时间窗口不能超过" + MAX_COMMON_WINDOW_DAYS + "天");
+        }
+        List<Long> attendees = userIds.stream().distinct().collect(Collectors.toList());
+        if (attendees.size() > MAX_ATTENDEES) {
+            throw new IllegalArgumentException("参会人最多" + MAX_ATTENDEES + "位（含发起人）");
+        }
+        log.info("查找 {} 位参会人在 {} ~ {} 的共同空闲时间，时长 {} 分钟", attendees.size(), windowStart, windowEnd, duration);
 
-    /**
-     * 创建默认用户偏好
-     */
-    private UserPreference createDefaultUserPreference(Long userId) {
-        UserPreference preference = new UserPreference();
-        preference.setUserId(userId);
-        preference.setWorkDayStart(LocalTime.of(9, 0));
-        preference.setWorkDayEnd(LocalTime.of(17, 0));
-        preference.setIncludeWeekends(false);
-        preference.setDefaultEventDuration(60);
-        preference.setBufferTimeBeforeEvents(15);
-        preference.setBufferTimeAfterEvents(15);
-        preference.setDefaultReminderTime(30);
-        preference.setTheme("light");
-        preference.setNotificationEnabled(true);
-        preference.setEmailNotifications(true);
-        
-        LocalDateTime now = LocalDateTime.now();
-        preference.setCreatedAt(now);
-        preference.setUpdatedAt(now);
-        
-        userPreferenceMapper.insert(preference);
-        log.info("为用户 {} 创建默认偏好设置", userId);
-        return preference;
-    }
+        Map<Long, UserPreference> preferences = userPreferenceCache.getAll(attendees);
+        // 窗口是默认时区的本地时间，日程可能在其他时区，数据库按最大时区偏移放宽窗口粗筛
+        ZoneId zone = defaultZone();
+        LocalDateTime localFrom = EventTimes.localLowerBound(EventTimes.toEpochSecond(windowStart, zone));
+        LocalDateTime localTo = EventTimes.localUpperBound(EventTimes.toEpochSecond(windowEnd, zone));
+        List<CalendarEvent> events = calendarEventMapper.findOverlappingByUserIds(attendees, localFrom, localTo,
+            CalendarEvent.Status.CANCELLED);
+        events.removeIf(RecurrenceExpander::isRecurring);
+        // 日程索引已驻留内存的参会人直接复用其重复日程系列，其余参会人一次批量查询，不为此加载冷用户的索引
+        List<CalendarEvent> recurring = new ArrayList<>();
+        List<Long> notLoaded = new ArrayList<>();
+        for (Long attendee : attendees) {
+            List<CalendarEvent> cached = userScheduleIndex.findRecurringIfLoaded(attendee);
+            if (cached != null) {
+                recurring.addAll(cached);
+            } else {
+                notLoaded.add(attendee);
+            }
+        }
+        if (!notLoaded.isEmpty()) {
+            recurring.addAll(calendarEventMapper.findRecurringByUserIds(notLoaded, localTo,
+                CalendarEvent.Status.CANCELLED));
+        }
+        events.addAll(recurrenceExpander.expandAll(recurring, localFrom, localTo));
 
-    /**
-     * 获取指定日期的日程事件
-     */
-    private List<CalendarEvent> getEventsByDate(Long userId, LocalDate date) {
-        return calendarEventMapper.findByUserId(userId).stream()
-            .filter(event -> !event.getStatus().equals(CalendarEvent.Status.CANCELLED))
-            .filter(event -> isEventOnDate(event, date))
-            .collect(Collectors.toList());
-    }
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(windowStart, windowEnd, freeBusyGranularityMinutes);
+        // 已经过去的时间不再建议；窗口是默认时区的本地时间，当前时间也按默认时区取
+        LocalDateTime now = LocalDateTime.now(zone);
+        if (now.isAfter(windowStart)) {
+            bitmap.markBusy(windowStart, now);
+        }
+        // 工作时段相同的参会人只需标记一次
+        Set<UserPreference> distinctWindows = new TreeSet<>(Comparator
+            .comparing(UserPreference::getWorkDayStart)
+            .thenComparing(UserPreference::getWorkDayEnd)
+            .thenComparing(p -> Boolean.TRUE.equals(p.getIncludeWeekends())));
+        for (Long attendee : attendees) {
+            distinctWindows.add(preferences.get(attendee));
+        }
+        for (UserPreference preference : distinctWindows) {
+            bitmap.restrictToDailyWindow(preference.getWorkDayStart(), preference.getWorkDayEnd(),
+                Boolean.TRUE.equals(preference.getIncludeWeekends()));
+        }
+        for (CalendarEvent event : events) {
+            UserPreference preference = preferences.get(event.getUserId());
+            markBusy(bitmap, event, zone, minutesOrZero(preference.getBufferTimeBeforeEvents()),
+                minutesOrZero(preference.getBufferTimeAfterEvents()));
+        }
 
-    /**
-     * 检查事件是否在指定日期
-     */
-    private boolean isEventOnDate(CalendarEvent event, LocalDate date) {
-        LocalDate eventDate = event.getStartTime().toLocalDate();
-        return eventDate.equals(date);
+        List<FreeRun> freeRuns = bitmap.freeRuns(duration);
+        LocalDate firstDate = windowStart.toLocalDate();
+        List<TimeSuggestion> slots = findOptimalTimeSlots(freeRuns, duration).stream()
+            .map(slot -> {
+                // 越晚的日期置信度越低
+                long days = Duration.between(firstDate.atStartOfDay(), slot.getDate().atStartOfDay()).toDays();
+                slot.setConfidence(Math.max(0.3, slot.getConfidence() - 0.02 * days));
+                return slot;
+            })
+            .sorted(SUGGESTION_ORDER)
+            .limit(Math.max(1, limit))
+            .collect(Collectors.toList());
+        log.info("共同空闲时间段 {} 个，{} 个日程参与合并，返回 {} 个候选", freeRuns.size(), events.size(), slots.size());
+        return slots;
     }
 
     /**
-     * 查找冲突的事件
+     * 获取用户偏好（如果不存在则创建默认偏好），优先从缓存读取
      */
-    private List<CalendarEvent> findConflictingEvents(List<CalendarEvent> existingEvents, 
-                                                       LocalTime proposedStart, LocalTime proposedEnd) {
-        return existingEvents.stream()
-            .filter(event -> hasTimeConflict(proposedStart, proposedEnd, event))
-            .collect(Collectors.toList());
+    private UserPreference getUserPreferences(Long userId) {
+        return userPreferenceCache.get(userId);
     }
 
     /**
-     * 检查时间冲突
+     * 获取指定日期（按 zone 的当天0点到次日0点）的日程事件，包括跨午夜延续到当天的日程，优先从内存索引读取
      */
-    private boolean hasTimeConflict(LocalTime proposedStart, LocalTime proposedEnd, CalendarEvent event) {
-        LocalTime eventStart = event.getStartTime().toLocalTime();
-        LocalTime eventEnd = event.getEndTime().toLocalTime();
-        
-        // 考虑缓冲时间
-        LocalTime bufferedStart = proposedStart.minusMinutes(15); // 默认15分钟缓冲
-        LocalTime bufferedEnd = proposedEnd.plusMinutes(15);
-        
-        return !(bufferedEnd.isBefore(eventStart) || bufferedStart.isAfter(eventEnd));
+    private List<CalendarEvent> getEventsByDate(Long userId, LocalDate date, ZoneId zone) {
+        return userScheduleIndex.findOverlapping(userId, EventTimes.day(date, zone));
     }
 
     /**
      * 计算冲突严重程度
      */
-    private Severity calculateSeverity(List<CalendarEvent> conflicts, LocalTime proposedStart, LocalTime proposedEnd) {
+    private Severity calculateSeverity(List<CalendarEvent> conflicts, Interval proposal) {
         if (conflicts.isEmpty()) {
             return Severity.NONE;
         }
         
         long totalConflictMinutes = 0;
         for (CalendarEvent conflict : conflicts) {
-            totalConflictMinutes += calculateConflictMinutes(proposedStart, proposedEnd, conflict);
+            totalConflictMinutes += calculateConflictMinutes(proposal, conflict);
         }
         
         if (totalConflictMinutes <= 15) {
@@ -205,212 +411,173 @@ public class ConflictDetectionServiceImpl {
     }
 
     /**
-     * 计算冲突分钟数
+     * 计算冲突分钟数（提议时间段与日程实际重叠的部分，只在缓冲时间内相邻时为0）
      */
-    private long calculateConflictMinutes(LocalTime proposedStart, LocalTime proposedEnd, CalendarEvent event) {
-        LocalTime eventStart = event.getStartTime().toLocalTime();
-        LocalTime eventEnd = event.getEndTime().toLocalTime();
-        
-        LocalTime conflictStart = proposedStart.isAfter(eventStart) ? proposedStart : eventStart;
-        LocalTime conflictEnd = proposedEnd.isBefore(eventEnd) ? proposedEnd : eventEnd;
-        
-        return Duration.between(conflictStart, conflictEnd).toMinutes();
+    private long calculateConflictMinutes(Interval proposal, CalendarEvent event) {
+        return ConflictEngine.conflictMinutes(proposal, event, defaultZone());
     }
 
     /**
      * 生成时间建议
+     * 在从提议日期开始的 horizon-days 个工作日内搜索（用户不在周末工作时跳过周末，提议日期本身总是包含），
+     * 整个范围的日程只查询一次，各天在线程池上并行打分，只保留得分最高的 top-k 个
      */
-    private List<TimeSuggestion> generateSuggestions(ConflictCheckRequest request, 
-                                                     List<CalendarEvent> existingEvents, Long userId) {
-        List<TimeSuggestion> suggestions = new ArrayList<>();
-        
-        // 获取用户偏好
-        UserPreference preferences = getUserPreferences(userId);
-        
-        // 建议1: 同一天的相邻时间段
-        suggestions.addAll(findAdjacentSlots(request.getProposedDate(), existingEvents, 
-            Duration.between(request.getStartTime(), request.getEndTime()).toMinutes(), 
-            request.getStartTime(), preferences));
-        
-        // 建议2: 第二天的相同时间段
-        suggestions.addAll(findNextDaySlots(request.getProposedDate().plusDays(1), 
-            Duration.between(request.getStartTime(), request.getEndTime()).toMinutes(), 
-            request.getStartTime(), userId));
-        
-        // 建议3: 基于用户偏好的时间段
-        suggestions.addAll(findOptimalTimeSlots(request.getProposedDate(), 
-            Duration.between(request.getStartTime(), request.getEndTime()).toMinutes(), 
-            existingEvents, preferences));
-        
-        // 排序并限制数量
-        return suggestions.stream()
-            .sorted((s1, s2) -> Double.compare(s2.getConfidence(), s1.getConfidence()))
-            .limit(5)
+    private List<TimeSuggestion> generateSuggestions(ConflictCheckRequest request, Interval proposal, ZoneId zone,
+                                                     UserPreference preferences, Long userId) {
+        long duration = (proposal.end() - proposal.start()) / 60;
+        List<LocalDate> days = suggestionDays(request.getProposedDate(), preferences);
+
+        // 前后各多取一天，覆盖工作时段外的可选时间和跨午夜的日程
+        Interval horizon = new Interval(EventTimes.day(days.get(0).minusDays(1), zone).start(),
+            EventTimes.day(days.get(days.size() - 1).plusDays(1), zone).end());
+        List<SuggestionSearch.Busy> busy = new ArrayList<>();
+        for (CalendarEvent event : userScheduleIndex.findOverlapping(userId, horizon)) {
+            busy.add(new SuggestionSearch.Busy(
+                EventTimes.convert(event.getStartTime(), event.getTimezone(), defaultZone(), zone),
+                EventTimes.convert(event.getEndTime(), event.getTimezone(), defaultZone(), zone),
+                event.getPriority() == CalendarEvent.Priority.LOW));
+        }
+
+        SuggestionSearch.Query query = new SuggestionSearch.Query(
+            request.getProposedDate().atTime(request.getStartTime()), duration, days,
+            preferences.getWorkDayStart(), preferences.getWorkDayEnd(),
+            minutesOrZero(preferences.getBufferTimeBeforeEvents()), minutesOrZero(preferences.getBufferTimeAfterEvents()),
+            LocalDateTime.now(zone), suggestionTopK);
+        List<SuggestionSearch.Candidate> candidates = new SuggestionSearch(freeBusyGranularityMinutes,
+            suggestionOffHoursMinutes, MIN_USEFUL_GAP_MINUTES, suggestionExecutor).search(query, busy);
+        log.info("在 {} 天内为用户 {} 找到 {} 个候选时间段", days.size(), userId, candidates.size());
+
+        return candidates.stream()
+            .map(candidate -> TimeSuggestion.builder()
+                .date(candidate.start().toLocalDate())
+                .startTime(candidate.start().toLocalTime())
+                .endTime(candidate.end().toLocalTime())
+                .confidence(candidate.score())
+                .reason(candidate.reason())
+                .build())
             .collect(Collectors.toList());
     }
 
     /**
-     * 查找相邻时间段
+     * 建议搜索的日期：提议日期加上之后的工作日，共 horizon-days 天
      */
-    private List<TimeSuggestion> findAdjacentSlots(LocalDate date, List<CalendarEvent> existingEvents, 
-                                                    long duration, LocalTime originalTime, 
-                                                    UserPreference preferences) {
-        List<TimeSuggestion> slots = new ArrayList<>();
-        
-        // 按时间排序现有日程
-        List<CalendarEvent> sortedEvents = existingEvents.stream()
-            .sorted(Comparator.comparing(e -> e.getStartTime().toLocalTime()))
-            .collect(Collectors.toList());
-        
-        // 工作日时间范围
-        LocalTime workStart = preferences.getWorkDayStart();
-        LocalTime workEnd = preferences.getWorkDayEnd();
-        
-        LocalTime current = workStart;
-        
-        for (CalendarEvent event : sortedEvents) {
-            LocalTime eventStart = event.getStartTime().toLocalTime();
-            LocalTime eventEnd = event.getEndTime().toLocalTime();
-            
-            // 检查当前时间段和事件之间的空闲时间
-            if (Duration.between(current, eventStart).toMinutes() >= duration + preferences.getBufferTimeBeforeEvents()) {
-                TimeSuggestion suggestion = TimeSuggestion.builder()
-                    .date(date)
-                    .startTime(current.plusMinutes(preferences.getBufferTimeBeforeEvents()))
-                    .endTime(current.plusMinutes(preferences.getBufferTimeBeforeEvents() + duration))
-                    .confidence(calculateConfidence(current, originalTime))
-                    .reason("相邻空闲时段")
-                    .build();
-                slots.add(suggestion);
+    private List<LocalDate> suggestionDays(LocalDate proposedDate, UserPreference preferences) {
+        boolean includeWeekends = Boolean.TRUE.equals(preferences.getIncludeWeekends());
+        List<LocalDate> days = new ArrayList<>(suggestionHorizonDays);
+        days.add(proposedDate);
+        for (LocalDate date = proposedDate.plusDays(1); days.size() < suggestionHorizonDays; date = date.plusDays(1)) {
+            DayOfWeek dayOfWeek = date.getDayOfWeek();
+            if (includeWeekends || (dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY)) {
+                days.add(date);
             }
-            
-            current = eventEnd.isAfter(current) ? eventEnd : current;
         }
-        
-        // 检查最后的时间段
-        if (Duration.between(current, workEnd).toMinutes() >= duration + preferences.getBufferTimeAfterEvents()) {
-            TimeSuggestion suggestion = TimeSuggestion.builder()
-                .date(date)
-                .startTime(current.plusMinutes(preferences.getBufferTimeAfterEvents()))
-                .endTime(current.plusMinutes(preferences.getBufferTimeAfterEvents() + duration))
-                .confidence(0.7)
-                .reason("傍晚空闲时段")
-                .build();
-            slots.add(suggestion);
-        }
-        
-        return slots;
+        return days;
     }
 
     /**
-     * 查找第二天的时间段
+     * 把指定日期的工作时段栅格化为空闲/忙碌位图，返回所有不短于 duration 的空闲段
+     * 现有日程按用户偏好向前扩展 bufferTimeBeforeEvents、向后扩展 bufferTimeAfterEvents
      */
-    private List<TimeSuggestion> findNextDaySlots(LocalDate nextDate, long duration, 
-                                                 LocalTime originalTime, Long userId) {
-        List<TimeSuggestion> slots = new ArrayList<>();
-        
-        // 获取用户偏好
-        UserPreference preferences = getUserPreferences(userId);
-        
-        // 在相同时间前后1小时范围内查找
-        for (int offset = -60; offset <= 60; offset += 30) {
-            LocalTime suggestedStart = originalTime.plusMinutes(offset);
-            LocalTime suggestedEnd = suggestedStart.plusMinutes(duration);
-            
-            if (suggestedStart.isAfter(preferences.getWorkDayStart()) && 
-                suggestedEnd.isBefore(preferences.getWorkDayEnd())) {
-                
-                TimeSuggestion suggestion = TimeSuggestion.builder()
-                    .date(nextDate)
-                    .startTime(suggestedStart)
-                    .endTime(suggestedEnd)
-                    .confidence(calculateConfidence(suggestedStart, originalTime) * 0.8)
-                    .reason("第二天相同时间段")
-                    .build();
-                slots.add(suggestion);
-            }
-        }
-        
-        return slots;
+    private List<FreeRun> findFreeRuns(LocalDate date, List<CalendarEvent> events,
+                                       UserPreference preferences, long duration, ZoneId zone) {
+        return buildFreeBusyBitmap(date, events, preferences, zone).freeRuns(duration);
     }
 
     /**
-     * 查找最佳时间段
+     * 位图按 zone 的本地时间栅格化，其他时区的日程先换算到 zone
      */
-    private List<TimeSuggestion> findOptimalTimeSlots(LocalDate date, long duration, 
-                                                     List<CalendarEvent> existingEvents, 
-                                                     UserPreference preferences) {
-        List<TimeSuggestion> slots = new ArrayList<>();
-        
-        // 基于用户偏好生成建议时间段
-        LocalTime workStart = preferences.getWorkDayStart();
-        LocalTime workEnd = preferences.getWorkDayEnd();
-        
-        // 检查上午时段（9:00-12:00）
-        LocalTime morningStart = workStart.isBefore(LocalTime.of(9, 0)) ? LocalTime.of(9, 0) : workStart;
-        LocalTime morningEnd = LocalTime.of(12, 0);
-        
-        if (Duration.between(morningStart, morningEnd).toMinutes() >= duration) {
-            slots.add(TimeSuggestion.builder()
-                .date(date)
-                .startTime(morningStart)
-                .endTime(morningStart.plusMinutes(duration))
-                .confidence(0.8)
-                .reason("上午最佳时段")
-                .build());
+    private FreeBusyBitmap buildFreeBusyBitmap(LocalDate date, List<CalendarEvent> events,
+                                               UserPreference preferences, ZoneId zone) {
+        FreeBusyBitmap bitmap = FreeBusyBitmap.forDays(date, date.plusDays(1), freeBusyGranularityMinutes);
+        // 用户指定的日期即使是周末也照常给出建议
+        bitmap.restrictToDailyWindow(preferences.getWorkDayStart(), preferences.getWorkDayEnd(), true);
+        int bufferBefore = minutesOrZero(preferences.getBufferTimeBeforeEvents());
+        int bufferAfter = minutesOrZero(preferences.getBufferTimeAfterEvents());
+        for (CalendarEvent event : events) {
+            markBusy(bitmap, event, zone, bufferBefore, bufferAfter);
         }
-        
-        // 检查下午时段（14:00-17:00）
-        LocalTime afternoonStart = LocalTime.of(14, 0);
-        LocalTime afternoonEnd = workEnd.isAfter(LocalTime.of(17, 0)) ? LocalTime.of(17, 0) : workEnd;
-        
-        if (Duration.between(afternoonStart, afternoonEnd).toMinutes() >= duration) {
+        return bitmap;
+    }
+
+    private void markBusy(FreeBusyBitmap bitmap, CalendarEvent event, ZoneId zone, int bufferBefore, int bufferAfter) {
+        LocalDateTime start = EventTimes.convert(event.getStartTime(), event.getTimezone(), defaultZone(), zone);
+        LocalDateTime end = EventTimes.convert(event.getEndTime(), event.getTimezone(), defaultZone(), zone);
+        bitmap.markBusy(start.minusMinutes(bufferBefore), end.plusMinutes(bufferAfter));
+    }
+
+    private static int minutesOrZero(Integer minutes) {
+        return minutes != null ? Math.max(0, minutes) : 0;
+    }
+
+    /**
+     * 查找最佳时间段：对当天真实空闲段排序，每个空闲段从开头安排
+     * 恰好填满空闲段的加分，剩下不足 MIN_USEFUL_GAP_MINUTES 碎片时间的减分
+     */
+    private List<TimeSuggestion> findOptimalTimeSlots(List<FreeRun> freeRuns, long duration) {
+        List<TimeSuggestion> slots = new ArrayList<>(freeRuns.size());
+        
+        for (FreeRun run : freeRuns) {
+            long leftover = run.minutes() - duration;
+            double confidence = 0.8;
+            if (leftover == 0) {
+                confidence += 0.05;
+            } else if (leftover < MIN_USEFUL_GAP_MINUTES) {
+                confidence -= 0.15;
+            }
+            
+            LocalDateTime start = run.start();
             slots.add(TimeSuggestion.builder()
-                .date(date)
-                .startTime(afternoonStart)
-                .endTime(afternoonStart.plusMinutes(duration))
-                .confidence(0.75)
-                .reason("下午最佳时段")
+                .date(start.toLocalDate())
+                .startTime(start.toLocalTime())
+                .endTime(start.plusMinutes(duration).toLocalTime())
+                .confidence(confidence)
+                .reason(describeFreeRun(start.toLocalTime()))
                 .build());
         }
         
+        slots.sort(SUGGESTION_ORDER);
         return slots;
     }
 
-    /**
-     * 计算建议的置信度
-     */
-    private double calculateConfidence(LocalTime suggested, LocalTime original) {
-        long timeDiff = Math.abs(Duration.between(suggested, original).toMinutes());
-        if (timeDiff <= 30) return 0.9;
-        if (timeDiff <= 60) return 0.7;
-        if (timeDiff <= 120) return 0.5;
-        return 0.3;
+    private String describeFreeRun(LocalTime start) {
+        if (start.isBefore(LocalTime.NOON)) {
+            return "上午空闲时段";
+        }
+        return start.isBefore(LocalTime.of(17, 0)) ? "下午空闲时段" : "傍晚空闲时段";
     }
 
-
     /**
      * 记录冲突检测日志
      */
     private void recordConflictDetectionLog(Long userId, ConflictCheckRequest request, 
                                           boolean hasConflict, int conflictCount, Severity severity) {
-        try {
-            ConflictDetectionLog log = new ConflictDetectionLog();
-            log.setUserId(userId);
-            log.setProposedDate(request.getProposedDate());
-            log.setProposedStartTime(request.getStartTime());
-            log.setProposedEndTime(request.getEndTime());
-            log.setHasConflict(hasConflict);
-            log.setConflictCount(conflictCount);
-            log.setSeverity(severity);
-            log.setAiSuggestionUsed(false); // 可以后续扩展AI建议功能
-            log.setCreatedAt(LocalDateTime.now());
-            
-            conflictDetectionLogMapper.insert(log);
-            this.log.info("记录冲突检测日志成功: userId={}, hasConflict={}, severity={}", 
-                    userId, hasConflict, severity);
-        } catch (Exception e) {
-            this.log.error("记录冲突检测日志失败", e);
+        if (!conflictDetectionLogWriter.submit(buildConflictDetectionLog(userId, request, hasConflict, conflictCount, severity))) {
+            this.log.warn("冲突检测日志队列已满，丢弃日志: userId={}, severity={}", userId, severity);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量记录冲突检测日志（交给后台线程合并写入）
+     */
+    private void recordConflictDetectionLogs(List<ConflictDetectionLog> logs) {
+        int accepted = conflictDetectionLogWriter.submitAll(logs);
+        if (accepted < logs.size()) {
+            this.log.warn("冲突检测日志队列已满，丢弃 {} 条", logs.size() - accepted);
+        }
+    }
+
+    private ConflictDetectionLog buildConflictDetectionLog(Long userId, ConflictCheckRequest request,
+                                                           boolean hasConflict, int conflictCount, Severity severity) {
+        ConflictDetectionLog log = new ConflictDetectionLog();
+        log.setUserId(userId);
+        log.setProposedDate(request.getProposedDate());
+        log.setProposedStartTime(request.getStartTime());
+        log.setProposedEndTime(request.getEndTime());
+        log.setHasConflict(hasConflict);
+        log.setConflictCount(conflictCount);
+        log.setSeverity(severity);
+        log.setAiSuggestionUsed(false); // 可以后续扩展AI建议功能
+        log.setCreatedAt(LocalDateTime.now());
+        return log;
+    }
+}
@@ -1,17 +1,28 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.services.impls;
 
 import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationSessionMapper;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConversationSession;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.SessionSummary;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConversationHistoryCache;
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConversationService;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConversationSessionRecorder;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConversationWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ConversationServiceImpl implements ConversationService {
@@ -22,6 +33,21 @@ public class ConversationServiceImpl implements ConversationService {
     @Autowired
     private UserServiceImpl userService;
 
+    @Autowired
+    private ConversationWriter conversationWriter;
+
+    @Autowired
+    private ConversationHistoryCache conversationHistoryCache;
+
+    @Autowired
+    private ConversationSessionMapper conversationSessionMapper;
+
+    @Autowired
+    private ConversationSessionRecorder conversationSessionRecorder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 获取当前登录用户的ID
      * @return 当前用户ID
@@ -36,7 +62,7 @@ public class ConversationServiceImpl implements ConversationService {
         throw new SecurityException("用户未认证");
     }
     /**
-     * 保存对话记录到数据库
+     * 保存对话记录到数据库，并在同一事务中更新会话汇总
      * @param userId 用户ID（可选，如果为null则从SecurityContext获取）
      * @param sessionId 会话ID
      * @param userMessage 用户消息
@@ -46,8 +72,46 @@ public class ConversationServiceImpl implements ConversationService {
      * @param successful 是否处理成功
      * @return 保存的对话记录
      */
+    @Transactional
     public Conversation saveConversation(Long userId, String sessionId, String userMessage, String aiResponse,
                                          String intent, String entities, Boolean successful) {
+        Conversation conversation = buildConversation(userId, sessionId, userMessage, aiResponse, intent, entities,
+                successful);
+
+        System.out.println("准备插入对话记录: userId=" + conversation.getUserId() + ", sessionId=" + sessionId +
+                ", userMessage=" + userMessage);
+
+        conversationMapper.insert(conversation);
+        conversationSessionRecorder.record(List.of(conversation));
+        conversationHistoryCache.append(conversation);
+
+        System.out.println("对话记录插入完成，生成的ID: " + conversation.getId());
+        return conversation;
+    }
+
+    /**
+     * 异步保存对话记录：放入 ConversationWriter 的有界队列后立即返回，不等待数据库，
+     * 可以在 Reactor/Netty 线程上调用。记录写入后才有ID。
+     * 参数同 saveConversation
+     * @return 是否已进入写入队列，队列已满时返回false
+     */
+    public boolean saveConversationAsync(Long userId, String sessionId, String userMessage, String aiResponse,
+                                         String intent, String entities, Boolean successful) {
+        Conversation conversation = buildConversation(userId, sessionId, userMessage, aiResponse, intent, entities,
+                successful);
+        if (!conversationWriter.submit(conversation)) {
+            return false;
+        }
+        // 记录还在写入队列中时，下一轮对话也能从缓存读到它
+        conversationHistoryCache.append(conversation);
+        return true;
+    }
+
+    /**
+     * 补全用户ID（为null时依次尝试 SecurityContext、sessionId、默认用户）并创建对话记录
+     */
+    private Conversation buildConversation(Long userId, String sessionId, String userMessage, String aiResponse,
+                                           String intent, String entities, Boolean successful) {
         // 如果userId为null，从SecurityContext获取当前登录用户的ID
         if (userId == null) {
             try {
@@ -86,13 +150,6 @@ public class ConversationServiceImpl implements ConversationService {
         conversation.setEntities(entities);
         conversation.setSuccessful(successful);
         conversation.setCreatedAt(LocalDateTime.now());
-
-        System.out.println("准备插入对话记录: userId=" + userId + ", sessionId=" + sessionId +
-                ", userMessage=" + userMessage);
-
-        conversationMapper.insert(conversation);
-
-        System.out.println("对话记录插入完成，生成的ID: " + conversation.getId());
         return conversation;
     }
 
@@ -119,6 +176,24 @@ public class ConversationServiceImpl implements ConversationService {
         return history != null ? history : new ArrayList<>();
     }
 
+    /**
+     * 获取会话最近的对话，按时间倒序，只包含构建对话记忆所需的字段
+     * 不超过缓存容量时从热会话缓存读取，只有冷会话才查询数据库
+     * @param sessionId 会话ID
+     * @param limit 最多返回的条数
+     * @return 对话历史列表
+     */
+    public List<Conversation> getRecentConversationHistory(String sessionId, int limit) {
+        if (sessionId == null || sessionId.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        if (limit <= conversationHistoryCache.capacity()) {
+            return conversationHistoryCache.getRecent(sessionId, limit);
+        }
+        List<Conversation> history = conversationMapper.findRecentBySessionId(sessionId, limit);
+        return history != null ? history : new ArrayList<>();
+    }
+
     /**
      * 根据用户ID获取对话历史
      * @param userId 用户ID
@@ -129,77 +204,82 @@ public class ConversationServiceImpl implements ConversationService {
     }
 
     /**
-     * 删除对话记录
+     * 删除对话记录，并重新计算所属会话的汇总
      * @param id 对话ID
      */
+    @Transactional
     public void deleteConversation(Long id) {
+        Conversation conversation = conversationMapper.findById(id);
         conversationMapper.deleteById(id);
+        if (conversation != null) {
+            conversationSessionRecorder.refresh(conversation.getSessionId());
+            conversationHistoryCache.invalidate(conversation.getSessionId());
+        }
     }
 
     /**
      * 获取用户的所有会话ID列表
      * @param userId 用户ID
-     * @return 会话ID列表
+     * @return 会话ID列表，按最后活动时间倒序
      */
     public List<String> getAllSessionIdsByUser(Long userId) {
-        return conversationMapper.findDistinctSessionIdsByUserId(userId);
+        return conversationSessionMapper.findSessionIdsByUserId(userId);
     }
 
     /**
-     * 获取用户的会话总结列表
+     * 获取用户的会话总结列表（全部会话）
      * @param userId 用户ID
-     * @return 会话总结列表
+     * @return 会话总结列表，按最后活动时间倒序
      */
     public List<SessionSummary> getSessionSummariesByUser(Long userId) {
-        List<String> sessionIds = conversationMapper.findDistinctSessionIdsByUserId(userId);
-        List<SessionSummary> summaries = new ArrayList<>();
-
-        for (String sessionId : sessionIds) {
-            List<Conversation> conversations = conversationMapper.findBySessionIdOrderByCreatedAtDesc(sessionId);
-            if (conversations != null && !conversations.isEmpty()) {
-                SessionSummary summary = new SessionSummary();
-                summary.setSessionId(sessionId);
-                summary.setConversationCount(conversations.size());
-
-                // 获取最后活动时间
-                Conversation lastConversation = conversations.get(0);
-                summary.setLastActivityTime(lastConversation.getCreatedAt().toString());
-
-                // 生成会话总结
-                String summaryText = generateSessionSummary(conversations);
-                summary.setSummary(summaryText);
+        return getSessionSummariesByUser(userId, null, null, Integer.MAX_VALUE);
+    }
 
-                summaries.add(summary);
-            }
+    /**
+     * 分页获取用户的会话总结列表，直接读取会话汇总表，不再聚合 conversations
+     * @param userId 用户ID
+     * @param beforeTime 游标：上一页最后一个会话的最后活动时间，为null时从最新的会话开始
+     * @param beforeSessionId 游标：上一页最后一个会话的ID
+     * @param limit 每页会话数
+     * @return 会话总结列表，按最后活动时间倒序
+     */
+    public List<SessionSummary> getSessionSummariesByUser(Long userId, LocalDateTime beforeTime,
+                                                          String beforeSessionId, int limit) {
+        List<SessionSummary> summaries = new ArrayList<>();
+        if (limit <= 0) {
+            return summaries;
+        }
+        List<ConversationSession> sessions = conversationSessionMapper.findByUserId(userId, beforeTime,
+                beforeSessionId, limit);
+        for (ConversationSession session : sessions) {
+            SessionSummary summary = new SessionSummary(session.getSessionId(), generateSessionSummary(session),
+                    session.getLastMessageAt().toString(), session.getMessageCount());
+            summary.setIntentCounts(parseIntentCounts(session.getIntentCounts()));
+            summaries.add(summary);
         }
-
         return summaries;
     }
 
     /**
      * 生成会话总结
-     * @param conversations 会话中的对话列表
+     * @param session 会话汇总
      * @return 会话总结
      */
-    private String generateSessionSummary(List<Conversation> conversations) {
-        if (conversations == null || conversations.isEmpty()) {
+    private String generateSessionSummary(ConversationSession session) {
+        if (session.getMessageCount() == 0) {
             return "无对话内容";
         }
 
-        // 获取第一条和最后一条对话
-        Conversation firstConversation = conversations.get(conversations.size() - 1);
-        Conversation lastConversation = conversations.get(0);
-
         StringBuilder summary = new StringBuilder();
-        summary.append("包含 ").append(conversations.size()).append(" 条对话");
+        summary.append("包含 ").append(session.getMessageCount()).append(" 条对话");
 
-        if (lastConversation.getIntent() != null && !lastConversation.getIntent().isEmpty()) {
-            summary.append("，主要讨论：").append(lastConversation.getIntent());
+        if (session.getLastIntent() != null && !session.getLastIntent().isEmpty()) {
+            summary.append("，主要讨论：").append(session.getLastIntent());
         }
 
         // 如果第一条对话有内容，添加到总结中
-        if (firstConversation.getUserMessage() != null && !firstConversation.getUserMessage().isEmpty()) {
-            String firstMessage = firstConversation.getUserMessage();
+        if (session.getTitle() != null && !session.getTitle().isEmpty()) {
+            String firstMessage = session.getTitle();
             if (firstMessage.length() > 20) {
                 firstMessage = firstMessage.substring(0, 20) + "...";
             }
@@ -209,12 +289,28 @@ public class ConversationServiceImpl implements ConversationService {
         return summary.toString();
     }
 
+    /**
+     * 解析会话汇总中JSON格式的意图分布
+     */
+    private Map<String, Integer> parseIntentCounts(String intentCounts) {
+        if (intentCounts == null || intentCounts.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(intentCounts, new TypeReference<Map<String, Integer>>() {});
+        } catch (JsonProcessingException e) {
+            System.err.println("无法解析会话意图分布: " + intentCounts);
+            return Collections.emptyMap();
+        }
+    }
+
     /**
      * 创建新对话会话
      * @param userId 用户ID
      * @param customSessionId 自定义会话ID（可选）
      * @return 新创建的会话ID
      */
+    @Transactional
     public String createNewConversation(Long userId, String customSessionId) {
         // 验证用户ID
         if (userId == null || userId <= 0) {
@@ -244,6 +340,7 @@ public class ConversationServiceImpl implements ConversationService {
         welcomeConversation.setCreatedAt(LocalDateTime.now());
 
         conversationMapper.insert(welcomeConversation);
+        conversationSessionRecorder.record(List.of(welcomeConversation));
 
         System.out.println("创建新对话会话 - 用户ID: " + userId + ", 会话ID: " + sessionId);
         
@@ -256,7 +353,7 @@ public class ConversationServiceImpl implements ConversationService {
      * @return 最近的活动会话ID，如果没有则返回null
      */
     public String getRecentActiveSessionId(Long userId) {
-        return conversationMapper.findLatestSessionIdByUserId(userId);
+        return conversationSessionMapper.findLatestSessionIdByUserId(userId);
     }
 
     /**
@@ -269,7 +366,7 @@ public class ConversationServiceImpl implements ConversationService {
             return false;
         }
         
-        return conversationMapper.existsBySessionId(sessionId);
+        return conversationSessionMapper.existsBySessionId(sessionId);
     }
 
     /**
@@ -282,7 +379,8 @@ public class ConversationServiceImpl implements ConversationService {
             return 0;
         }
         
-        return conversationMapper.countBySessionId(sessionId);
+        Integer count = conversationSessionMapper.findMessageCountBySessionId(sessionId);
+        return count != null ? count : 0;
     }
 
 }
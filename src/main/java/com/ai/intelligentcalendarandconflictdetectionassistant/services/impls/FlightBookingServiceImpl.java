@@ -4,10 +4,14 @@ import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.CalendarEv
 import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.UserMapper;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
 import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.User;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.RecurrenceExpander;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.UserScheduleIndex;
 import com.ai.intelligentcalendarandconflictdetectionassistant.services.BookingTools.BookingDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,10 +20,18 @@ public class FlightBookingServiceImpl {
 
 	private final UserMapper userMapper;
     private final CalendarEventMapper calendarEventMapper;
+    private final UserScheduleIndex userScheduleIndex;
+    private final RecurrenceExpander recurrenceExpander;
+    private final long recurrenceListingDays;
 
-    public FlightBookingServiceImpl(UserMapper userMapper, CalendarEventMapper calendarEventMapper) {
+    public FlightBookingServiceImpl(UserMapper userMapper, CalendarEventMapper calendarEventMapper,
+                                    UserScheduleIndex userScheduleIndex, RecurrenceExpander recurrenceExpander,
+                                    @Value("${schedule.recurrence.listing-days:30}") long recurrenceListingDays) {
         this.userMapper = userMapper;
         this.calendarEventMapper = calendarEventMapper;
+        this.userScheduleIndex = userScheduleIndex;
+        this.recurrenceExpander = recurrenceExpander;
+        this.recurrenceListingDays = recurrenceListingDays;
     }
 
 
@@ -70,7 +82,19 @@ public class FlightBookingServiceImpl {
 			return List.of(); // 用户不存在，返回空列表
 		}
 
-		return calendarEventMapper.findByUserId(userId).stream()
+		// 重复日程展开为今天起 listingDays 天内的各次实例，窗口内没有实例时仍显示系列本身
+		LocalDateTime from = LocalDate.now().atStartOfDay();
+		LocalDateTime to = from.plusDays(recurrenceListingDays);
+		List<CalendarEvent> events = new ArrayList<>();
+		for (CalendarEvent event : calendarEventMapper.findByUserId(userId)) {
+			if (RecurrenceExpander.isRecurring(event)) {
+				List<CalendarEvent> occurrences = recurrenceExpander.expand(event, from, to);
+				events.addAll(occurrences.isEmpty() ? List.of(event) : occurrences);
+			} else {
+				events.add(event);
+			}
+		}
+		return events.stream()
 				.map(this::toBookingDetails)
 				.collect(Collectors.toList());
 	}
@@ -101,6 +125,7 @@ public class FlightBookingServiceImpl {
 		event.setUpdatedAt(LocalDateTime.now());
 
 		calendarEventMapper.update(event);
+		userScheduleIndex.onEventSaved(event);
 	}
 
 	// 根据用户ID取消日历事件
@@ -110,12 +135,14 @@ public class FlightBookingServiceImpl {
 		// 设置更新时间
 		event.setUpdatedAt(LocalDateTime.now());
 		calendarEventMapper.update(event);
+		userScheduleIndex.onEventSaved(event);
 	}
 
 	// 根据用户ID删除日历事件
 	public void deleteBookingByUserId(String eventId, Long userId) {
 		CalendarEvent event = findCalendarEventByUserId(Long.valueOf(eventId), userId);
 		calendarEventMapper.deleteById(event.getId());
+		userScheduleIndex.onEventDeleted(userId, event.getId());
 	}
 
 	private BookingDetails toBookingDetails(CalendarEvent event) {
@@ -181,5 +208,6 @@ public class FlightBookingServiceImpl {
 		event.setUpdatedAt(now);
 
 		calendarEventMapper.insert(event);
+		userScheduleIndex.onEventSaved(event);
 	}
 }
\ No newline at end of file
@@ -1,11 +1,10 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.services.impls;
 
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.DocumentIngestionService;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TextSplitter;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.stereotype.Service;
@@ -21,22 +20,28 @@ import java.util.List;
 public class RagServiceImpl {
 
     private final VectorStore vectorStore;
+    private final DocumentIngestionService documentIngestionService;
 
     /**
-     * 嵌入文件到向量数据库
+     * 嵌入文件到向量数据库，分批并行生成向量，大文件请使用 {@link DocumentIngestionService#submit} 异步导入
      *
      * @param file 待嵌入的文件
      * @return 是否成功
      */
-    @SneakyThrows
     public Boolean embedding(MultipartFile file) {
-        // 从IO流中读取文件
-        TikaDocumentReader tikaDocumentReader = new TikaDocumentReader(new InputStreamResource(file.getInputStream()));
-        // 将文本内容划分成更小的块
-        TextSplitter textSplitter = new TokenTextSplitter();
-        List<Document> splitDocuments = textSplitter.apply(tikaDocumentReader.read());
-        // 存入向量数据库，这个过程会自动调用embeddingModel,将文本变成向量再存入。
-        vectorStore.add(splitDocuments);
+        return embedding(file, null);
+    }
+
+    /**
+     * 嵌入文件到向量数据库，记录上传用户
+     *
+     * @param file 待嵌入的文件
+     * @param userId 上传用户ID，可以为null
+     * @return 是否成功
+     */
+    @SneakyThrows
+    public Boolean embedding(MultipartFile file, Long userId) {
+        documentIngestionService.ingest(new InputStreamResource(file.getInputStream()), file.getOriginalFilename(), userId);
         return true;
     }
 
@@ -81,4 +86,23 @@ public class RagServiceImpl {
                 .withTopK(topK)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * 查询向量数据库，只在满足元数据过滤条件的文档中检索
+     *
+     * @param query 用户的提问
+     * @param similarityThreshold 相似度阈值
+     * @param topK 返回的文档数量
+     * @param filterExpression 过滤表达式，例如 "userId == 1 && source == 'manual.pdf'"，为空时不过滤
+     * @return 匹配到的文档
+     */
+    public List<Document> query(String query, double similarityThreshold, int topK, String filterExpression) {
+        SearchRequest request = SearchRequest.query(query)
+            .withSimilarityThreshold(similarityThreshold)
+            .withTopK(topK);
+        if (filterExpression != null && !filterExpression.isBlank()) {
+            request = request.withFilterExpression(filterExpression);
+        }
+        return vectorStore.similaritySearch(request);
+    }
+}
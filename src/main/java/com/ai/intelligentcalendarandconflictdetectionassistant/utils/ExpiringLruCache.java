@@ -0,0 +1,253 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 带容量上限和过期时间的进程内LRU缓存
+ * 同一个key并发未命中时只执行一次加载（single-flight），其余调用方等待同一个结果
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxSize;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+
+    // accessOrder=true，迭代顺序即最近最少使用顺序
+    private final LinkedHashMap<K, Entry<V>> map;
+    private final Map<K, Load<V>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * @param maxSize 最大条目数
+     * @param expireAfterWrite 写入后过期时间，null或0表示不过期
+     * @param expireAfterAccess 最后访问后过期时间，null或0表示不过期
+     */
+    public ExpiringLruCache(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize必须大于0");
+        }
+        this.maxSize = maxSize;
+        this.expireAfterWriteNanos = expireAfterWrite != null ? expireAfterWrite.toNanos() : 0;
+        this.expireAfterAccessNanos = expireAfterAccess != null ? expireAfterAccess.toNanos() : 0;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ExpiringLruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期返回null
+     */
+    public V getIfPresent(K key) {
+        V value = lookup(key);
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 获取缓存值，未命中时调用loader加载并缓存
+     * 同一key的并发未命中只会触发一次loader调用；loader返回null时不缓存
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = lookup(key);
+        if (value != null) {
+            hitCount.incrementAndGet();
+            return value;
+        }
+        missCount.incrementAndGet();
+
+        Load<V> mine = new Load<>();
+        Load<V> inFlight = loading.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            return join(inFlight.future);
+        }
+
+        try {
+            // 抢到加载权之后再确认一次，避免刚完成的加载被重复执行
+            value = lookup(key);
+            if (value == null) {
+                loadCount.incrementAndGet();
+                value = loader.apply(key);
+                if (value != null) {
+                    synchronized (map) {
+                        // 加载期间被invalidate的结果只返回给调用方，不写入缓存
+                        if (!mine.invalidated) {
+                            map.put(key, new Entry<>(value, System.nanoTime()));
+                        }
+                    }
+                }
+            }
+            mine.future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    /**
+     * 写入缓存
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            invalidate(key);
+            return;
+        }
+        synchronized (map) {
+            map.put(key, new Entry<>(value, System.nanoTime()));
+            Load<V> inFlight = loading.get(key);
+            if (inFlight != null) {
+                inFlight.invalidated = true;
+            }
+        }
+    }
+
+    /**
+     * 仅当key存在且未过期时重新计算值，返回null表示移除
+     * @return 计算后的值，key不存在时返回null
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry == null || isExpired(entry, System.nanoTime())) {
+                map.remove(key);
+                return null;
+            }
+            V newValue = remapping.apply(key, entry.value);
+            if (newValue == null) {
+                map.remove(key);
+            } else {
+                map.put(key, new Entry<>(newValue, entry.writtenAt));
+            }
+            return newValue;
+        }
+    }
+
+    /**
+     * 移除缓存，同时让正在进行的加载结果失效
+     */
+    public void invalidate(K key) {
+        synchronized (map) {
+            map.remove(key);
+            Load<V> inFlight = loading.get(key);
+            if (inFlight != null) {
+                inFlight.invalidated = true;
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        synchronized (map) {
+            map.clear();
+            loading.values().forEach(load -> load.invalidated = true);
+        }
+    }
+
+    /**
+     * 清理已过期的条目
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        synchronized (map) {
+            Iterator<Entry<V>> iterator = map.values().iterator();
+            while (iterator.hasNext()) {
+                if (isExpired(iterator.next(), now)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    public long loadCount() {
+        return loadCount.get();
+    }
+
+    private V lookup(K key) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            long now = System.nanoTime();
+            if (isExpired(entry, now)) {
+                map.remove(key);
+                return null;
+            }
+            entry.accessedAt = now;
+            return entry.value;
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return (expireAfterWriteNanos > 0 && now - entry.writtenAt >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - entry.accessedAt >= expireAfterAccessNanos);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long writtenAt;
+        long accessedAt;
+
+        Entry(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.accessedAt = System.nanoTime();
+        }
+    }
+
+    private static final class Load<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        volatile boolean invalidated;
+    }
+}
@@ -0,0 +1,212 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.utils.ExpiringLruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带内容哈希缓存的嵌入模型
+ * 以“模型名 + 文本的 SHA-256”为键，先查进程内LRU，再查Redis（小端 float32 字节数组，带过期时间），
+ * 都未命中才调用底层模型；同一批中重复的文本只发送一次。相同文本在同一模型下的向量是确定的，缓存不需要失效。
+ * 返回的数组都是副本，调用方可以原地修改（例如归一化）。
+ * 指标：embedding.cache.requests（按 result=local/redis/miss 计数，local 与 redis 之和即节省的模型调用次数）、
+ * embedding.model.calls（底层模型调用耗时，乘以命中次数即节省的等待时间）。
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final String KEY_PREFIX = "embedding-cache:";
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final ExpiringLruCache<String, float[]> local;
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final Duration redisTtl;
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Timer modelCalls;
+
+    /**
+     * @param modelName 嵌入模型名，作为缓存键的一部分，换模型后不会读到旧向量
+     * @param localMaxSize 进程内缓存的向量数
+     * @param redisTtl Redis中缓存的过期时间
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate,
+                                 String modelName,
+                                 RedisConnectionFactory connectionFactory,
+                                 MeterRegistry meterRegistry,
+                                 int localMaxSize,
+                                 Duration redisTtl) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.local = new ExpiringLruCache<>(localMaxSize, null, null);
+        this.redisTtl = redisTtl;
+
+        this.redisTemplate = new RedisTemplate<>();
+        this.redisTemplate.setConnectionFactory(connectionFactory);
+        this.redisTemplate.setKeySerializer(new StringRedisSerializer());
+        this.redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        this.redisTemplate.afterPropertiesSet();
+
+        this.localHits = Counter.builder("embedding.cache.requests").tag("result", "local")
+            .description("嵌入缓存查询次数").register(meterRegistry);
+        this.redisHits = Counter.builder("embedding.cache.requests").tag("result", "redis")
+            .description("嵌入缓存查询次数").register(meterRegistry);
+        this.misses = Counter.builder("embedding.cache.requests").tag("result", "miss")
+            .description("嵌入缓存查询次数").register(meterRegistry);
+        this.modelCalls = Timer.builder("embedding.model.calls")
+            .description("缓存未命中时调用嵌入模型的耗时")
+            .tag("model", modelName)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embed(List.of(text)).get(0);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getContent());
+    }
+
+    /**
+     * 按 texts 的顺序返回向量，只对两级缓存都未命中的不同文本调用一次底层模型
+     */
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<String> keys = new ArrayList<>(texts.size());
+        Map<String, float[]> found = new LinkedHashMap<>();
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (String text : texts) {
+            String key = key(text);
+            keys.add(key);
+            if (found.containsKey(key) || pending.containsKey(key)) {
+                continue;
+            }
+            float[] cached = local.getIfPresent(key);
+            if (cached != null) {
+                localHits.increment();
+                found.put(key, cached);
+            } else {
+                pending.put(key, text);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            loadFromRedis(pending, found);
+        }
+        if (!pending.isEmpty()) {
+            misses.increment(pending.size());
+            List<String> missingTexts = new ArrayList<>(pending.values());
+            List<float[]> embeddings = modelCalls.record(() -> delegate.embed(missingTexts));
+            Map<String, float[]> computed = new LinkedHashMap<>();
+            int i = 0;
+            for (String key : pending.keySet()) {
+                float[] embedding = embeddings.get(i++);
+                computed.put(key, embedding);
+                local.put(key, embedding);
+            }
+            found.putAll(computed);
+            saveToRedis(computed);
+        }
+
+        List<float[]> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(found.get(key).clone());
+        }
+        return result;
+    }
+
+    /**
+     * 直接调用底层模型，不经过缓存
+     */
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * 用一次 MGET 查询 pending 中的文本，命中的移到 found 并回填进程内缓存
+     * Redis不可用时只记录日志，按未命中处理
+     */
+    private void loadFromRedis(Map<String, String> pending, Map<String, float[]> found) {
+        List<String> keys = new ArrayList<>(pending.keySet());
+        List<byte[]> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(keys);
+        } catch (RuntimeException e) {
+            log.warn("Embedding cache lookup failed, calling model directly: {}", e.getMessage());
+            return;
+        }
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            float[] embedding = EmbeddingCodec.decode(value, null);
+            pending.remove(keys.get(i));
+            found.put(keys.get(i), embedding);
+            local.put(keys.get(i), embedding);
+            redisHits.increment();
+        }
+    }
+
+    private void saveToRedis(Map<String, float[]> computed) {
+        long ttlSeconds = redisTtl.toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                computed.forEach((key, embedding) -> connection.stringCommands().setEx(
+                    key.getBytes(StandardCharsets.UTF_8), ttlSeconds, EmbeddingCodec.encode(embedding)));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} embeddings to cache: {}", computed.size(), e.getMessage());
+        }
+    }
+
+    private String key(String text) {
+        return KEY_PREFIX + modelName + ":" + sha256(text);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * 向量编解码
+ * 向量以小端 float32 字节数组存储，每维固定4字节，解码时直接写入可复用的 float[]，
+ * 不产生装箱对象也不需要逐个解析字符串。
+ * 旧版本把向量存为逗号分隔的十进制字符串，{@link #parseLegacy} 仅用于迁移这类数据。
+ */
+public final class EmbeddingCodec {
+
+    private EmbeddingCodec() {
+    }
+
+    public static byte[] encode(float[] vector) {
+        byte[] bytes = new byte[vector.length * Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(vector);
+        return bytes;
+    }
+
+    /**
+     * 解码为 float[]，reuse 长度正好时直接写入 reuse，否则新建数组
+     */
+    public static float[] decode(byte[] bytes, float[] reuse) {
+        int dimensions = bytes.length / Float.BYTES;
+        float[] vector = reuse != null && reuse.length == dimensions ? reuse : new float[dimensions];
+        FloatBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        buffer.get(vector, 0, dimensions);
+        return vector;
+    }
+
+    /**
+     * 解析旧版逗号分隔的字符串向量
+     */
+    public static float[] parseLegacy(String text) {
+        String[] parts = text.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i].trim());
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,425 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内 HNSW（分层可导航小世界图）近似最近邻索引，按余弦相似度检索
+ * 向量插入时归一化，相似度即点积。每个节点第0层最多 2*M 个邻居、其余层最多 M 个，
+ * 邻居按启发式规则挑选（保留方向互不相同的近邻），查询代价约为 O(efSearch·log N·d)。
+ * 删除和替换只把旧节点标记为删除，节点仍参与导航但不出现在结果中；被删除的节点超过一半时整体重建。
+ * 读写锁保护：查询可以并发，插入和删除互斥。
+ */
+public class HnswIndex {
+
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Integer> nodeById = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    /**
+     * @param m 每层邻居数，越大召回率越高、内存和插入耗时越大，常用 12~48
+     * @param efConstruction 插入时的候选集大小
+     */
+    public HnswIndex(int m, int efConstruction) {
+        this(m, efConstruction, 42);
+    }
+
+    HnswIndex(int m, int efConstruction, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("M必须不小于2");
+        }
+        this.m = m;
+        this.maxLinksLevel0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 插入或替换向量
+     */
+    public void add(String id, float[] vector) {
+        float[] normalized = VectorMath.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodeById.get(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insert(id, normalized);
+            if (existing != null) {
+                // 同一批ID反复重新导入时，被替换的旧节点同样需要回收
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除向量，不存在时忽略
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeById.remove(id);
+            if (node != null) {
+                markDeleted(node);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询与 query 最相似的 k 个向量，按相似度降序
+     * @param efSearch 查询时的候选集大小，越大召回率越高、越慢，实际取 max(efSearch, k)
+     */
+    public List<Match> search(float[] query, int k, int efSearch) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] normalized = VectorMath.normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(normalized, current, level);
+            }
+            PriorityQueue<Candidate> found = searchLayer(normalized, current, Math.max(efSearch, k), 0);
+
+            List<Candidate> live = new ArrayList<>(found.size());
+            for (Candidate candidate : found) {
+                if (!nodes.get(candidate.node()).deleted) {
+                    live.add(candidate);
+                }
+            }
+            live.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+            List<Match> matches = new ArrayList<>(Math.min(k, live.size()));
+            for (int i = 0; i < live.size() && i < k; i++) {
+                Candidate candidate = live.get(i);
+                matches.add(new Match(nodes.get(candidate.node()).id, candidate.similarity()));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 遍历未删除的向量，回调的数组是索引内部持有的归一化向量，调用方不能修改
+     */
+    public void forEach(BiConsumer<String, float[]> consumer) {
+        lock.readLock().lock();
+        try {
+            for (Node node : nodes) {
+                if (!node.deleted) {
+                    consumer.accept(node.id, node.vector);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 未删除的向量数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String id, float[] vector) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int nodeIndex = nodes.size();
+        Node node = new Node(id, vector, level, m, maxLinksLevel0);
+        nodes.add(node);
+        nodeById.put(id, nodeIndex);
+
+        if (entryPoint < 0) {
+            entryPoint = nodeIndex;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(vector, current, efConstruction, l);
+            List<Candidate> candidates = new ArrayList<>(found);
+            candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+            current = candidates.get(0).node();
+
+            int maxLinks = l == 0 ? maxLinksLevel0 : m;
+            for (Candidate neighbor : selectNeighbors(candidates, m)) {
+                node.link(l, neighbor.node());
+                connect(neighbor.node(), nodeIndex, l, maxLinks);
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = nodeIndex;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * 把 target 加入 from 在 level 层的邻居，超过上限时按启发式规则重新挑选
+     */
+    private void connect(int from, int target, int level, int maxLinks) {
+        Node node = nodes.get(from);
+        if (node.linkCount(level) < maxLinks) {
+            node.link(level, target);
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(maxLinks + 1);
+        int[] links = node.links[level];
+        for (int i = 0; i < node.sizes[level]; i++) {
+            candidates.add(new Candidate(links[i], dot(node.vector, nodes.get(links[i]).vector)));
+        }
+        candidates.add(new Candidate(target, dot(node.vector, nodes.get(target).vector)));
+        candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        node.sizes[level] = 0;
+        for (Candidate selected : selectNeighbors(candidates, maxLinks)) {
+            node.link(level, selected.node());
+        }
+    }
+
+    /**
+     * 启发式挑选邻居：候选按相似度降序，只有当它离查询点比离所有已选邻居都近时才选中，
+     * 不足 count 个时用被跳过的候选补足，保证图的连通性
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> sortedCandidates, int count) {
+        List<Candidate> selected = new ArrayList<>(count);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : sortedCandidates) {
+            if (selected.size() >= count) {
+                break;
+            }
+            float[] vector = nodes.get(candidate.node()).vector;
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (dot(vector, nodes.get(chosen.node()).vector) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < count; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * 在 level 层从 start 出发贪心移动到与 query 最相似的节点
+     */
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        double best = dot(query, nodes.get(current).vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            int[] links = node.links[level];
+            for (int i = 0; i < node.sizes[level]; i++) {
+                double similarity = dot(query, nodes.get(links[i]).vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在 level 层做 ef 宽度的最佳优先搜索
+     * @return 最多 ef 个结果，堆顶为其中相似度最低的
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        Visited seen = visited.get();
+        seen.reset(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+            Comparator.comparingDouble(Candidate::similarity).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(ef + 1,
+            Comparator.comparingDouble(Candidate::similarity));
+
+        Candidate first = new Candidate(start, dot(query, nodes.get(start).vector));
+        seen.add(start);
+        candidates.add(first);
+        results.add(first);
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (closest.similarity() < results.peek().similarity() && results.size() >= ef) {
+                break;
+            }
+            Node node = nodes.get(closest.node());
+            int[] links = node.links[level];
+            for (int i = 0; i < node.sizes[level]; i++) {
+                int neighbor = links[i];
+                if (!seen.add(neighbor)) {
+                    continue;
+                }
+                double similarity = dot(query, nodes.get(neighbor).vector);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbor, similarity);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private void markDeleted(int nodeIndex) {
+        Node node = nodes.get(nodeIndex);
+        if (!node.deleted) {
+            node.deleted = true;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * 图中的节点数，包含已标记删除、尚未回收的节点
+     */
+    int allocatedNodes() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (deletedCount > nodes.size() / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 只用未删除的节点重建整张图
+     */
+    private void compact() {
+        List<Node> live = new ArrayList<>(nodes.size() - deletedCount);
+        for (Node node : nodes) {
+            if (!node.deleted) {
+                live.add(node);
+            }
+        }
+        nodes.clear();
+        nodeById.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        deletedCount = 0;
+        for (Node node : live) {
+            insert(node.id, node.vector);
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        return VectorMath.dot(a, b);
+    }
+
+    /**
+     * 查询结果
+     */
+    public record Match(String id, double similarity) {
+    }
+
+    private record Candidate(int node, double similarity) {
+    }
+
+    private static final class Node {
+        final String id;
+        final float[] vector;
+        final int[][] links;
+        final int[] sizes;
+        boolean deleted;
+
+        Node(String id, float[] vector, int level, int m, int maxLinksLevel0) {
+            this.id = id;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.sizes = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxLinksLevel0 : m];
+            }
+        }
+
+        int linkCount(int level) {
+            return sizes[level];
+        }
+
+        void link(int level, int target) {
+            links[level][sizes[level]++] = target;
+        }
+    }
+
+    /**
+     * 按代数标记的访问集合，每次查询不需要清空数组
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        boolean add(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以进程内 HNSW 图做近似最近邻检索的Redis向量数据库
+ * Redis 仍是唯一的持久化存储：启动时从Redis读取全部向量建图，add/delete 写入Redis后增量更新图，
+ * 查询只在图上找出 topK 个文档ID，再用一次流水线读取这些文档的内容，不再逐个扫描全部向量。
+ * 带元数据过滤条件的查询交给父类：先用二级索引求出候选文档，只对候选文档精确打分。
+ * 配置了快照文件时，启动先映射快照（见 {@link VectorSnapshot}）并从变更日志追赶，立即可以检索
+ * （建图完成前在映射内存上逐个打分），图在后台线程中从快照建好，不再从Redis读取全部向量；
+ * 建图完成和关闭时重新写入快照。
+ */
+@Slf4j
+public class HnswRedisVectorStore extends SimpleRedisVectorStore implements AutoCloseable {
+
+    private final HnswIndex index;
+    private final int efSearch;
+    private final Path snapshotPath;
+    private final VectorChangeLog changeLog;
+
+    // 已经反映到图中的变更日志序号，作为下次写快照的序号
+    // 本实例的写入紧接在该序号之后时随之前进；其他实例写入过之后不再前进，其后的变更在下次启动时追赶
+    private final AtomicLong caughtUpSequence = new AtomicLong();
+
+    // 从快照启动、图尚未建好期间用于检索的数据，建好后置为null
+    private volatile ColdCorpus cold;
+
+    /**
+     * @param indexedMetadataKeys 建立二级索引的元数据键
+     * @param quantization 向量存储模式，只影响走扫描路径的带过滤条件查询
+     * @param rerankFactor int8 模式下精确重排的候选倍数
+     * @param m HNSW 每层邻居数
+     * @param efConstruction 建图时的候选集大小
+     * @param efSearch 查询时的候选集大小
+     * @param snapshotPath 本地快照文件，为null时不使用快照，每次启动从Redis建图
+     * @param changeLogSize 变更日志保留的条数
+     */
+    public HnswRedisVectorStore(EmbeddingModel embeddingModel,
+                                RedisConnectionFactory connectionFactory,
+                                String prefix,
+                                int scanBatchSize,
+                                Collection<String> indexedMetadataKeys,
+                                Quantization quantization,
+                                int rerankFactor,
+                                int m,
+                                int efConstruction,
+                                int efSearch,
+                                Path snapshotPath,
+                                int changeLogSize) {
+        super(embeddingModel, connectionFactory, prefix, scanBatchSize, indexedMetadataKeys, quantization, rerankFactor);
+        if (quantization == Quantization.INT8) {
+            // 图上的检索使用 float32 向量，int8 编码只用于带过滤条件、走扫描路径的查询
+            log.warn("quantization=int8 only speeds up filtered queries when index-type=hnsw; "
+                + "unfiltered queries search the HNSW graph with float32 vectors");
+        }
+        this.index = new HnswIndex(m, efConstruction);
+        this.efSearch = efSearch;
+        this.snapshotPath = snapshotPath;
+        this.changeLog = snapshotPath != null
+            ? new VectorChangeLog(connectionFactory, prefix != null ? prefix : "doc:", changeLogSize) : null;
+        if (changeLog == null) {
+            rebuild();
+        } else if (!startFromSnapshot()) {
+            caughtUpSequence.set(changeLog.sequence());
+            rebuild();
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * 从Redis读取全部向量重新建图
+     */
+    private void rebuild() {
+        long start = System.nanoTime();
+        forEachEmbedding(index::add);
+        log.info("Built HNSW index with {} vectors from Redis in {} ms, heap used {} MB",
+            index.size(), (System.nanoTime() - start) / 1_000_000, usedHeapMegabytes());
+    }
+
+    /**
+     * 映射快照并追赶快照之后的变更，成功后在后台建图
+     * @return 快照不存在、不可读、变更日志已无法覆盖或追赶后的文档数与Redis不一致时返回false，需要全量重建
+     */
+    private boolean startFromSnapshot() {
+        long start = System.nanoTime();
+        VectorSnapshot snapshot;
+        try {
+            snapshot = VectorSnapshot.open(snapshotPath);
+        } catch (NoSuchFileException e) {
+            log.info("No vector snapshot at {}, building index from Redis", snapshotPath);
+            return false;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable vector snapshot {}: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+        long sequence = changeLog.sequence();
+        VectorChangeLog.Changes changes = changeLog.since(snapshot.sequence());
+        if (changes == null) {
+            log.warn("Change log no longer covers snapshot sequence {}, building index from Redis", snapshot.sequence());
+            return false;
+        }
+
+        Set<String> changed = ConcurrentHashMap.newKeySet();
+        changed.addAll(changes.added());
+        changed.addAll(changes.deleted());
+        ColdCorpus corpus = new ColdCorpus(snapshot, changed, new ConcurrentHashMap<>(loadEmbeddings(changes.added())));
+        long expected = corpus.size();
+        long actual = documentCount();
+        if (expected != actual) {
+            log.warn("Snapshot plus change log has {} documents but Redis has {}, building index from Redis",
+                expected, actual);
+            return false;
+        }
+
+        caughtUpSequence.set(sequence);
+        cold = corpus;
+        log.info("Vector store searchable from snapshot in {} ms: {} vectors at sequence {}, {} changes caught up, "
+                + "heap used {} MB", (System.nanoTime() - start) / 1_000_000, snapshot.size(), snapshot.sequence(),
+            changes.size(), usedHeapMegabytes());
+        Thread builder = new Thread(() -> buildFromSnapshot(corpus), "hnsw-snapshot-build");
+        builder.setDaemon(true);
+        builder.start();
+        return true;
+    }
+
+    /**
+     * 从映射的快照和追赶到的向量建图，期间被写入或删除的文档以最新状态为准
+     */
+    private void buildFromSnapshot(ColdCorpus corpus) {
+        long start = System.nanoTime();
+        try {
+            VectorSnapshot snapshot = corpus.snapshot;
+            for (int i = 0; i < snapshot.size(); i++) {
+                String id = snapshot.id(i);
+                synchronized (corpus) {
+                    if (!corpus.changed.contains(id)) {
+                        index.add(id, snapshot.vector(i));
+                    }
+                }
+            }
+            for (String id : corpus.overlay.keySet()) {
+                synchronized (corpus) {
+                    float[] vector = corpus.overlay.get(id);
+                    if (vector != null) {
+                        index.add(id, vector);
+                    }
+                }
+            }
+            cold = null;
+        } catch (RuntimeException e) {
+            log.error("Failed to build HNSW index from snapshot, keep searching the snapshot", e);
+            return;
+        }
+        log.info("Built HNSW index with {} vectors from snapshot in {} ms, heap used {} MB",
+            index.size(), (System.nanoTime() - start) / 1_000_000, usedHeapMegabytes());
+        writeSnapshot();
+    }
+
+    /**
+     * 把图中的全部向量写入快照，写入后截断变更日志；失败只记录日志
+     */
+    private synchronized void writeSnapshot() {
+        long start = System.nanoTime();
+        // 先读序号再遍历图：不大于该序号的变更在序号前进之前就已写入图
+        long sequence = caughtUpSequence.get();
+        List<String> ids = new ArrayList<>(index.size());
+        List<float[]> vectors = new ArrayList<>(index.size());
+        index.forEach((id, vector) -> {
+            ids.add(id);
+            vectors.add(vector);
+        });
+        try {
+            VectorSnapshot.write(snapshotPath, sequence, ids, vectors);
+            changeLog.trim();
+            log.info("Wrote vector snapshot {} with {} vectors at sequence {} in {} ms",
+                snapshotPath, ids.size(), sequence, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write vector snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭时保存快照，下次启动只需追赶之后的变更
+     */
+    @Override
+    public void close() {
+        if (changeLog != null && cold == null) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * 先更新图再记录变更日志，保证写快照时读到的序号之前的变更都已在图中
+     */
+    @Override
+    protected void onAdded(List<String> ids, List<float[]> embeddings) {
+        ColdCorpus corpus = cold;
+        if (corpus != null) {
+            synchronized (corpus) {
+                for (int i = 0; i < ids.size(); i++) {
+                    corpus.changed.add(ids.get(i));
+                    corpus.overlay.put(ids.get(i), embeddings.get(i));
+                    index.add(ids.get(i), embeddings.get(i));
+                }
+            }
+        } else {
+            for (int i = 0; i < ids.size(); i++) {
+                index.add(ids.get(i), embeddings.get(i));
+            }
+        }
+        if (changeLog != null) {
+            advanceCaughtUp(changeLog.recordAdded(ids), ids.size());
+        }
+    }
+
+    @Override
+    protected void onDeleted(List<String> ids) {
+        ColdCorpus corpus = cold;
+        if (corpus != null) {
+            synchronized (corpus) {
+                for (String id : ids) {
+                    corpus.changed.add(id);
+                    corpus.overlay.remove(id);
+                    index.remove(id);
+                }
+            }
+        } else {
+            for (String id : ids) {
+                index.remove(id);
+            }
+        }
+        if (changeLog != null) {
+            advanceCaughtUp(changeLog.recordDeleted(ids), ids.size());
+        }
+    }
+
+    /**
+     * 这批变更的序号紧接在 caughtUpSequence 之后（期间没有其他实例写入）时前进到这批的最大序号，
+     * 否则保持不变，由下次启动追赶
+     */
+    private void advanceCaughtUp(long lastSequence, int count) {
+        if (lastSequence > 0) {
+            caughtUpSequence.compareAndSet(lastSequence - count, lastSequence);
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request == null || request.getQuery() == null) {
+            return Collections.emptyList();
+        }
+        if (request.hasFilterExpression()) {
+            return super.similaritySearch(request);
+        }
+
+        float[] queryEmbedding = embed(request.getQuery());
+        Double similarityThreshold = request.getSimilarityThreshold();
+        double threshold = similarityThreshold != null ? similarityThreshold : 0.0;
+        Integer topKValue = request.getTopK();
+        int topK = topKValue != null ? topKValue : 4;
+
+        ColdCorpus corpus = cold;
+        List<HnswIndex.Match> matches = corpus != null
+            ? corpus.search(queryEmbedding, topK, threshold)
+            : index.search(queryEmbedding, topK, efSearch);
+        List<String> ids = new ArrayList<>(topK);
+        for (HnswIndex.Match match : matches) {
+            if (match.similarity() >= threshold) {
+                ids.add(match.id());
+            }
+        }
+        return loadDocuments(ids);
+    }
+
+    private static long usedHeapMegabytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+    }
+
+    /**
+     * 建图完成前的检索数据：映射的快照，加上快照之后变更过的文档
+     * changed 中的文档不再使用快照里的向量，其中仍存在的文档的最新向量在 overlay 中
+     */
+    private static final class ColdCorpus {
+
+        final VectorSnapshot snapshot;
+        final Set<String> changed;
+        final Map<String, float[]> overlay;
+
+        ColdCorpus(VectorSnapshot snapshot, Set<String> changed, Map<String, float[]> overlay) {
+            this.snapshot = snapshot;
+            this.changed = changed;
+            this.overlay = overlay;
+        }
+
+        long size() {
+            long size = overlay.size();
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (!changed.contains(snapshot.id(i))) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        /**
+         * 在映射内存上逐个打分，只有可能进入前K的行才解码ID
+         */
+        List<HnswIndex.Match> search(float[] query, int topK, double threshold) {
+            if (topK <= 0) {
+                return List.of();
+            }
+            PriorityQueue<HnswIndex.Match> top =
+                new PriorityQueue<>(topK + 1, Comparator.comparingDouble(HnswIndex.Match::similarity));
+            for (int i = 0; i < snapshot.size(); i++) {
+                double similarity = snapshot.dot(i, query);
+                if (similarity < threshold || (top.size() >= topK && similarity <= top.peek().similarity())) {
+                    continue;
+                }
+                String id = snapshot.id(i);
+                if (!changed.contains(id)) {
+                    offer(top, topK, new HnswIndex.Match(id, similarity));
+                }
+            }
+            for (Map.Entry<String, float[]> entry : overlay.entrySet()) {
+                double similarity = VectorMath.dot(query, entry.getValue());
+                if (similarity >= threshold) {
+                    offer(top, topK, new HnswIndex.Match(entry.getKey(), similarity));
+                }
+            }
+            List<HnswIndex.Match> matches = new ArrayList<>(top);
+            matches.sort(Comparator.comparingDouble(HnswIndex.Match::similarity).reversed());
+            return matches;
+        }
+
+        private static void offer(PriorityQueue<HnswIndex.Match> top, int topK, HnswIndex.Match match) {
+            if (top.size() >= topK && match.similarity() <= top.peek().similarity()) {
+                return;
+            }
+            top.add(match);
+            if (top.size() > topK) {
+                top.poll();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 元数据过滤表达式的求值和基于二级索引的候选集计算
+ * {@link #candidates} 只用索引缩小范围（结果可能包含不满足条件的文档），
+ * 最终是否命中总是由 {@link #matches} 按文档的完整元数据判断。
+ */
+final class MetadataFilter {
+
+    private MetadataFilter() {
+    }
+
+    /**
+     * 二级索引查询
+     */
+    interface IndexLookup {
+
+        boolean isIndexed(String key);
+
+        /**
+         * 元数据 key 等于 value 的文档ID
+         */
+        Set<String> equalTo(String key, Object value);
+
+        /**
+         * 元数据 key 为数值且在给定范围内的文档ID，min/max 为null表示不限
+         */
+        Set<String> range(String key, Double min, boolean minInclusive, Double max, boolean maxInclusive);
+    }
+
+    /**
+     * 用二级索引计算可能满足表达式的文档ID
+     * @return 候选文档ID；表达式中有无法用索引求值的部分导致无法缩小范围时返回null，调用方需扫描全部文档
+     */
+    static Set<String> candidates(Filter.Expression expression, IndexLookup lookup) {
+        switch (expression.type()) {
+            case AND -> {
+                Set<String> left = candidates(operand(expression.left()), lookup);
+                Set<String> right = candidates(operand(expression.right()), lookup);
+                if (left == null) {
+                    return right;
+                }
+                if (right == null) {
+                    return left;
+                }
+                left.retainAll(right);
+                return left;
+            }
+            case OR -> {
+                Set<String> left = candidates(operand(expression.left()), lookup);
+                Set<String> right = left != null ? candidates(operand(expression.right()), lookup) : null;
+                if (left == null || right == null) {
+                    return null;
+                }
+                left.addAll(right);
+                return left;
+            }
+            default -> {
+                if (!(expression.left() instanceof Filter.Key key) || !lookup.isIndexed(key.key())) {
+                    return null;
+                }
+                Object value = ((Filter.Value) expression.right()).value();
+                return switch (expression.type()) {
+                    case EQ -> lookup.equalTo(key.key(), value);
+                    case IN -> {
+                        Set<String> ids = new HashSet<>();
+                        for (Object item : (Collection<?>) value) {
+                            ids.addAll(lookup.equalTo(key.key(), item));
+                        }
+                        yield ids;
+                    }
+                    case GT -> numeric(value) ? lookup.range(key.key(), toDouble(value), false, null, false) : null;
+                    case GTE -> numeric(value) ? lookup.range(key.key(), toDouble(value), true, null, false) : null;
+                    case LT -> numeric(value) ? lookup.range(key.key(), null, false, toDouble(value), false) : null;
+                    case LTE -> numeric(value) ? lookup.range(key.key(), null, false, toDouble(value), true) : null;
+                    default -> null;
+                };
+            }
+        }
+    }
+
+    /**
+     * 按元数据判断文档是否满足表达式，元数据中缺少的 key 只满足 NE 和 NIN
+     */
+    static boolean matches(Filter.Expression expression, Map<String, Object> metadata) {
+        switch (expression.type()) {
+            case AND:
+                return matches(operand(expression.left()), metadata) && matches(operand(expression.right()), metadata);
+            case OR:
+                return matches(operand(expression.left()), metadata) || matches(operand(expression.right()), metadata);
+            case NOT:
+                return !matches(operand(expression.left()), metadata);
+            default:
+                break;
+        }
+        Object actual = metadata.get(((Filter.Key) expression.left()).key());
+        Object expected = ((Filter.Value) expression.right()).value();
+        return switch (expression.type()) {
+            case EQ -> actual != null && equal(actual, expected);
+            case NE -> actual == null || !equal(actual, expected);
+            case IN -> actual != null && contains((Collection<?>) expected, actual);
+            case NIN -> actual == null || !contains((Collection<?>) expected, actual);
+            case GT -> actual != null && compare(actual, expected) > 0;
+            case GTE -> actual != null && compare(actual, expected) >= 0;
+            case LT -> actual != null && compare(actual, expected) < 0;
+            case LTE -> actual != null && compare(actual, expected) <= 0;
+            default -> throw new IllegalArgumentException("不支持的过滤条件: " + expression.type());
+        };
+    }
+
+    /**
+     * 写入二级索引时使用的取值，数值统一为去掉多余小数位的字符串，保证 1 和 1.0 落在同一个索引
+     */
+    static String indexValue(Object value) {
+        if (value instanceof Number number) {
+            double d = number.doubleValue();
+            return d == Math.rint(d) && !Double.isInfinite(d) ? Long.toString((long) d) : Double.toString(d);
+        }
+        return String.valueOf(value);
+    }
+
+    static boolean numeric(Object value) {
+        return value instanceof Number;
+    }
+
+    static double toDouble(Object value) {
+        return ((Number) value).doubleValue();
+    }
+
+    private static Filter.Expression operand(Filter.Operand operand) {
+        return operand instanceof Filter.Group group ? group.content() : (Filter.Expression) operand;
+    }
+
+    private static boolean equal(Object actual, Object expected) {
+        if (numeric(actual) && numeric(expected)) {
+            return toDouble(actual) == toDouble(expected);
+        }
+        return Objects.equals(indexValue(actual), indexValue(expected));
+    }
+
+    private static boolean contains(Collection<?> expected, Object actual) {
+        for (Object item : expected) {
+            if (equal(actual, item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 数值按大小比较，其他按字符串比较（ISO 格式的时间可以直接比较）
+     */
+    private static int compare(Object actual, Object expected) {
+        if (numeric(actual) && numeric(expected)) {
+            return Double.compare(toDouble(actual), toDouble(expected));
+        }
+        return String.valueOf(actual).compareTo(String.valueOf(expected));
+    }
+}
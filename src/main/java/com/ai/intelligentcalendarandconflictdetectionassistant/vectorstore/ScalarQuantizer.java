@@ -0,0 +1,109 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+/**
+ * int8 标量量化
+ * 每个向量按自身的最小值和取值范围线性映射到 [-128, 127]：x ≈ offset + scale * (code + 128)，
+ * 编码为 8 字节头（小端 float32 的 offset、scale）加每维 1 字节，约为 float32 的四分之一。
+ * 查询向量也按最大绝对值对称量化为 int8（q ≈ qScale * qCode），点积直接在两组编码上用整数计算：
+ * q·x ≈ offset * Σq + scale * (qScale * Σ qCode_i * code_i + 128 * Σq)，查询的编码和 Σq 每次查询只算一次。
+ */
+public final class ScalarQuantizer {
+
+    private static final int HEADER_BYTES = 8;
+
+    private ScalarQuantizer() {
+    }
+
+    public static byte[] encode(float[] vector) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : vector) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        float scale = max > min ? (max - min) / 255f : 0f;
+        byte[] encoded = new byte[HEADER_BYTES + vector.length];
+        writeFloat(encoded, 0, min);
+        writeFloat(encoded, 4, scale);
+        for (int i = 0; i < vector.length; i++) {
+            int code = scale == 0 ? 0 : Math.round((vector[i] - min) / scale);
+            encoded[HEADER_BYTES + i] = (byte) (Math.min(255, Math.max(0, code)) - 128);
+        }
+        return encoded;
+    }
+
+    public static float[] decode(byte[] encoded) {
+        float offset = readFloat(encoded, 0);
+        float scale = readFloat(encoded, 4);
+        float[] vector = new float[encoded.length - HEADER_BYTES];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = offset + scale * (encoded[HEADER_BYTES + i] + 128);
+        }
+        return vector;
+    }
+
+    public static int dimensions(byte[] encoded) {
+        return encoded.length - HEADER_BYTES;
+    }
+
+    /**
+     * 把查询向量对称量化为 int8（q ≈ scale * code），同时记录各维之和，每次查询只做一次
+     */
+    public static Query quantizeQuery(float[] query) {
+        float maxAbs = 0;
+        float sum = 0;
+        for (float value : query) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+            sum += value;
+        }
+        float scale = maxAbs > 0 ? maxAbs / 127f : 0f;
+        byte[] codes = new byte[query.length];
+        for (int i = 0; i < query.length; i++) {
+            codes[i] = scale == 0 ? 0 : (byte) Math.round(query[i] / scale);
+        }
+        return new Query(codes, scale, sum);
+    }
+
+    /**
+     * 查询向量与编码向量的近似点积，维度不同时返回-1
+     * 编码部分用 int 累加，避免逐维转换为 float
+     */
+    public static float dot(Query query, byte[] encoded) {
+        byte[] codes = query.codes();
+        if (codes.length != encoded.length - HEADER_BYTES) {
+            return -1;
+        }
+        int codeDot = 0;
+        for (int i = 0; i < codes.length; i++) {
+            codeDot += codes[i] * encoded[HEADER_BYTES + i];
+        }
+        float offset = readFloat(encoded, 0);
+        float scale = readFloat(encoded, 4);
+        return offset * query.sum() + scale * (query.scale() * codeDot + 128 * query.sum());
+    }
+
+    /**
+     * 量化后的查询向量
+     * @param codes 每维的 int8 编码
+     * @param scale 编码到原值的比例
+     * @param sum 原查询向量各维之和
+     */
+    public record Query(byte[] codes, float scale, float sum) {
+    }
+
+    private static void writeFloat(byte[] bytes, int position, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        bytes[position] = (byte) bits;
+        bytes[position + 1] = (byte) (bits >>> 8);
+        bytes[position + 2] = (byte) (bits >>> 16);
+        bytes[position + 3] = (byte) (bits >>> 24);
+    }
+
+    private static float readFloat(byte[] bytes, int position) {
+        int bits = (bytes[position] & 0xFF)
+            | (bytes[position + 1] & 0xFF) << 8
+            | (bytes[position + 2] & 0xFF) << 16
+            | (bytes[position + 3] & 0xFF) << 24;
+        return Float.intBitsToFloat(bits);
+    }
+}
@@ -1,21 +1,44 @@
 package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * 基于普通Redis的向量数据库实现（不使用Redis Stack）
  * 使用Redis Hash存储文档和向量，实现简单的相似度搜索
+ * 文档ID另外维护在一个Set（prefix + "index"）中，搜索时用 SSCAN 分页遍历并用流水线 HMGET 批量读取，
+ * 不使用会阻塞整个Redis的 KEYS 命令，每批只需一次网络往返。
+ * 向量存放在 vector 字段，格式为小端 float32 字节数组（见 {@link EmbeddingCodec}）；
+ * 旧版本存放在 embedding 字段的逗号分隔字符串在启动时一次性迁移。
+ * 向量写入前归一化为单位长度，查询向量也只归一化一次，打分只剩一次点积（见 {@link VectorMath}）。
+ * 打分阶段只读取向量字段，用大小为 topK 的小顶堆保留最相似的文档ID，最后只为这 topK 个文档读取内容和元数据。
+ * 元数据以JSON存放在 metadata 字段；指定的元数据键另外维护二级索引：
+ * 每个取值一个Set（prefix + "idx:" + key + ":" + value），数值另有一个按值排序的ZSet（prefix + "idx:" + key）。
+ * 带过滤表达式的查询先用二级索引求出候选文档，只对候选文档打分，再按完整元数据精确判断是否满足条件。
+ * quantization=int8 时另外保存 int8 量化编码（q8 字段，见 {@link ScalarQuantizer}），扫描只读取约四分之一大小的编码，
+ * 按近似相似度保留 topK × rerankFactor 个候选，再读取这些候选的 float32 向量精确重排。
  */
 @Slf4j
 public class SimpleRedisVectorStore implements VectorStore {
@@ -23,52 +46,352 @@ public class SimpleRedisVectorStore implements VectorStore {
     private final EmbeddingModel embeddingModel;
     private final RedisTemplate<String, Object> redisTemplate;
     private final String prefix;
-    
+    private final String indexKey;
+    private final String formatKey;
+    private final String metadataIndexKey;
+    private final String quantizationKey;
+    private final int scanBatchSize;
+    private final Set<String> indexedMetadataKeys;
+    private final Quantization quantization;
+    private final int rerankFactor;
+    private final MetadataFilter.IndexLookup indexLookup = new RedisIndexLookup();
+
+    private static final int DEFAULT_SCAN_BATCH_SIZE = 500;
+
+    // 默认建立二级索引的元数据键：来源文件、上传用户、上传时间（毫秒时间戳）
+    public static final List<String> DEFAULT_INDEXED_METADATA = List.of("source", "userId", "uploadTime");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() { };
+
+    // add 时每次嵌入调用的文本数，DashScope 单次请求最多接受10~25条文本
+    private static final int EMBED_BATCH_SIZE = 10;
+
+    // 向量存储格式标记，存在且等于该值时说明旧格式已迁移、已有向量已归一化
+    private static final String VECTOR_FORMAT = "f32le-unit";
+
+    private static final byte[] VECTOR_FIELD = bytes("vector");
+    private static final byte[] METADATA_FIELD = bytes("metadata");
+    private static final byte[] QUANTIZED_FIELD = bytes("q8");
+    private static final byte[] LEGACY_EMBEDDING_FIELD = bytes("embedding");
+
+    private static final byte[][] MIGRATION_FIELDS = {
+        VECTOR_FIELD, LEGACY_EMBEDDING_FIELD
+    };
+
+    private static final byte[][] DOCUMENT_FIELDS = {
+        bytes("content"), METADATA_FIELD
+    };
+
+    // 带过滤条件打分时每个文档读取的字段
+    private static final byte[][] FILTER_FIELDS = {
+        VECTOR_FIELD, METADATA_FIELD
+    };
+
+    private static final byte[][] QUANTIZED_FILTER_FIELDS = {
+        QUANTIZED_FIELD, METADATA_FIELD
+    };
+
+    private static final int DEFAULT_RERANK_FACTOR = 4;
+
+    /**
+     * 向量存储模式
+     */
+    public enum Quantization {
+        /** 只保存 float32 向量 */
+        NONE,
+        /** 另外保存 int8 编码，用编码扫描、用 float32 重排 */
+        INT8
+    }
+
     public SimpleRedisVectorStore(EmbeddingModel embeddingModel, 
                                  RedisConnectionFactory connectionFactory, 
                                  String prefix) {
+        this(embeddingModel, connectionFactory, prefix, DEFAULT_SCAN_BATCH_SIZE);
+    }
+
+    public SimpleRedisVectorStore(EmbeddingModel embeddingModel,
+                                 RedisConnectionFactory connectionFactory,
+                                 String prefix,
+                                 int scanBatchSize) {
+        this(embeddingModel, connectionFactory, prefix, scanBatchSize, DEFAULT_INDEXED_METADATA,
+            Quantization.NONE, DEFAULT_RERANK_FACTOR);
+    }
+
+    /**
+     * @param scanBatchSize 每次 SSCAN 和流水线 HMGET 处理的文档数
+     * @param indexedMetadataKeys 建立二级索引的元数据键
+     * @param quantization 向量存储模式
+     * @param rerankFactor int8 模式下按近似相似度保留 topK 的多少倍候选做精确重排
+     */
+    public SimpleRedisVectorStore(EmbeddingModel embeddingModel,
+                                 RedisConnectionFactory connectionFactory,
+                                 String prefix,
+                                 int scanBatchSize,
+                                 Collection<String> indexedMetadataKeys,
+                                 Quantization quantization,
+                                 int rerankFactor) {
         this.embeddingModel = embeddingModel;
         this.prefix = prefix != null ? prefix : "doc:";
+        this.indexKey = this.prefix + "index";
+        this.formatKey = this.prefix + "format";
+        this.metadataIndexKey = this.prefix + "metadata-index";
+        this.quantizationKey = this.prefix + "quantization";
+        this.scanBatchSize = scanBatchSize > 0 ? scanBatchSize : DEFAULT_SCAN_BATCH_SIZE;
+        this.indexedMetadataKeys = new TreeSet<>(indexedMetadataKeys);
+        this.quantization = quantization != null ? quantization : Quantization.NONE;
+        this.rerankFactor = Math.max(1, rerankFactor);
         
         // 创建RedisTemplate
         this.redisTemplate = new RedisTemplate<>();
         this.redisTemplate.setConnectionFactory(connectionFactory);
         this.redisTemplate.setKeySerializer(new StringRedisSerializer());
+        this.redisTemplate.setValueSerializer(new StringRedisSerializer());
         this.redisTemplate.setHashKeySerializer(new StringRedisSerializer());
-        this.redisTemplate.setHashValueSerializer(new StringRedisSerializer());
+        this.redisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
         this.redisTemplate.afterPropertiesSet();
+
+        rebuildIndexIfMissing();
+        migrateLegacyEmbeddings();
+        rebuildMetadataIndexIfChanged();
+        if (this.quantization == Quantization.INT8) {
+            quantizeExistingVectors();
+        } else {
+            // none 模式下新增的文档没有编码，清除标记使下次启用 int8 时重新补写
+            redisTemplate.delete(quantizationKey);
+        }
+    }
+
+    /**
+     * 首次启用 int8 模式时为已有文档补写量化编码，完成后写入标记
+     * 之后新增的文档在写入时同时生成编码；切回 none 时旧编码保留但不再读取
+     */
+    private void quantizeExistingVectors() {
+        if (Quantization.INT8.name().equals(redisTemplate.opsForValue().get(quantizationKey))) {
+            return;
+        }
+        int[] quantized = {0};
+        forEachIdBatch(ids -> {
+            List<Object> vectors = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String id : ids) {
+                    connection.hashCommands().hGet(bytes(prefix + id), VECTOR_FIELD);
+                }
+                return null;
+            }, RedisSerializer.byteArray());
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    byte[] vector = (byte[]) vectors.get(i);
+                    if (vector != null) {
+                        byte[] codes = ScalarQuantizer.encode(EmbeddingCodec.decode(vector, null));
+                        connection.hashCommands().hSet(bytes(prefix + ids.get(i)), QUANTIZED_FIELD, codes);
+                        quantized[0]++;
+                    }
+                }
+                return null;
+            });
+        });
+        redisTemplate.opsForValue().set(quantizationKey, Quantization.INT8.name());
+        log.info("Quantized {} existing vectors to int8 in {}", quantized[0], prefix);
+    }
+
+    /**
+     * 建立二级索引的元数据键变化（包括首次启用）时，为已有文档补建一次索引
+     * 索引键集合记录在 prefix + "metadata-index" 中；不再索引的键留下的旧索引不会被删除，但也不再被查询
+     */
+    private void rebuildMetadataIndexIfChanged() {
+        String keys = String.join(",", indexedMetadataKeys);
+        if (keys.equals(redisTemplate.opsForValue().get(metadataIndexKey))) {
+            return;
+        }
+        int[] indexed = {0};
+        if (!indexedMetadataKeys.isEmpty()) {
+            forEachIdBatch(ids -> {
+                List<Map<String, Object>> metadata = readMetadata(ids);
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (int i = 0; i < ids.size(); i++) {
+                        if (metadata.get(i) != null) {
+                            writeMetadataIndex(connection, ids.get(i), metadata.get(i), true);
+                            indexed[0]++;
+                        }
+                    }
+                    return null;
+                });
+            });
+        }
+        redisTemplate.opsForValue().set(metadataIndexKey, keys);
+        log.info("Rebuilt metadata index on [{}] for {} documents in {}", keys, indexed[0], prefix);
+    }
+
+    /**
+     * 把旧版逗号分隔字符串格式的向量一次性转换为 float32 字节数组，并把未归一化的向量归一化
+     * 按索引分批处理，每批一次流水线读取、一次流水线写入；完成后写入格式标记，之后启动不再检查
+     */
+    private void migrateLegacyEmbeddings() {
+        if (VECTOR_FORMAT.equals(redisTemplate.opsForValue().get(formatKey))) {
+            return;
+        }
+        int[] migrated = {0};
+        forEachIdBatch(batch -> migrated[0] += migrateBatch(batch));
+        redisTemplate.opsForValue().set(formatKey, VECTOR_FORMAT);
+        if (migrated[0] > 0) {
+            log.info("Migrated {} embeddings to normalized float32 in {}", migrated[0], prefix);
+        }
+    }
+
+    private int migrateBatch(List<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : ids) {
+                connection.hashCommands().hMGet(bytes(prefix + id), MIGRATION_FIELDS);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+
+        Map<String, byte[]> converted = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            List<?> fields = (List<?>) results.get(i);
+            if (fields == null) {
+                continue;
+            }
+            byte[] vectorBytes = (byte[]) fields.get(0);
+            String text = string((byte[]) fields.get(1));
+            try {
+                float[] vector;
+                if (text != null && !text.isEmpty()) {
+                    vector = EmbeddingCodec.parseLegacy(text);
+                } else if (vectorBytes != null) {
+                    vector = EmbeddingCodec.decode(vectorBytes, null);
+                    if (VectorMath.isNormalized(vector)) {
+                        continue;
+                    }
+                } else {
+                    continue;
+                }
+                converted.put(ids.get(i), EmbeddingCodec.encode(VectorMath.normalizeInPlace(vector)));
+            } catch (NumberFormatException e) {
+                log.warn("Skipping document {} with unparsable embedding", ids.get(i));
+            }
+        }
+        if (converted.isEmpty()) {
+            return 0;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            converted.forEach((id, vector) -> {
+                byte[] key = bytes(prefix + id);
+                connection.hashCommands().hSet(key, VECTOR_FIELD, vector);
+                connection.hashCommands().hDel(key, LEGACY_EMBEDDING_FIELD);
+            });
+            return null;
+        });
+        return converted.size();
+    }
+
+    /**
+     * 升级前写入的文档没有ID索引，首次启动时用 SCAN（非阻塞、按游标分批）补建一次
+     */
+    private void rebuildIndexIfMissing() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(indexKey))) {
+            return;
+        }
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").type(DataType.HASH).count(1000).build();
+        List<String> ids = new ArrayList<>();
+        int indexed = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().substring(prefix.length()));
+                if (ids.size() >= scanBatchSize) {
+                    indexed += ids.size();
+                    redisTemplate.opsForSet().add(indexKey, ids.toArray());
+                    ids.clear();
+                }
+            }
+        }
+        if (!ids.isEmpty()) {
+            indexed += ids.size();
+            redisTemplate.opsForSet().add(indexKey, ids.toArray());
+        }
+        if (indexed > 0) {
+            log.info("Rebuilt vector store index {} with {} documents", indexKey, indexed);
+        }
     }
 
+    /**
+     * 按 EMBED_BATCH_SIZE 分批，每批一次多文本嵌入调用、一次流水线写入
+     * 大文件请使用 DocumentIngestionService，它会并行调用嵌入接口并在失败时重试
+     */
     @Override
     public void add(List<Document> documents) {
         if (documents == null || documents.isEmpty()) {
             return;
         }
         
-        for (Document document : documents) {
-            String documentId = prefix + UUID.randomUUID().toString();
-            
-            // 生成文档的向量
-            float[] embeddingArray = embeddingModel.embed(document.getContent());
-            List<Double> embedding = new ArrayList<>();
-            for (float f : embeddingArray) {
-                embedding.add((double) f);
+        for (int from = 0; from < documents.size(); from += EMBED_BATCH_SIZE) {
+            List<Document> batch = documents.subList(from, Math.min(from + EMBED_BATCH_SIZE, documents.size()));
+            List<String> texts = new ArrayList<>(batch.size());
+            for (Document document : batch) {
+                texts.add(document.getContent());
             }
-            
-            // 存储文档信息到Redis Hash
-            Map<String, String> documentData = new HashMap<>();
-            documentData.put("id", documentId);
-            documentData.put("content", document.getContent());
-            documentData.put("metadata", document.getMetadata().toString());
-            documentData.put("embedding", embeddingToString(embedding));
-            
-            redisTemplate.opsForHash().putAll(documentId, documentData);
-            
-            log.debug("Document stored in Redis: {}", documentId);
+            add(batch, embed(texts));
         }
     }
 
-
+    /**
+     * 写入已经生成向量的文档，所有文档的 HSET、二级索引和ID索引 SADD 在同一个流水线中发送
+     * 覆盖已有文档时先用一次流水线读出旧元数据，从二级索引中移除旧取值
+     * @param embeddings 与 documents 一一对应，写入前会被原地归一化
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("文档数与向量数不一致");
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            ids.add(document.getId() != null ? document.getId() : UUID.randomUUID().toString());
+        }
+        for (float[] embedding : embeddings) {
+            VectorMath.normalizeInPlace(embedding);
+        }
+        List<byte[]> metadata = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            metadata.add(serializeMetadata(document.getMetadata()));
+        }
+        List<Map<String, Object>> previous = indexedMetadataKeys.isEmpty()
+            ? Collections.nCopies(ids.size(), null) : readMetadata(ids);
+        
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[][] members = new byte[ids.size()][];
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                String documentId = prefix + ids.get(i);
+                
+                // 存储文档信息到Redis Hash
+                Map<byte[], byte[]> documentData = new HashMap<>();
+                documentData.put(bytes("id"), bytes(documentId));
+                documentData.put(bytes("content"), bytes(document.getContent()));
+                documentData.put(METADATA_FIELD, metadata.get(i));
+                documentData.put(VECTOR_FIELD, EmbeddingCodec.encode(embeddings.get(i)));
+                if (quantization == Quantization.INT8) {
+                    documentData.put(QUANTIZED_FIELD, ScalarQuantizer.encode(embeddings.get(i)));
+                }
+                connection.hashCommands().hMSet(bytes(documentId), documentData);
+                if (previous.get(i) != null) {
+                    writeMetadataIndex(connection, ids.get(i), previous.get(i), false);
+                }
+                writeMetadataIndex(connection, ids.get(i), document.getMetadata(), true);
+                members[i] = bytes(ids.get(i));
+            }
+            connection.setCommands().sAdd(bytes(indexKey), members);
+            return null;
+        });
+        
+        onAdded(ids, embeddings);
+        log.debug("Stored {} documents in Redis", ids.size());
+    }
 
     @Override
     public Optional<Boolean> delete(List<String> idList) {
@@ -76,9 +399,19 @@ public class SimpleRedisVectorStore implements VectorStore {
             return Optional.of(true);
         }
         
-        for (String id : idList) {
-            redisTemplate.delete(prefix + id);
-        }
+        List<Map<String, Object>> metadata = indexedMetadataKeys.isEmpty()
+            ? Collections.nCopies(idList.size(), null) : readMetadata(idList);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < idList.size(); i++) {
+                connection.keyCommands().del(bytes(prefix + idList.get(i)));
+                if (metadata.get(i) != null) {
+                    writeMetadataIndex(connection, idList.get(i), metadata.get(i), false);
+                }
+            }
+            return null;
+        });
+        redisTemplate.opsForSet().remove(indexKey, idList.toArray());
+        onDeleted(idList);
         
         return Optional.of(true);
     }
@@ -90,127 +423,380 @@ public class SimpleRedisVectorStore implements VectorStore {
         }
         
         // 生成查询向量的嵌入
-        float[] queryEmbeddingArray = embeddingModel.embed(request.getQuery());
-        List<Double> queryEmbedding = new ArrayList<>();
-        for (float f : queryEmbeddingArray) {
-            queryEmbedding.add((double) f);
-        }
+        float[] queryEmbedding = embed(request.getQuery());
+        
+        Double similarityThreshold = request.getSimilarityThreshold();
+        double threshold = similarityThreshold != null ? similarityThreshold : 0.0;
         
-        // 获取所有文档键
-        Set<String> keys = redisTemplate.keys(prefix + "*");
-        if (keys == null || keys.isEmpty()) {
+        Integer topKValue = request.getTopK();
+        int topK = topKValue != null ? topKValue : 4;
+        if (topK <= 0) {
             return Collections.emptyList();
         }
         
-        // 计算每个文档与查询的相似度
-        List<DocumentWithScore> scoredDocuments = new ArrayList<>();
+        // 分页遍历文档ID索引，每批用一次流水线读取向量并计算相似度，堆顶是目前第K相似的文档
+        // 有过滤条件且能用二级索引求出候选集时只遍历候选文档
+        // int8 模式下近似相似度有误差，扫描阶段不按阈值淘汰，保留更多候选留待精确重排
+        boolean quantized = quantization == Quantization.INT8;
+        int candidateCount = quantized ? topK * rerankFactor : topK;
+        double scanThreshold = quantized ? Double.NEGATIVE_INFINITY : threshold;
+        Filter.Expression filter = request.hasFilterExpression() ? request.getFilterExpression() : null;
+        PriorityQueue<ScoredId> top = new PriorityQueue<>(candidateCount + 1, Comparator.comparingDouble(ScoredId::score));
+        // 查询向量的量化编码每次查询只算一次，所有批次共用
+        ScalarQuantizer.Query quantizedQuery = quantized ? ScalarQuantizer.quantizeQuery(queryEmbedding) : null;
+        Consumer<List<String>> scorer = batch -> scoreBatch(batch, queryEmbedding, quantizedQuery, filter, scanThreshold,
+            candidateCount, top);
+        Set<String> candidates = filter != null ? MetadataFilter.candidates(filter, indexLookup) : null;
+        if (candidates != null) {
+            forEachBatch(candidates, scorer);
+        } else {
+            forEachIdBatch(scorer);
+        }
+        Collection<ScoredId> ranked = quantized ? rerank(top, queryEmbedding, threshold, topK) : top;
         
-        for (String key : keys) {
-            Map<Object, Object> documentData = redisTemplate.opsForHash().entries(key);
-            
-            if (documentData.containsKey("embedding")) {
-                String embeddingStr = (String) documentData.get("embedding");
-                List<Double> documentEmbedding = stringToEmbedding(embeddingStr);
-                
-                // 计算余弦相似度
-                double similarity = cosineSimilarity(queryEmbedding, documentEmbedding);
-                
-                // 应用相似度阈值过滤
-                Double similarityThreshold = request.getSimilarityThreshold();
-                double threshold = similarityThreshold != null ? 
-                    similarityThreshold : 0.0;
-                    
-                if (similarity >= threshold) {
-                    String content = (String) documentData.get("content");
-                    String metadataStr = (String) documentData.get("metadata");
-                    
-                    Document document = new Document(content);
-                    // 解析metadata字符串为Map（简化实现）
-                    document.getMetadata().putAll(parseMetadata(metadataStr));
-                    
-                    scoredDocuments.add(new DocumentWithScore(document, similarity));
+        // 按相似度降序，只读取最终入选文档的内容
+        List<ScoredId> winners = new ArrayList<>(ranked);
+        winners.sort(Comparator.comparingDouble(ScoredId::score).reversed());
+        List<String> ids = new ArrayList<>(winners.size());
+        for (ScoredId winner : winners) {
+            ids.add(winner.id());
+        }
+        return loadDocuments(ids);
+    }
+
+    /**
+     * 一批文档写入Redis后调用，子类可据此维护内存索引
+     * @param embeddings 与 ids 一一对应的归一化向量
+     */
+    protected void onAdded(List<String> ids, List<float[]> embeddings) {
+    }
+
+    /**
+     * 文档从Redis删除后调用
+     */
+    protected void onDeleted(List<String> ids) {
+    }
+
+    /**
+     * 批量生成向量（未归一化），与 texts 一一对应，结果可以直接交给 {@link #add(List, List)}
+     */
+    public List<float[]> embed(List<String> texts) {
+        return embeddingModel.embed(texts);
+    }
+
+    /**
+     * 生成归一化后的向量
+     */
+    protected float[] embed(String text) {
+        return VectorMath.normalizeInPlace(embeddingModel.embed(text));
+    }
+
+    /**
+     * 用 SSCAN 分页遍历文档ID索引，每攒够 scanBatchSize 个ID回调一次
+     */
+    protected void forEachIdBatch(Consumer<List<String>> consumer) {
+        Set<String> seen = new HashSet<>();
+        List<String> batch = new ArrayList<>(scanBatchSize);
+        ScanOptions options = ScanOptions.scanOptions().count(scanBatchSize).build();
+        try (Cursor<Object> cursor = redisTemplate.opsForSet().scan(indexKey, options)) {
+            while (cursor.hasNext()) {
+                String id = (String) cursor.next();
+                // SSCAN 在集合rehash期间可能重复返回同一个成员
+                if (!seen.add(id)) {
+                    continue;
+                }
+                batch.add(id);
+                if (batch.size() >= scanBatchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(scanBatchSize);
                 }
             }
         }
-        
-        // 按相似度排序
-        scoredDocuments.sort((d1, d2) -> Double.compare(d2.score, d1.score));
-        
-        // 应用topK限制
-        Integer topKValue = request.getTopK();
-        int topK = topKValue != null ? topKValue : 4;
-        if (scoredDocuments.size() > topK) {
-            scoredDocuments = scoredDocuments.subList(0, topK);
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
+    private void forEachBatch(Collection<String> ids, Consumer<List<String>> consumer) {
+        List<String> batch = new ArrayList<>(Math.min(ids.size(), scanBatchSize));
+        for (String id : ids) {
+            batch.add(id);
+            if (batch.size() >= scanBatchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<>(scanBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
         }
-        
-        return scoredDocuments.stream()
-                .map(docWithScore -> docWithScore.document)
-                .collect(Collectors.toList());
     }
 
     /**
-     * 将嵌入向量转换为字符串存储
+     * 分批读取所有文档的向量，每个向量是新数组，可以被调用方持有
      */
-    private String embeddingToString(List<Double> embedding) {
-        return embedding.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
+    protected void forEachEmbedding(BiConsumer<String, float[]> consumer) {
+        forEachIdBatch(ids -> loadEmbeddings(ids).forEach(consumer));
     }
 
     /**
-     * 将字符串解析为嵌入向量
+     * 按 scanBatchSize 分批用流水线读取指定文档的向量，已不存在的文档不出现在结果中
      */
-    private List<Double> stringToEmbedding(String embeddingStr) {
-        return Arrays.stream(embeddingStr.split(","))
-                .map(Double::valueOf)
-                .collect(Collectors.toList());
+    protected Map<String, float[]> loadEmbeddings(Collection<String> ids) {
+        Map<String, float[]> embeddings = new LinkedHashMap<>();
+        forEachBatch(ids, batch -> {
+            List<Object> vectors = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String id : batch) {
+                    connection.hashCommands().hGet(bytes(prefix + id), VECTOR_FIELD);
+                }
+                return null;
+            }, RedisSerializer.byteArray());
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] vector = (byte[]) vectors.get(i);
+                if (vector != null) {
+                    embeddings.put(batch.get(i), EmbeddingCodec.decode(vector, null));
+                }
+            }
+        });
+        return embeddings;
+    }
+
+    /**
+     * ID索引中的文档数
+     */
+    protected long documentCount() {
+        Long count = redisTemplate.opsForSet().size(indexKey);
+        return count != null ? count : 0;
     }
 
     /**
-     * 计算余弦相似度
+     * 用一次流水线 HMGET 读取指定文档的内容和元数据，按 ids 的顺序返回，已不存在的文档被跳过
      */
-    private double cosineSimilarity(List<Double> vectorA, List<Double> vectorB) {
-        if (vectorA.size() != vectorB.size()) {
-            return 0.0;
+    protected List<Document> loadDocuments(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
         }
-        
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        
-        for (int i = 0; i < vectorA.size(); i++) {
-            dotProduct += vectorA.get(i) * vectorB.get(i);
-            normA += Math.pow(vectorA.get(i), 2);
-            normB += Math.pow(vectorB.get(i), 2);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : ids) {
+                connection.hashCommands().hMGet(bytes(prefix + id), DOCUMENT_FIELDS);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        List<Document> documents = new ArrayList<>(ids.size());
+        for (Object result : results) {
+            List<?> fields = (List<?>) result;
+            if (fields == null || fields.get(0) == null) {
+                continue;
+            }
+            Document document = new Document(string((byte[]) fields.get(0)));
+            document.getMetadata().putAll(parseMetadata((byte[]) fields.get(1)));
+            documents.add(document);
         }
-        
-        if (normA == 0 || normB == 0) {
-            return 0.0;
+        return documents;
+    }
+
+    /**
+     * 读取候选文档的 float32 向量计算精确相似度，返回不低于阈值的前 topK 个
+     */
+    private List<ScoredId> rerank(Collection<ScoredId> candidates, float[] queryEmbedding, double threshold, int topK) {
+        List<String> ids = new ArrayList<>(candidates.size());
+        for (ScoredId candidate : candidates) {
+            ids.add(candidate.id());
+        }
+        List<Object> vectors = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : ids) {
+                connection.hashCommands().hGet(bytes(prefix + id), VECTOR_FIELD);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        List<ScoredId> exact = new ArrayList<>(ids.size());
+        float[] vector = null;
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] vectorBytes = (byte[]) vectors.get(i);
+            if (vectorBytes == null) {
+                continue;
+            }
+            vector = EmbeddingCodec.decode(vectorBytes, vector);
+            double similarity = VectorMath.dot(queryEmbedding, vector);
+            if (similarity >= threshold) {
+                exact.add(new ScoredId(ids.get(i), similarity));
+            }
         }
+        exact.sort(Comparator.comparingDouble(ScoredId::score).reversed());
+        return exact.size() > topK ? exact.subList(0, topK) : exact;
+    }
+
+    /**
+     * 用一次流水线读取一批文档的向量（有过滤条件时连同元数据），把比堆中最差者更相似、不低于阈值
+     * 且满足过滤条件的文档ID放入堆；堆满后以堆顶相似度作为实际阈值，被淘汰的文档不解析元数据也不分配对象
+     * quantizedQuery 不为null时读取量化编码，相似度为近似值；缺少编码的文档（例如其他实例在 none 模式下写入）改用 float32 向量打分
+     * 索引中存在但文档已被删除的ID顺便从索引中移除
+     */
+    private void scoreBatch(List<String> ids, float[] queryEmbedding, ScalarQuantizer.Query quantizedQuery,
+                            Filter.Expression filter, double threshold, int topK, PriorityQueue<ScoredId> top) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        boolean quantized = quantizedQuery != null;
+        byte[] scoreField = quantized ? QUANTIZED_FIELD : VECTOR_FIELD;
+        byte[][] filterFields = quantized ? QUANTIZED_FILTER_FIELDS : FILTER_FIELDS;
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : ids) {
+                if (filter == null) {
+                    connection.hashCommands().hGet(bytes(prefix + id), scoreField);
+                } else {
+                    connection.hashCommands().hMGet(bytes(prefix + id), filterFields);
+                }
+            }
+            return null;
+        }, RedisSerializer.byteArray());
         
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+        List<String> staleIds = new ArrayList<>();
+        List<String> unquantizedIds = new ArrayList<>();
+        // 同一批文档维度相同，解码复用同一个数组
+        float[] vector = null;
+        for (int i = 0; i < ids.size(); i++) {
+            List<?> fields = filter != null ? (List<?>) results.get(i) : null;
+            byte[] vectorBytes = filter == null ? (byte[]) results.get(i)
+                : fields != null ? (byte[]) fields.get(0) : null;
+            if (vectorBytes == null) {
+                (quantized ? unquantizedIds : staleIds).add(ids.get(i));
+                continue;
+            }
+            
+            // 两边都是单位向量，点积即余弦相似度
+            double similarity;
+            if (quantized) {
+                similarity = ScalarQuantizer.dot(quantizedQuery, vectorBytes);
+            } else {
+                vector = EmbeddingCodec.decode(vectorBytes, vector);
+                similarity = VectorMath.dot(queryEmbedding, vector);
+            }
+            if (similarity < threshold || (top.size() >= topK && similarity <= top.peek().score())) {
+                continue;
+            }
+            if (filter != null && !MetadataFilter.matches(filter, parseMetadata((byte[]) fields.get(1)))) {
+                continue;
+            }
+            top.add(new ScoredId(ids.get(i), similarity));
+            if (top.size() > topK) {
+                top.poll();
+            }
+        }
+        if (!staleIds.isEmpty()) {
+            redisTemplate.opsForSet().remove(indexKey, staleIds.toArray());
+        }
+        if (!unquantizedIds.isEmpty()) {
+            scoreBatch(unquantizedIds, queryEmbedding, null, filter, threshold, topK, top);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
     }
 
     /**
-     * 解析metadata字符串（简化实现）
+     * 用一次流水线读取并解析一批文档的元数据，文档不存在时对应位置为null
      */
-    private Map<String, Object> parseMetadata(String metadataStr) {
-        Map<String, Object> metadata = new HashMap<>();
-        // 这里可以添加更复杂的解析逻辑
-        metadata.put("source", "redis");
+    private List<Map<String, Object>> readMetadata(List<String> ids) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : ids) {
+                connection.hashCommands().hGet(bytes(prefix + id), METADATA_FIELD);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        List<Map<String, Object>> metadata = new ArrayList<>(ids.size());
+        for (Object result : results) {
+            metadata.add(result != null ? parseMetadata((byte[]) result) : null);
+        }
         return metadata;
     }
 
     /**
-     * 内部类：文档和相似度分数
+     * 在流水线中把文档加入（add=true）或移出二级索引
      */
-    private static class DocumentWithScore {
-        Document document;
-        double score;
-        
-        DocumentWithScore(Document document, double score) {
-            this.document = document;
-            this.score = score;
+    private void writeMetadataIndex(RedisConnection connection, String id, Map<String, Object> metadata, boolean add) {
+        byte[] member = bytes(id);
+        for (String key : indexedMetadataKeys) {
+            Object value = metadata.get(key);
+            if (value == null) {
+                continue;
+            }
+            byte[] valueKey = bytes(prefix + "idx:" + key + ":" + MetadataFilter.indexValue(value));
+            byte[] rangeKey = bytes(prefix + "idx:" + key);
+            if (add) {
+                connection.setCommands().sAdd(valueKey, member);
+                if (MetadataFilter.numeric(value)) {
+                    connection.zSetCommands().zAdd(rangeKey, MetadataFilter.toDouble(value), member);
+                }
+            } else {
+                connection.setCommands().sRem(valueKey, member);
+                connection.zSetCommands().zRem(rangeKey, member);
+            }
+        }
+    }
+
+    private static byte[] serializeMetadata(Map<String, Object> metadata) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(metadata);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("文档元数据无法序列化为JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 解析JSON格式的元数据；旧版本写入的 Map.toString() 格式无法还原，返回空Map
+     */
+    private static Map<String, Object> parseMetadata(byte[] metadata) {
+        if (metadata == null || metadata.length == 0 || metadata[0] != '{') {
+            return new HashMap<>();
+        }
+        try {
+            return OBJECT_MAPPER.readValue(metadata, METADATA_TYPE);
+        } catch (IOException e) {
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * 基于Redis二级索引的候选集查询，返回的集合可以被修改
+     */
+    private class RedisIndexLookup implements MetadataFilter.IndexLookup {
+
+        @Override
+        public boolean isIndexed(String key) {
+            return indexedMetadataKeys.contains(key);
         }
+
+        @Override
+        public Set<String> equalTo(String key, Object value) {
+            Set<Object> members = redisTemplate.opsForSet().members(prefix + "idx:" + key + ":" + MetadataFilter.indexValue(value));
+            Set<String> ids = new HashSet<>();
+            if (members != null) {
+                members.forEach(member -> ids.add((String) member));
+            }
+            return ids;
+        }
+
+        @Override
+        public Set<String> range(String key, Double min, boolean minInclusive, Double max, boolean maxInclusive) {
+            double from = min == null ? Double.NEGATIVE_INFINITY : minInclusive ? min : Math.nextUp(min);
+            double to = max == null ? Double.POSITIVE_INFINITY : maxInclusive ? max : Math.nextDown(max);
+            Set<Object> members = redisTemplate.opsForZSet().rangeByScore(prefix + "idx:" + key, from, to);
+            Set<String> ids = new HashSet<>();
+            if (members != null) {
+                members.forEach(member -> ids.add((String) member));
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * 文档ID和相似度
+     */
+    private record ScoredId(String id, double score) {
     }
-}
\ No newline at end of file
+}
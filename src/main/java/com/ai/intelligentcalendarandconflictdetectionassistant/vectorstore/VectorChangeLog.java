@@ -0,0 +1,150 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 向量文档的变更日志，供本地快照启动后追赶
+ * 用有序集合 &lt;prefix&gt;changelog 记录，成员为 "A:id"（写入）或 "D:id"（删除），分数为递增序号；
+ * 同一文档只保留最后一次操作（写入时移除对应的删除记录，反之亦然），追赶时只需处理每个文档的最终状态。
+ * 日志超过 maxEntries 条时删除最旧的记录，并把被删除的最大序号记为下限，
+ * 快照序号低于下限说明中间的变更已丢失，只能从Redis全量重建。
+ */
+final class VectorChangeLog {
+
+    private static final String ADDED = "A:";
+    private static final String DELETED = "D:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String logKey;
+    private final String sequenceKey;
+    private final String floorKey;
+    private final int maxEntries;
+
+    VectorChangeLog(RedisConnectionFactory connectionFactory, String prefix, int maxEntries) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.logKey = prefix + "changelog";
+        this.sequenceKey = prefix + "changelog:seq";
+        this.floorKey = prefix + "changelog:floor";
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 当前最大序号
+     */
+    long sequence() {
+        return parse(redisTemplate.opsForValue().get(sequenceKey));
+    }
+
+    /**
+     * @return 分配给这批文档的最大序号，这批文档的序号为 (返回值 - ids.size(), 返回值]；ids 为空时返回-1
+     */
+    long recordAdded(List<String> ids) {
+        return record(ids, ADDED, DELETED);
+    }
+
+    /**
+     * @return 同 {@link #recordAdded}
+     */
+    long recordDeleted(List<String> ids) {
+        return record(ids, DELETED, ADDED);
+    }
+
+    /**
+     * 先用一次 INCRBY 为这批文档分配连续序号，再用一次流水线写入日志
+     */
+    private long record(List<String> ids, String operation, String opposite) {
+        if (ids.isEmpty()) {
+            return -1;
+        }
+        Long incremented = redisTemplate.opsForValue().increment(sequenceKey, ids.size());
+        long last = incremented != null ? incremented : ids.size();
+        long first = last - ids.size() + 1;
+        byte[] key = bytes(logKey);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < ids.size(); i++) {
+                connection.zSetCommands().zRem(key, bytes(opposite + ids.get(i)));
+                connection.zSetCommands().zAdd(key, first + i, bytes(operation + ids.get(i)));
+            }
+            return null;
+        });
+        return last;
+    }
+
+    /**
+     * 读取序号大于 sequence 的变更
+     * @return 变更；日志已被截断、无法覆盖 sequence 之后的全部变更时返回null
+     */
+    Changes since(long sequence) {
+        if (parse(redisTemplate.opsForValue().get(floorKey)) > sequence) {
+            return null;
+        }
+        Set<ZSetOperations.TypedTuple<String>> entries =
+            redisTemplate.opsForZSet().rangeByScoreWithScores(logKey, sequence + 1, Double.POSITIVE_INFINITY);
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> deleted = new LinkedHashSet<>();
+        if (entries != null) {
+            for (ZSetOperations.TypedTuple<String> entry : entries) {
+                String member = entry.getValue();
+                if (member == null) {
+                    continue;
+                }
+                (member.startsWith(ADDED) ? added : deleted).add(member.substring(ADDED.length()));
+            }
+        }
+        return new Changes(added, deleted);
+    }
+
+    /**
+     * 删除超出 maxEntries 的最旧记录并上调下限
+     */
+    void trim() {
+        Long size = redisTemplate.opsForZSet().zCard(logKey);
+        if (size == null || size <= maxEntries) {
+            return;
+        }
+        long removeCount = size - maxEntries;
+        Set<ZSetOperations.TypedTuple<String>> newestRemoved =
+            redisTemplate.opsForZSet().rangeWithScores(logKey, removeCount - 1, removeCount - 1);
+        if (newestRemoved == null || newestRemoved.isEmpty()) {
+            return;
+        }
+        Double score = newestRemoved.iterator().next().getScore();
+        long floor = score != null ? score.longValue() : 0;
+        if (floor > parse(redisTemplate.opsForValue().get(floorKey))) {
+            redisTemplate.opsForValue().set(floorKey, Long.toString(floor));
+        }
+        redisTemplate.opsForZSet().removeRange(logKey, 0, removeCount - 1);
+    }
+
+    private static long parse(String value) {
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 某个序号之后每个文档的最终状态
+     * @param added 被写入（新增或覆盖）的文档ID
+     * @param deleted 被删除的文档ID
+     */
+    record Changes(Set<String> added, Set<String> deleted) {
+
+        int size() {
+            return added.size() + deleted.size();
+        }
+
+        boolean contains(String id) {
+            return added.contains(id) || deleted.contains(id);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * 向量相似度计算内核
+ * 向量在写入时归一化为单位长度，余弦相似度即点积，查询时不再重复计算范数。
+ * 默认实现是基本类型数组上的简单循环，用4个独立累加器展开，便于JIT生成流水线化的 SIMD 乘加；
+ * 以 mvn -Pvector-api 构建、启动参数带 --add-modules jdk.incubator.vector 并调用 {@link #enableVectorApi()} 后
+ * 改用 Vector API 实现。
+ */
+@Slf4j
+public final class VectorMath {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final String VECTOR_KERNEL = VectorMath.class.getPackageName() + ".PanamaVectorMath";
+
+    private static volatile DotKernel vectorKernel;
+
+    private VectorMath() {
+    }
+
+    /**
+     * 启用 Vector API 实现
+     * @return 运行时没有加载 jdk.incubator.vector 模块、或构建时未启用 vector-api 配置时返回false，继续使用标量实现
+     */
+    public static boolean enableVectorApi() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.warn("{} is not available, add --add-modules {} to enable it; using scalar kernel",
+                    VECTOR_MODULE, VECTOR_MODULE);
+            return false;
+        }
+        DotKernel kernel;
+        try {
+            kernel = (DotKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            kernel.dot(new float[1], new float[1]);
+        } catch (ClassNotFoundException e) {
+            log.warn("Vector API kernel is not part of this build, rebuild with -Pvector-api; using scalar kernel");
+            return false;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector API kernel failed to load, using scalar kernel", e);
+            return false;
+        }
+        vectorKernel = kernel;
+        log.info("Using Vector API dot product kernel");
+        return true;
+    }
+
+    /**
+     * 两个等长向量的点积，长度不同时返回-1
+     */
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        DotKernel kernel = vectorKernel;
+        return kernel != null ? kernel.dot(a, b) : dotScalar(a, b);
+    }
+
+    static float dotScalar(float[] a, float[] b) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        int bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 返回归一化后的副本，零向量原样复制
+     */
+    public static float[] normalize(float[] vector) {
+        return normalizeInPlace(Arrays.copyOf(vector, vector.length));
+    }
+
+    /**
+     * 原地归一化并返回同一数组
+     */
+    public static float[] normalizeInPlace(float[] vector) {
+        double norm = Math.sqrt(dotScalar(vector, vector));
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / norm);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    /**
+     * 是否已是单位向量（允许 float 舍入误差）
+     */
+    public static boolean isNormalized(float[] vector) {
+        return Math.abs(dotScalar(vector, vector) - 1) < 1e-4;
+    }
+
+    /**
+     * 可替换的点积实现
+     */
+    interface DotKernel {
+        float dot(float[] a, float[] b);
+    }
+}
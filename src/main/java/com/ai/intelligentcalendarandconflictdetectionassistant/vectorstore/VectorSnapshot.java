@@ -0,0 +1,195 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 向量语料的本地快照文件，用 {@link FileChannel#map} 只读映射，打开后无需把向量读入堆即可检索
+ * 文件布局（小端）：
+ * <pre>
+ * 头部    magic(int) version(int) dimensions(int) count(int) sequence(long)
+ * 偏移表  (count + 1) 个 int，第 i 个ID在ID区中的起止字节偏移
+ * ID区    UTF-8 编码的文档ID，按4字节对齐补齐
+ * 向量区  count × dimensions 个 float32，每行是一个归一化后的向量
+ * </pre>
+ * sequence 是写快照时变更日志的序号，启动时从这之后追赶（见 {@link VectorChangeLog}）。
+ * 写入先落到临时文件再原子替换，读到一半的旧文件不会被破坏。
+ */
+final class VectorSnapshot {
+
+    private static final int MAGIC = 0x56534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private final int dimensions;
+    private final int size;
+    private final long sequence;
+    private final IntBuffer offsets;
+    private final ByteBuffer idBytes;
+    private final FloatBuffer matrix;
+
+    private VectorSnapshot(MappedByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("不是向量快照文件");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("不支持的快照版本: " + buffer.getInt(4));
+        }
+        this.dimensions = buffer.getInt(8);
+        this.size = buffer.getInt(12);
+        this.sequence = buffer.getLong(16);
+
+        int idsStart = HEADER_BYTES + (size + 1) * Integer.BYTES;
+        int idsLength = buffer.getInt(HEADER_BYTES + size * Integer.BYTES);
+        int matrixStart = align(idsStart + idsLength);
+        if ((long) matrixStart + (long) size * dimensions * Float.BYTES != buffer.limit()) {
+            throw new IOException("快照文件长度不正确");
+        }
+        this.offsets = slice(buffer, HEADER_BYTES, idsStart).asIntBuffer();
+        this.idBytes = slice(buffer, idsStart, idsStart + idsLength);
+        this.matrix = slice(buffer, matrixStart, buffer.limit()).asFloatBuffer();
+    }
+
+    /**
+     * 只读映射快照文件
+     * @throws IOException 文件不存在、格式或版本不符
+     */
+    static VectorSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("快照文件超过2GB");
+            }
+            // 映射建立后关闭通道不影响映射
+            return new VectorSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 写入快照，ids 与 vectors 一一对应，向量需已归一化且维度相同
+     */
+    static void write(Path path, long sequence, List<String> ids, List<float[]> vectors) throws IOException {
+        int dimensions = vectors.isEmpty() ? 0 : vectors.get(0).length;
+        byte[][] encodedIds = new byte[ids.size()][];
+        int idsLength = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            encodedIds[i] = ids.get(i).getBytes(StandardCharsets.UTF_8);
+            idsLength += encodedIds[i].length;
+        }
+        int idsStart = HEADER_BYTES + (ids.size() + 1) * Integer.BYTES;
+        int matrixStart = align(idsStart + idsLength);
+        long fileSize = matrixStart + (long) ids.size() * dimensions * Float.BYTES;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("快照文件超过2GB");
+        }
+
+        ByteBuffer head = ByteBuffer.allocate(matrixStart).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(ids.size()).putLong(sequence);
+        int offset = 0;
+        for (byte[] encodedId : encodedIds) {
+            head.putInt(offset);
+            offset += encodedId.length;
+        }
+        head.putInt(offset);
+        for (byte[] encodedId : encodedIds) {
+            head.put(encodedId);
+        }
+        head.position(matrixStart).flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeFully(channel, head);
+                ByteBuffer row = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (float[] vector : vectors) {
+                    if (vector.length != dimensions) {
+                        throw new IOException("向量维度不一致");
+                    }
+                    row.clear();
+                    row.asFloatBuffer().put(vector);
+                    writeFully(channel, row);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    String id(int index) {
+        int from = offsets.get(index);
+        byte[] bytes = new byte[offsets.get(index + 1) - from];
+        idBytes.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 把第 index 个向量复制到新数组，需要长期持有向量时使用
+     */
+    float[] vector(int index) {
+        float[] vector = new float[dimensions];
+        matrix.get(index * dimensions, vector);
+        return vector;
+    }
+
+    /**
+     * 直接在映射内存上计算与归一化查询向量的点积，不复制向量；维度不同时返回-1
+     */
+    float dot(int index, float[] query) {
+        if (query.length != dimensions) {
+            return -1;
+        }
+        int base = index * dimensions;
+        float s0 = 0;
+        float s1 = 0;
+        int i = 0;
+        for (; i + 1 < dimensions; i += 2) {
+            s0 += query[i] * matrix.get(base + i);
+            s1 += query[i + 1] * matrix.get(base + i + 1);
+        }
+        if (i < dimensions) {
+            s0 += query[i] * matrix.get(base + i);
+        }
+        return s0 + s1;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        return buffer.slice(from, to - from).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int align(int position) {
+        return (position + Float.BYTES - 1) & -Float.BYTES;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
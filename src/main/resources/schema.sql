@@ -0,0 +1,113 @@
+-- 智能日程管理助手 数据库初始化脚本（MySQL 8.0+）
+
+CREATE TABLE IF NOT EXISTS users (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    username      VARCHAR(50)  NOT NULL,
+    email         VARCHAR(100) NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    display_name  VARCHAR(100),
+    timezone      VARCHAR(50)  DEFAULT 'UTC',
+    language      VARCHAR(20)  DEFAULT 'zh-CN',
+    avatar_url    VARCHAR(255),
+    is_active     TINYINT(1)   DEFAULT 1,
+    created_at    DATETIME     NOT NULL,
+    updated_at    DATETIME     NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_users_username (username),
+    UNIQUE KEY uk_users_email (email)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS calendar_events (
+    id                    BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id               BIGINT       NOT NULL,
+    title                 VARCHAR(255) NOT NULL,
+    description           TEXT,
+    location              VARCHAR(255),
+    start_time            DATETIME     NOT NULL,
+    end_time              DATETIME     NOT NULL,
+    timezone              VARCHAR(50)  DEFAULT 'UTC',
+    event_type            VARCHAR(20)  DEFAULT 'MEETING',
+    priority              VARCHAR(10)  DEFAULT 'MEDIUM',
+    is_all_day            TINYINT(1)   DEFAULT 0,
+    recurrence_rule       VARCHAR(255),
+    recurrence_exceptions TEXT,
+    status                VARCHAR(20)  DEFAULT 'NOT_STARTED',
+    visibility            VARCHAR(10)  DEFAULT 'PRIVATE',
+    external_event_id     VARCHAR(255),
+    external_calendar_id  VARCHAR(255),
+    created_at            DATETIME     NOT NULL,
+    updated_at            DATETIME     NOT NULL,
+    -- 由 recurrence_rule 生成，只用于索引，插入和更新时不需要赋值
+    is_recurring          TINYINT(1) AS (recurrence_rule IS NOT NULL AND recurrence_rule <> '') STORED,
+    PRIMARY KEY (id),
+    -- 时间窗口重叠查询（user_id + end_time > 窗口开始 + start_time < 窗口结束）
+    -- 以end_time为第一个范围列，历史日程不会进入扫描范围
+    KEY idx_calendar_events_user_end_start (user_id, end_time, start_time),
+    -- 重复日程系列查询只扫描该用户的重复日程
+    KEY idx_calendar_events_user_recurring (user_id, is_recurring, start_time)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS user_preferences (
+    id                        BIGINT      NOT NULL AUTO_INCREMENT,
+    user_id                   BIGINT      NOT NULL,
+    work_day_start            TIME        DEFAULT '09:00:00',
+    work_day_end              TIME        DEFAULT '17:00:00',
+    include_weekends          TINYINT(1)  DEFAULT 0,
+    default_event_duration    INT         DEFAULT 60,
+    buffer_time_before_events INT         DEFAULT 15,
+    buffer_time_after_events  INT         DEFAULT 15,
+    default_reminder_time     INT         DEFAULT 30,
+    theme                     VARCHAR(20) DEFAULT 'light',
+    notification_enabled      TINYINT(1)  DEFAULT 1,
+    email_notifications       TINYINT(1)  DEFAULT 1,
+    created_at                DATETIME    NOT NULL,
+    updated_at                DATETIME    NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_user_preferences_user (user_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS conflict_detection_logs (
+    id                  BIGINT      NOT NULL AUTO_INCREMENT,
+    user_id             BIGINT      NOT NULL,
+    proposed_date       DATE        NOT NULL,
+    proposed_start_time TIME        NOT NULL,
+    proposed_end_time   TIME        NOT NULL,
+    has_conflict        TINYINT(1)  DEFAULT 0,
+    conflict_count      INT         DEFAULT 0,
+    severity            VARCHAR(10) DEFAULT 'NONE',
+    ai_suggestion_used  TINYINT(1)  DEFAULT 0,
+    created_at          DATETIME    NOT NULL,
+    PRIMARY KEY (id),
+    KEY idx_conflict_logs_user_created (user_id, created_at)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id      BIGINT       NOT NULL,
+    session_id   VARCHAR(100) NOT NULL,
+    user_message TEXT,
+    ai_response  MEDIUMTEXT,
+    intent       VARCHAR(50),
+    entities     TEXT,
+    successful   TINYINT(1)   DEFAULT 1,
+    created_at   DATETIME     NOT NULL,
+    PRIMARY KEY (id),
+    KEY idx_conversations_user_created (user_id, created_at),
+    -- 按会话取最近N条历史（对话记忆），LIMIT 在索引上倒序扫描即可停止
+    KEY idx_conversations_session_created (session_id, created_at)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 会话汇总（物化）：每次写入对话时在同一事务中增量更新，会话列表、存在性、对话数量等查询不再扫描 conversations
+CREATE TABLE IF NOT EXISTS conversation_sessions (
+    session_id       VARCHAR(100) NOT NULL,
+    user_id          BIGINT       NOT NULL,
+    message_count    INT          NOT NULL DEFAULT 0,
+    first_message_at DATETIME     NOT NULL,
+    last_message_at  DATETIME     NOT NULL,
+    title            VARCHAR(100),
+    last_intent      VARCHAR(50),
+    intent_counts    JSON         NOT NULL,
+    PRIMARY KEY (session_id),
+    -- 用户会话列表按最后活动时间倒序键集分页
+    KEY idx_conversation_sessions_user_last (user_id, last_message_at, session_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,99 @@
+-- 智能日程管理助手 数据库升级脚本（MySQL 8.0+）
+-- schema.sql 只在表不存在时建表，已有数据库不会因此获得新增的索引、列和表；
+-- 已有数据库在部署新版本之前执行一次本脚本：mysql -u <user> -p <database> < src/main/resources/upgrade.sql
+-- 每一步先查询 information_schema，已经存在的索引、列和表会跳过，脚本可以重复执行。
+-- 在大表上创建索引会持续一段时间（InnoDB 在线DDL，不阻塞读写），建议在低峰期执行。
+
+-- calendar_events：时间窗口重叠查询（user-001）
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'calendar_events'
+                 AND index_name = 'idx_calendar_events_user_end_start') = 0,
+              'CREATE INDEX idx_calendar_events_user_end_start ON calendar_events (user_id, end_time, start_time)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- calendar_events：重复日程系列查询（user-006）
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'calendar_events'
+                 AND column_name = 'is_recurring') = 0,
+              'ALTER TABLE calendar_events ADD COLUMN is_recurring TINYINT(1) AS (recurrence_rule IS NOT NULL AND recurrence_rule <> '''') STORED',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'calendar_events'
+                 AND index_name = 'idx_calendar_events_user_recurring') = 0,
+              'CREATE INDEX idx_calendar_events_user_recurring ON calendar_events (user_id, is_recurring, start_time)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- conflict_detection_logs：按用户查询最近的检测记录
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'conflict_detection_logs'
+                 AND index_name = 'idx_conflict_logs_user_created') = 0,
+              'CREATE INDEX idx_conflict_logs_user_created ON conflict_detection_logs (user_id, created_at)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- conversations：按用户查询对话
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'conversations'
+                 AND index_name = 'idx_conversations_user_created') = 0,
+              'CREATE INDEX idx_conversations_user_created ON conversations (user_id, created_at)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- conversations：按会话取最近N条历史（user-021）
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'conversations'
+                 AND index_name = 'idx_conversations_session_created') = 0,
+              'CREATE INDEX idx_conversations_session_created ON conversations (session_id, created_at)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- conversation_sessions：会话汇总（user-025），表结构与 schema.sql 保持一致
+CREATE TABLE IF NOT EXISTS conversation_sessions (
+    session_id       VARCHAR(100) NOT NULL,
+    user_id          BIGINT       NOT NULL,
+    message_count    INT          NOT NULL DEFAULT 0,
+    first_message_at DATETIME     NOT NULL,
+    last_message_at  DATETIME     NOT NULL,
+    title            VARCHAR(100),
+    last_intent      VARCHAR(50),
+    intent_counts    JSON         NOT NULL,
+    PRIMARY KEY (session_id),
+    KEY idx_conversation_sessions_user_last (user_id, last_message_at, session_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- conversation_sessions：为已有对话补建汇总行，与 ConversationSessionMapper.refresh 的计算方式一致。
+-- 只补还没有汇总行的会话，必须在新版本开始写入之前执行（应用启动时不再扫描补建）
+INSERT INTO conversation_sessions (session_id, user_id, message_count, first_message_at, last_message_at,
+                                   title, last_intent, intent_counts)
+SELECT s.session_id, s.user_id, s.message_count, s.first_message_at, s.last_message_at,
+       (SELECT LEFT(f.user_message, 100) FROM conversations f
+        WHERE f.session_id = s.session_id ORDER BY f.created_at, f.id LIMIT 1),
+       (SELECT l.intent FROM conversations l
+        WHERE l.session_id = s.session_id ORDER BY l.created_at DESC, l.id DESC LIMIT 1),
+       COALESCE(i.intent_counts, JSON_OBJECT())
+FROM (SELECT c.session_id, MIN(c.user_id) AS user_id, COUNT(*) AS message_count,
+             MIN(c.created_at) AS first_message_at, MAX(c.created_at) AS last_message_at
+      FROM conversations c
+      LEFT JOIN conversation_sessions cs ON cs.session_id = c.session_id
+      WHERE c.session_id IS NOT NULL AND cs.session_id IS NULL
+      GROUP BY c.session_id) s
+LEFT JOIN (SELECT t.session_id, JSON_OBJECTAGG(t.intent, t.n) AS intent_counts
+           FROM (SELECT session_id, intent, COUNT(*) AS n FROM conversations
+                 WHERE intent IS NOT NULL GROUP BY session_id, intent) t
+           GROUP BY t.session_id) i ON i.session_id = s.session_id;
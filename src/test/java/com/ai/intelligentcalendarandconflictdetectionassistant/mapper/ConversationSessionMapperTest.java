@@ -0,0 +1,266 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.mapper;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.ConversationSession;
+import com.ai.intelligentcalendarandconflictdetectionassistant.services.ConversationSessionRecorder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * conversation_sessions 的增量 upsert、refresh 和升级脚本补建在 MySQL 上的行为：
+ * 意图分布的 JSON 合并、title/last_intent 按时间取值、有历史对话的会话新建汇总行时重新计算
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ConversationSessionMapperTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    private static UnpooledDataSource dataSource;
+    private static SqlSessionFactory sqlSessionFactory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SqlSession sqlSession;
+    private ConversationMapper conversationMapper;
+    private ConversationSessionMapper sessionMapper;
+
+    @BeforeAll
+    static void createSchema() throws Exception {
+        dataSource = new UnpooledDataSource(MYSQL.getDriverClassName(), MYSQL.getJdbcUrl(),
+            MYSQL.getUsername(), MYSQL.getPassword());
+        runScript("schema.sql");
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(ConversationMapper.class);
+        configuration.addMapper(ConversationSessionMapper.class);
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    @BeforeEach
+    void openSession() throws Exception {
+        sqlSession = sqlSessionFactory.openSession(true);
+        conversationMapper = sqlSession.getMapper(ConversationMapper.class);
+        sessionMapper = sqlSession.getMapper(ConversationSessionMapper.class);
+        try (Statement statement = sqlSession.getConnection().createStatement()) {
+            statement.execute("TRUNCATE TABLE conversations");
+            statement.execute("TRUNCATE TABLE conversation_sessions");
+        }
+    }
+
+    @AfterEach
+    void closeSession() {
+        sqlSession.close();
+    }
+
+    @Test
+    void upsertMergesIntentCountsIntoExistingJson() throws Exception {
+        assertEquals(1, sessionMapper.upsert(session("s1", 2, at(9, 0), at(9, 5), "帮我安排周会", "create_event"),
+            counts("create_event", 1, "query_events", 1)));
+        assertEquals(2, sessionMapper.upsert(session("s1", 3, at(10, 0), at(10, 5), "再查一下", "query_events"),
+            counts("query_events", 2, "delete_event", 1)));
+
+        ConversationSession row = sessionMapper.findBySessionId("s1");
+        assertEquals(5, row.getMessageCount());
+        assertEquals(Map.of("create_event", 1, "query_events", 3, "delete_event", 1), intentCounts(row));
+    }
+
+    @Test
+    void upsertQuotesIntentNamesInJsonPath() throws Exception {
+        sessionMapper.upsert(session("s1", 1, at(9, 0), at(9, 0), "你好", "schedule.create"),
+            counts("schedule.create", 1));
+        sessionMapper.upsert(session("s1", 2, at(9, 1), at(9, 2), "你好", "free time"),
+            counts("schedule.create", 1, "free time", 1));
+
+        assertEquals(Map.of("schedule.create", 2, "free time", 1), intentCounts(sessionMapper.findBySessionId("s1")));
+    }
+
+    @Test
+    void upsertWithoutIntentsKeepsCounts() throws Exception {
+        sessionMapper.upsert(session("s1", 1, at(9, 0), at(9, 0), "你好", null), Map.of());
+        assertEquals(Map.of(), intentCounts(sessionMapper.findBySessionId("s1")));
+
+        sessionMapper.upsert(session("s1", 1, at(9, 1), at(9, 1), "你好", "query_events"), counts("query_events", 1));
+        sessionMapper.upsert(session("s1", 1, at(9, 2), at(9, 2), "谢谢", null), Map.of());
+
+        ConversationSession row = sessionMapper.findBySessionId("s1");
+        assertEquals(3, row.getMessageCount());
+        assertEquals(Map.of("query_events", 1), intentCounts(row));
+    }
+
+    @Test
+    void titleComesFromEarliestBatchAndLastIntentFromLatest() {
+        sessionMapper.upsert(session("s1", 2, at(10, 0), at(10, 5), "第二批", "query_events"), counts("query_events", 2));
+        // 先写入的批次时间更晚（写入队列乱序），title 取更早的批次，last_intent 保持更晚的批次
+        sessionMapper.upsert(session("s1", 2, at(9, 0), at(9, 5), "第一批", "create_event"), counts("create_event", 2));
+
+        ConversationSession row = sessionMapper.findBySessionId("s1");
+        assertEquals("第一批", row.getTitle());
+        assertEquals("query_events", row.getLastIntent());
+        assertEquals(at(9, 0), row.getFirstMessageAt());
+        assertEquals(at(10, 5), row.getLastMessageAt());
+
+        sessionMapper.upsert(session("s1", 1, at(11, 0), at(11, 0), "第三批", "delete_event"), counts("delete_event", 1));
+
+        row = sessionMapper.findBySessionId("s1");
+        assertEquals("第一批", row.getTitle());
+        assertEquals("delete_event", row.getLastIntent());
+        assertEquals(at(9, 0), row.getFirstMessageAt());
+        assertEquals(at(11, 0), row.getLastMessageAt());
+    }
+
+    @Test
+    void refreshMatchesIncrementalRecord() throws Exception {
+        ConversationSessionRecorder recorder = new ConversationSessionRecorder(sessionMapper);
+        List<Conversation> firstBatch = List.of(
+            conversation("s1", "明天上午有空吗", "query_events", at(9, 0)),
+            conversation("s1", "那就十点开会", "create_event", at(9, 1)));
+        List<Conversation> secondBatch = List.of(
+            conversation("s1", "改到十一点", "update_event", at(9, 2)),
+            conversation("s1", "好的", null, at(9, 3)));
+        insert(firstBatch);
+        recorder.record(firstBatch);
+        insert(secondBatch);
+        recorder.record(secondBatch);
+        ConversationSession incremental = sessionMapper.findBySessionId("s1");
+
+        sessionMapper.refresh("s1");
+        ConversationSession refreshed = sessionMapper.findBySessionId("s1");
+
+        assertEquals(4, incremental.getMessageCount());
+        assertEquals(refreshed.getMessageCount(), incremental.getMessageCount());
+        assertEquals(refreshed.getFirstMessageAt(), incremental.getFirstMessageAt());
+        assertEquals(refreshed.getLastMessageAt(), incremental.getLastMessageAt());
+        assertEquals(refreshed.getTitle(), incremental.getTitle());
+        assertEquals(refreshed.getLastIntent(), incremental.getLastIntent());
+        assertEquals(intentCounts(refreshed), intentCounts(incremental));
+    }
+
+    @Test
+    void recordRecomputesSessionWithOlderMessages() throws Exception {
+        // 汇总表上线前写入、没有汇总行的历史对话
+        insert(List.of(
+            conversation("legacy", "下周的安排", "query_events", at(8, 0)),
+            conversation("legacy", "周三加个评审", "create_event", at(8, 1))));
+
+        Conversation latest = conversation("legacy", "再提醒我一次", "create_event", at(9, 0));
+        insert(List.of(latest));
+        new ConversationSessionRecorder(sessionMapper).record(List.of(latest));
+
+        ConversationSession row = sessionMapper.findBySessionId("legacy");
+        assertEquals(3, row.getMessageCount());
+        assertEquals(at(8, 0), row.getFirstMessageAt());
+        assertEquals("下周的安排", row.getTitle());
+        assertEquals("create_event", row.getLastIntent());
+        assertEquals(Map.of("query_events", 1, "create_event", 2), intentCounts(row));
+    }
+
+    @Test
+    void upgradeScriptBackfillsOnlyMissingSessions() throws Exception {
+        insert(List.of(
+            conversation("legacy", "下周的安排", "query_events", at(8, 0)),
+            conversation("legacy", "周三加个评审", "create_event", at(8, 1)),
+            conversation("legacy", "好的", null, at(8, 2))));
+        Conversation recorded = conversation("recorded", "你好", "chat", at(9, 0));
+        insert(List.of(recorded));
+        new ConversationSessionRecorder(sessionMapper).record(List.of(recorded));
+        // 已有汇总行的会话不被覆盖
+        sessionMapper.upsert(session("recorded", 1, at(9, 1), at(9, 1), "你好", "chat"), counts("chat", 1));
+
+        runScript("upgrade.sql");
+        runScript("upgrade.sql");
+
+        ConversationSession legacy = sessionMapper.findBySessionId("legacy");
+        assertEquals(3, legacy.getMessageCount());
+        assertEquals(at(8, 0), legacy.getFirstMessageAt());
+        assertEquals(at(8, 2), legacy.getLastMessageAt());
+        assertEquals("下周的安排", legacy.getTitle());
+        assertNull(legacy.getLastIntent());
+        assertEquals(Map.of("query_events", 1, "create_event", 1), intentCounts(legacy));
+        assertEquals(2, sessionMapper.findBySessionId("recorded").getMessageCount());
+    }
+
+    private static void runScript(String resource) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Reader script = Resources.getResourceAsReader(resource)) {
+            ScriptRunner runner = new ScriptRunner(connection);
+            runner.setStopOnError(true);
+            runner.setLogWriter(null);
+            runner.runScript(script);
+        }
+    }
+
+    private void insert(List<Conversation> conversations) {
+        for (Conversation conversation : conversations) {
+            conversationMapper.insert(conversation);
+        }
+    }
+
+    private Map<String, Integer> intentCounts(ConversationSession session) throws Exception {
+        return objectMapper.readValue(session.getIntentCounts(), new TypeReference<Map<String, Integer>>() {
+        });
+    }
+
+    private static ConversationSession session(String sessionId, int messageCount, LocalDateTime first,
+                                               LocalDateTime last, String title, String lastIntent) {
+        ConversationSession session = new ConversationSession();
+        session.setSessionId(sessionId);
+        session.setUserId(1L);
+        session.setMessageCount(messageCount);
+        session.setFirstMessageAt(first);
+        session.setLastMessageAt(last);
+        session.setTitle(title);
+        session.setLastIntent(lastIntent);
+        return session;
+    }
+
+    private static Conversation conversation(String sessionId, String userMessage, String intent, LocalDateTime createdAt) {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(1L);
+        conversation.setSessionId(sessionId);
+        conversation.setUserMessage(userMessage);
+        conversation.setAiResponse("好的");
+        conversation.setIntent(intent);
+        conversation.setSuccessful(true);
+        conversation.setCreatedAt(createdAt);
+        return conversation;
+    }
+
+    private static Map<String, Integer> counts(Object... intentAndCount) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < intentAndCount.length; i += 2) {
+            counts.put((String) intentAndCount[i], (Integer) intentAndCount[i + 1]);
+        }
+        return counts;
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return LocalDateTime.of(2026, 10, 18, hour, minute);
+    }
+}
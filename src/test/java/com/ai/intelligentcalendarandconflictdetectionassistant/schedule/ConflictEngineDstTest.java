@@ -0,0 +1,162 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+import com.ai.intelligentcalendarandconflictdetectionassistant.schedule.EventTimes.Interval;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 跨午夜、多天日程、跨时区以及夏令时切换日的冲突判定
+ */
+class ConflictEngineDstTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId SHANGHAI = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    void springForwardDayHas23Hours() {
+        // 2024-03-10 02:00 纽约时钟拨快到 03:00
+        Interval day = EventTimes.day(LocalDate.of(2024, 3, 10), NEW_YORK);
+        assertEquals(23 * 3600, day.end() - day.start());
+    }
+
+    @Test
+    void fallBackDayHas25Hours() {
+        Interval day = EventTimes.day(LocalDate.of(2024, 11, 3), NEW_YORK);
+        assertEquals(25 * 3600, day.end() - day.start());
+    }
+
+    @Test
+    void proposalAcrossSpringForwardGapIsOneHourShorter() {
+        // 01:00-04:00 本地时间实际只有2小时
+        Interval proposal = EventTimes.proposal(LocalDate.of(2024, 3, 10), LocalTime.of(1, 0), LocalTime.of(4, 0), NEW_YORK);
+        assertEquals(2 * 3600, proposal.end() - proposal.start());
+
+        // 落在间隙中的 02:30 顺延为 03:30，与 03:00-04:00 的日程重叠
+        CalendarEvent event = event(LocalDateTime.of(2024, 3, 10, 2, 30), LocalDateTime.of(2024, 3, 10, 3, 45), NEW_YORK);
+        Interval gap = EventTimes.intervalOf(event, ZoneOffset.UTC);
+        assertEquals(15 * 60, gap.end() - gap.start());
+        Interval later = EventTimes.proposal(LocalDate.of(2024, 3, 10), LocalTime.of(3, 0), LocalTime.of(4, 0), NEW_YORK);
+        assertEquals(15, ConflictEngine.conflictMinutes(later, event, ZoneOffset.UTC));
+    }
+
+    @Test
+    void proposalAcrossFallBackOverlapIsOneHourLonger() {
+        // 00:30-02:30 本地时间实际有3小时，01:00-02:00 重复一次
+        Interval proposal = EventTimes.proposal(LocalDate.of(2024, 11, 3), LocalTime.of(0, 30), LocalTime.of(2, 30), NEW_YORK);
+        assertEquals(3 * 3600, proposal.end() - proposal.start());
+
+        CalendarEvent event = event(LocalDateTime.of(2024, 11, 3, 1, 0), LocalDateTime.of(2024, 11, 3, 2, 0), NEW_YORK);
+        assertEquals(120, ConflictEngine.conflictMinutes(proposal, event, ZoneOffset.UTC));
+    }
+
+    @Test
+    void crossMidnightProposalConflictsWithNextMorning() {
+        Interval proposal = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(22, 0), LocalTime.of(2, 0), SHANGHAI);
+        assertEquals(4 * 3600, proposal.end() - proposal.start());
+
+        CalendarEvent nextMorning = event(LocalDateTime.of(2024, 6, 2, 1, 0), LocalDateTime.of(2024, 6, 2, 3, 0), SHANGHAI);
+        CalendarEvent sameEvening = event(LocalDateTime.of(2024, 6, 1, 20, 0), LocalDateTime.of(2024, 6, 1, 21, 0), SHANGHAI);
+        List<CalendarEvent> conflicts = ConflictEngine.findConflicts(List.of(sameEvening, nextMorning), proposal, 15, 15, ZoneOffset.UTC);
+        assertEquals(List.of(nextMorning), conflicts);
+        assertEquals(60, ConflictEngine.conflictMinutes(proposal, nextMorning, ZoneOffset.UTC));
+    }
+
+    @Test
+    void multiDayEventBlocksEveryDayItSpans() {
+        CalendarEvent offsite = event(LocalDateTime.of(2024, 6, 3, 9, 0), LocalDateTime.of(2024, 6, 5, 17, 0), SHANGHAI);
+        Interval middleDay = EventTimes.proposal(LocalDate.of(2024, 6, 4), LocalTime.of(14, 0), LocalTime.of(15, 0), SHANGHAI);
+        assertEquals(List.of(offsite), ConflictEngine.findConflicts(List.of(offsite), middleDay, 15, 15, ZoneOffset.UTC));
+        assertEquals(60, ConflictEngine.conflictMinutes(middleDay, offsite, ZoneOffset.UTC));
+        assertTrue(EventTimes.intervalOf(offsite, ZoneOffset.UTC).overlaps(EventTimes.day(LocalDate.of(2024, 6, 4), SHANGHAI)));
+    }
+
+    @Test
+    void eventsInOtherZonesAreComparedInAbsoluteTime() {
+        // 纽约 2024-06-01 21:00 = 上海 2024-06-02 09:00
+        CalendarEvent newYork = event(LocalDateTime.of(2024, 6, 1, 21, 0), LocalDateTime.of(2024, 6, 1, 22, 0), NEW_YORK);
+        Interval shanghaiMorning = EventTimes.proposal(LocalDate.of(2024, 6, 2), LocalTime.of(9, 30), LocalTime.of(10, 30), SHANGHAI);
+        assertEquals(30, ConflictEngine.conflictMinutes(shanghaiMorning, newYork, ZoneOffset.UTC));
+        assertEquals(LocalDateTime.of(2024, 6, 2, 9, 0),
+            EventTimes.convert(newYork.getStartTime(), newYork.getTimezone(), ZoneOffset.UTC, SHANGHAI));
+    }
+
+    @Test
+    void conflictMinutesAreNeverNegative() {
+        // 只落在缓冲时间内：算作冲突，但重叠分钟数为0
+        CalendarEvent event = event(LocalDateTime.of(2024, 6, 1, 10, 0), LocalDateTime.of(2024, 6, 1, 11, 0), SHANGHAI);
+        Interval adjacent = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(11, 10), LocalTime.of(12, 0), SHANGHAI);
+        assertEquals(List.of(event), ConflictEngine.findConflicts(List.of(event), adjacent, 15, 15, ZoneOffset.UTC));
+        assertEquals(0, ConflictEngine.conflictMinutes(adjacent, event, ZoneOffset.UTC));
+
+        // 结束早于开始的脏数据按零长度处理
+        CalendarEvent inverted = event(LocalDateTime.of(2024, 6, 1, 11, 0), LocalDateTime.of(2024, 6, 1, 10, 0), SHANGHAI);
+        Interval morning = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(9, 0), LocalTime.of(12, 0), SHANGHAI);
+        assertEquals(0, ConflictEngine.conflictMinutes(morning, inverted, ZoneOffset.UTC));
+    }
+
+    @Test
+    void bufferBeforeAndAfterSurroundTheExistingEvent() {
+        // 日程前留10分钟、后留20分钟，与生成建议时的缓冲方向一致
+        CalendarEvent event = event(LocalDateTime.of(2024, 6, 1, 10, 0), LocalDateTime.of(2024, 6, 1, 11, 0), SHANGHAI);
+        Interval after15 = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(11, 15), LocalTime.of(12, 0), SHANGHAI);
+        Interval after25 = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(11, 25), LocalTime.of(12, 0), SHANGHAI);
+        Interval before15 = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(9, 0), LocalTime.of(9, 45), SHANGHAI);
+        Interval before5 = EventTimes.proposal(LocalDate.of(2024, 6, 1), LocalTime.of(9, 0), LocalTime.of(9, 55), SHANGHAI);
+        List<Interval> proposals = List.of(after15, after25, before15, before5);
+
+        List<List<CalendarEvent>> expected = List.of(List.of(event), List.of(), List.of(), List.of(event));
+        for (int i = 0; i < proposals.size(); i++) {
+            assertEquals(expected.get(i), ConflictEngine.findConflicts(List.of(event), proposals.get(i), 10, 20, ZoneOffset.UTC));
+        }
+        assertEquals(expected, ConflictEngine.sweep(proposals, List.of(event), 10, 20, ZoneOffset.UTC));
+    }
+
+    @Test
+    void sweepMatchesPairwiseCheck() {
+        List<CalendarEvent> events = List.of(
+            event(LocalDateTime.of(2024, 3, 9, 23, 0), LocalDateTime.of(2024, 3, 10, 1, 30), NEW_YORK),
+            event(LocalDateTime.of(2024, 3, 10, 3, 0), LocalDateTime.of(2024, 3, 10, 4, 0), NEW_YORK),
+            event(LocalDateTime.of(2024, 3, 10, 9, 0), LocalDateTime.of(2024, 3, 12, 9, 0), NEW_YORK),
+            event(LocalDateTime.of(2024, 3, 10, 14, 0), LocalDateTime.of(2024, 3, 10, 15, 0), SHANGHAI));
+        List<Interval> proposals = List.of(
+            EventTimes.proposal(LocalDate.of(2024, 3, 10), LocalTime.of(1, 0), LocalTime.of(3, 30), NEW_YORK),
+            EventTimes.proposal(LocalDate.of(2024, 3, 9), LocalTime.of(22, 0), LocalTime.of(0, 30), NEW_YORK),
+            EventTimes.proposal(LocalDate.of(2024, 3, 11), LocalTime.of(10, 0), LocalTime.of(11, 0), NEW_YORK),
+            EventTimes.proposal(LocalDate.of(2024, 3, 10), LocalTime.of(6, 0), LocalTime.of(7, 0), SHANGHAI));
+
+        List<List<CalendarEvent>> swept = ConflictEngine.sweep(proposals, events, 15, 15, ZoneOffset.UTC);
+        for (int i = 0; i < proposals.size(); i++) {
+            assertEquals(ConflictEngine.findConflicts(events, proposals.get(i), 15, 15, ZoneOffset.UTC), swept.get(i));
+        }
+    }
+
+    @Test
+    void weeklyRecurrenceKeepsLocalTimeAcrossDst() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;COUNT=3");
+        LocalDateTime first = LocalDateTime.of(2024, 3, 3, 9, 0);
+        var iterator = rule.iterator(first, first);
+        long previous = EventTimes.toEpochSecond(iterator.next(), NEW_YORK);
+        LocalDateTime second = iterator.next();
+        assertEquals(LocalTime.of(9, 0), second.toLocalTime());
+        // 跨过夏令时开始，两次实例之间的绝对间隔少一小时
+        assertEquals(7 * 24 * 3600 - 3600, EventTimes.toEpochSecond(second, NEW_YORK) - previous);
+    }
+
+    private static CalendarEvent event(LocalDateTime start, LocalDateTime end, ZoneId zone) {
+        CalendarEvent event = new CalendarEvent();
+        event.setStartTime(start);
+        event.setEndTime(end);
+        event.setTimezone(zone.getId());
+        return event;
+    }
+}
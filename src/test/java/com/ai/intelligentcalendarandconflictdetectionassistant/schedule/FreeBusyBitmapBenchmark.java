@@ -0,0 +1,68 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多人共同空闲时间基准：50位参会人、两周窗口的位图合并与空闲段扫描
+ * 运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FreeBusyBitmapBenchmark {
+
+    @Param({"10", "50"})
+    private int attendees;
+
+    @Param({"1", "5"})
+    private int granularityMinutes;
+
+    private final LocalDate firstDate = LocalDate.of(2024, 1, 1);
+    private final int days = 14;
+    private LocalDateTime[] starts;
+    private LocalDateTime[] ends;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        // 每位参会人每天平均4个30~90分钟的会议
+        int eventCount = attendees * days * 4;
+        starts = new LocalDateTime[eventCount];
+        ends = new LocalDateTime[eventCount];
+        for (int i = 0; i < eventCount; i++) {
+            LocalDateTime start = firstDate.plusDays(random.nextInt(days)).atTime(8 + random.nextInt(10), random.nextInt(4) * 15);
+            starts[i] = start;
+            ends[i] = start.plusMinutes(30 + random.nextInt(61));
+        }
+    }
+
+    @Benchmark
+    public int commonFreeRuns() {
+        FreeBusyBitmap bitmap = FreeBusyBitmap.forDays(firstDate, firstDate.plusDays(days), granularityMinutes);
+        bitmap.restrictToDailyWindow(LocalTime.of(9, 0), LocalTime.of(18, 0), false);
+        for (int i = 0; i < starts.length; i++) {
+            bitmap.markBusy(starts[i].minusMinutes(15), ends[i].plusMinutes(15));
+        }
+        return bitmap.freeRuns(30).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FreeBusyBitmapBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,221 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RRULE 展开：COUNT/UNTIL、INTERVAL、带序号的 BYDAY、BYMONTHDAY（含负数）、BYMONTH、
+ * 永远为空的规则、远离 DTSTART 的查询窗口以及重复例外
+ */
+class RecurrenceRuleTest {
+
+    private static final LocalDateTime MON_2024_01_15 = LocalDateTime.of(2024, 1, 15, 9, 0);
+
+    @Test
+    void countStopsAfterNOccurrences() {
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 16), at(2024, 1, 17)),
+            all("FREQ=DAILY;COUNT=3", MON_2024_01_15));
+    }
+
+    @Test
+    void untilIsInclusiveForDateTimeAndDate() {
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 16), at(2024, 1, 17)),
+            all("FREQ=DAILY;UNTIL=20240117T090000Z", MON_2024_01_15));
+        // 只有日期的 UNTIL 包含当天全天
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 16), at(2024, 1, 17)),
+            all("RRULE:FREQ=DAILY;UNTIL=20240117", MON_2024_01_15));
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 16)),
+            all("FREQ=DAILY;UNTIL=2024-01-17T08:59", MON_2024_01_15));
+    }
+
+    @Test
+    void countIsCountedFromDtStartEvenWhenSeeking() {
+        // 有 COUNT 时不能跳过周期，否则第N个实例的位置会算错
+        Iterator<LocalDateTime> iterator = RecurrenceRule.parse("FREQ=WEEKLY;COUNT=2")
+            .iterator(MON_2024_01_15, at(2030, 1, 1));
+        assertEquals(at(2024, 1, 15), iterator.next());
+        assertEquals(at(2024, 1, 22), iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void intervalSkipsPeriods() {
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 17), at(2024, 1, 29), at(2024, 1, 31), at(2024, 2, 12)),
+            first("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE", MON_2024_01_15, 5));
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 4, 15), at(2024, 7, 15)),
+            first("FREQ=MONTHLY;INTERVAL=3", MON_2024_01_15, 3));
+    }
+
+    @Test
+    void weeklyWithoutByDayUsesStartWeekdayAndSkipsDaysBeforeStart() {
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 22)), first("FREQ=WEEKLY", MON_2024_01_15, 2));
+        // DTSTART 是周一、规则只有周三：第一周的周一不是实例
+        assertEquals(List.of(at(2024, 1, 17), at(2024, 1, 24)), first("FREQ=WEEKLY;BYDAY=WE", MON_2024_01_15, 2));
+    }
+
+    @Test
+    void monthlyByDayOrdinals() {
+        assertEquals(List.of(at(2024, 1, 1), at(2024, 2, 5), at(2024, 3, 4), at(2024, 4, 1)),
+            first("FREQ=MONTHLY;BYDAY=1MO", LocalDateTime.of(2024, 1, 1, 9, 0), 4));
+        assertEquals(List.of(at(2024, 1, 26), at(2024, 2, 23), at(2024, 3, 29)),
+            first("FREQ=MONTHLY;BYDAY=-1FR", LocalDateTime.of(2024, 1, 1, 9, 0), 3));
+        // 不带序号的 BYDAY 在 MONTHLY 下是当月每个该星期几
+        assertEquals(List.of(at(2024, 2, 2), at(2024, 2, 9), at(2024, 2, 16), at(2024, 2, 23), at(2024, 3, 1)),
+            first("FREQ=MONTHLY;BYDAY=FR", LocalDateTime.of(2024, 2, 1, 9, 0), 5));
+    }
+
+    @Test
+    void monthlyByMonthDayCountsNegativeValuesFromMonthEnd() {
+        assertEquals(List.of(at(2024, 1, 31), at(2024, 2, 29), at(2024, 3, 31), at(2024, 4, 30)),
+            first("FREQ=MONTHLY;BYMONTHDAY=-1", LocalDateTime.of(2024, 1, 31, 9, 0), 4));
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 30), at(2024, 2, 1), at(2024, 2, 15), at(2024, 2, 28)),
+            first("FREQ=MONTHLY;BYMONTHDAY=1,15,-2", MON_2024_01_15, 5));
+        // 没有 BYMONTHDAY 时按 DTSTART 的日期，31日在小月跳过
+        assertEquals(List.of(at(2024, 1, 31), at(2024, 3, 31), at(2024, 5, 31)),
+            first("FREQ=MONTHLY", LocalDateTime.of(2024, 1, 31, 9, 0), 3));
+    }
+
+    @Test
+    void dailyAndWeeklyAreFilteredByMonthDay() {
+        assertEquals(List.of(at(2024, 2, 1), at(2024, 3, 1), at(2024, 4, 1)),
+            first("FREQ=DAILY;BYMONTHDAY=1", MON_2024_01_15, 3));
+        assertEquals(List.of(at(2024, 1, 31), at(2024, 2, 29), at(2024, 3, 31)),
+            first("FREQ=DAILY;BYMONTHDAY=-1", MON_2024_01_15, 3));
+        // 每月第一个周一：WEEKLY 的周一再用 1~7 日过滤
+        assertEquals(List.of(at(2024, 2, 5), at(2024, 3, 4), at(2024, 4, 1)),
+            first("FREQ=WEEKLY;BYDAY=MO;BYMONTHDAY=1,2,3,4,5,6,7", MON_2024_01_15, 3));
+    }
+
+    @Test
+    void byMonthLimitsEveryFrequency() {
+        assertEquals(List.of(at(2024, 2, 1), at(2024, 2, 2)),
+            first("FREQ=DAILY;BYMONTH=2", LocalDateTime.of(2024, 1, 30, 9, 0), 2));
+        assertEquals(List.of(at(2024, 1, 1), at(2024, 7, 1), at(2025, 1, 1)),
+            first("FREQ=YEARLY;BYMONTH=1,7;BYMONTHDAY=1", LocalDateTime.of(2024, 1, 1, 9, 0), 3));
+        assertEquals(List.of(at(2024, 3, 15), at(2024, 6, 15), at(2025, 3, 15)),
+            first("FREQ=MONTHLY;BYMONTH=3,6", LocalDateTime.of(2024, 3, 15, 9, 0), 3));
+        assertEquals(List.of(at(2024, 2, 29), at(2028, 2, 29)),
+            first("FREQ=YEARLY;BYMONTH=2;BYMONTHDAY=29", LocalDateTime.of(2024, 2, 29, 9, 0), 2));
+    }
+
+    @Test
+    void ruleThatNeverMatchesTerminates() {
+        assertTrue(all("FREQ=YEARLY;BYMONTH=2;BYMONTHDAY=30", MON_2024_01_15).isEmpty());
+        assertTrue(all("FREQ=MONTHLY;BYMONTH=2;BYMONTHDAY=30", MON_2024_01_15).isEmpty());
+        assertTrue(all("FREQ=DAILY;BYMONTH=2;BYMONTHDAY=31", MON_2024_01_15).isEmpty());
+    }
+
+    @Test
+    void seekJumpsCloseToWindowFarFromDtStart() {
+        LocalDateTime dtStart = LocalDateTime.of(2000, 1, 3, 9, 0);
+        LocalDateTime seekTo = LocalDateTime.of(2030, 6, 1, 0, 0);
+
+        Iterator<LocalDateTime> daily = RecurrenceRule.parse("FREQ=DAILY").iterator(dtStart, seekTo);
+        assertEquals(LocalDateTime.of(2030, 6, 1, 9, 0), firstNotBefore(daily, seekTo, 3));
+
+        // 跳转后 INTERVAL 的相位不变：距 DTSTART 的周数仍是2的倍数
+        Iterator<LocalDateTime> biweekly = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO").iterator(dtStart, seekTo);
+        LocalDateTime monday = firstNotBefore(biweekly, seekTo, 3);
+        assertEquals(DayOfWeek.MONDAY, monday.getDayOfWeek());
+        assertEquals(0, ChronoUnit.WEEKS.between(dtStart, monday) % 2);
+        assertTrue(monday.isBefore(seekTo.plusWeeks(2)));
+
+        Iterator<LocalDateTime> monthEnd = RecurrenceRule.parse("FREQ=MONTHLY;BYMONTHDAY=-1").iterator(dtStart, seekTo);
+        assertEquals(LocalDateTime.of(2030, 6, 30, 9, 0), firstNotBefore(monthEnd, seekTo, 3));
+    }
+
+    @Test
+    void expanderReturnsOnlyWindowOccurrencesFarFromDtStart() {
+        CalendarEvent series = series("FREQ=DAILY", null, LocalDateTime.of(2000, 1, 3, 9, 0));
+        List<CalendarEvent> occurrences = new RecurrenceExpander(100)
+            .expand(series, LocalDateTime.of(2030, 6, 3, 0, 0), LocalDateTime.of(2030, 6, 5, 0, 0));
+        assertEquals(List.of(LocalDateTime.of(2030, 6, 3, 9, 0), LocalDateTime.of(2030, 6, 4, 9, 0)), starts(occurrences));
+        assertEquals(LocalDateTime.of(2030, 6, 3, 10, 0), occurrences.get(0).getEndTime());
+
+        // COUNT 已用完的系列在之后的窗口中没有实例
+        CalendarEvent finished = series("FREQ=DAILY;COUNT=3", null, MON_2024_01_15);
+        assertTrue(new RecurrenceExpander(100).expand(finished, at(2024, 1, 18), at(2024, 2, 1)).isEmpty());
+    }
+
+    @Test
+    void recurrenceExceptionsRemoveWholeDaysOrSingleStarts() {
+        // 整天例外、与实例开始时间一致的例外生效；时刻不一致和格式错误的例外被忽略
+        CalendarEvent series = series("FREQ=DAILY",
+            "2024-01-16, 20240118T090000; 2024-01-19T10:00 not-a-date", MON_2024_01_15);
+        List<CalendarEvent> occurrences = new RecurrenceExpander(100).expand(series, at(2024, 1, 15), at(2024, 1, 20));
+        assertEquals(List.of(at(2024, 1, 15), at(2024, 1, 17), at(2024, 1, 19)), starts(occurrences));
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("INTERVAL=2"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=HOURLY"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=DAILY;BYHOUR=9"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=MONTHLY;BYMONTHDAY=0"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=6MO"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=DAILY;COUNT=0"));
+    }
+
+    private static List<LocalDateTime> all(String rule, LocalDateTime dtStart) {
+        return first(rule, dtStart, Integer.MAX_VALUE);
+    }
+
+    private static List<LocalDateTime> first(String rule, LocalDateTime dtStart, int limit) {
+        List<LocalDateTime> result = new ArrayList<>();
+        Iterator<LocalDateTime> iterator = RecurrenceRule.parse(rule).iterator(dtStart, null);
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * 跳过早于 seekTo 的实例，跳过的实例数不超过 maxSkipped（seek 保守地少估一个周期）
+     */
+    private static LocalDateTime firstNotBefore(Iterator<LocalDateTime> iterator, LocalDateTime seekTo, int maxSkipped) {
+        int skipped = 0;
+        while (iterator.hasNext()) {
+            LocalDateTime start = iterator.next();
+            if (!start.isBefore(seekTo)) {
+                return start;
+            }
+            assertTrue(++skipped <= maxSkipped, "seek 没有跳到窗口附近");
+        }
+        throw new AssertionError("没有不早于 " + seekTo + " 的实例");
+    }
+
+    private static CalendarEvent series(String rule, String exceptions, LocalDateTime start) {
+        CalendarEvent event = new CalendarEvent();
+        event.setId(1L);
+        event.setTitle("站会");
+        event.setStartTime(start);
+        event.setEndTime(start.plusHours(1));
+        event.setRecurrenceRule(rule);
+        event.setRecurrenceExceptions(exceptions);
+        return event;
+    }
+
+    private static List<LocalDateTime> starts(List<CalendarEvent> occurrences) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (CalendarEvent occurrence : occurrences) {
+            starts.add(occurrence.getStartTime());
+        }
+        return starts;
+    }
+
+    private static LocalDateTime at(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 9, 0);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 候选时间段搜索：原定时间段不再作为候选，不可调整的日程按缓冲时间阻塞候选
+ */
+class SuggestionSearchTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 6, 3);
+
+    private final SuggestionSearch search = new SuggestionSearch(5, 0, 30, Runnable::run);
+
+    @Test
+    void requestedIntervalIsNotSuggestedEvenIfOnlyLowPriorityEventsConflict() {
+        LocalDateTime requested = MONDAY.atTime(10, 0);
+        List<SuggestionSearch.Busy> busy = List.of(
+            new SuggestionSearch.Busy(requested, requested.plusHours(1), true));
+
+        List<SuggestionSearch.Candidate> candidates = search.search(query(requested, 60, 0, 0), busy);
+
+        assertFalse(candidates.isEmpty());
+        for (SuggestionSearch.Candidate candidate : candidates) {
+            assertFalse(candidate.start().isBefore(requested.plusHours(1)) && candidate.end().isAfter(requested),
+                "候选与原定时间段重叠: " + candidate);
+        }
+    }
+
+    @Test
+    void blockingEventKeepsBuffersFreeOfCandidates() {
+        LocalDateTime requested = MONDAY.atTime(14, 0);
+        LocalDateTime busyStart = MONDAY.atTime(14, 30);
+        LocalDateTime busyEnd = MONDAY.atTime(15, 30);
+        List<SuggestionSearch.Busy> busy = List.of(new SuggestionSearch.Busy(busyStart, busyEnd, false));
+
+        List<SuggestionSearch.Candidate> candidates = search.search(query(requested, 60, 10, 20), busy);
+
+        assertFalse(candidates.isEmpty());
+        for (SuggestionSearch.Candidate candidate : candidates) {
+            boolean clear = !candidate.end().isAfter(busyStart.minusMinutes(10))
+                || !candidate.start().isBefore(busyEnd.plusMinutes(20));
+            assertTrue(clear, "候选落在日程或其缓冲时间内: " + candidate);
+        }
+    }
+
+    private static SuggestionSearch.Query query(LocalDateTime requested, long duration, int bufferBefore, int bufferAfter) {
+        return new SuggestionSearch.Query(requested, duration, List.of(MONDAY), LocalTime.of(9, 0), LocalTime.of(18, 0),
+            bufferBefore, bufferAfter, null, 5);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.schedule;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.CalendarEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冲突检测延迟基准：内存区间索引 vs 原先的线性扫描
+ * 运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserScheduleIndexBenchmark {
+
+    private static final long BUFFER_SECONDS = 15 * 60;
+
+    @Param({"10", "1000", "100000"})
+    private int eventsPerUser;
+
+    private List<CalendarEvent> events;
+    private IntervalIndex<CalendarEvent> index;
+    private long[] queryStarts;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        // 日程均匀分布在约 eventsPerUser / 3 天内，每天平均3个1小时的会议
+        int days = Math.max(1, eventsPerUser / 3);
+        events = new ArrayList<>(eventsPerUser);
+        for (int i = 0; i < eventsPerUser; i++) {
+            CalendarEvent event = new CalendarEvent();
+            event.setId((long) i);
+            event.setUserId(1L);
+            LocalDateTime start = base.plusDays(random.nextInt(days)).plusHours(8 + random.nextInt(10));
+            event.setStartTime(start);
+            event.setEndTime(start.plusMinutes(60));
+            event.setStatus(CalendarEvent.Status.NOT_STARTED);
+            events.add(event);
+        }
+        index = IntervalIndex.build(events,
+                event -> event.getStartTime().toEpochSecond(ZoneOffset.UTC),
+                event -> event.getEndTime().toEpochSecond(ZoneOffset.UTC));
+
+        queryStarts = new long[1024];
+        for (int i = 0; i < queryStarts.length; i++) {
+            LocalDateTime start = base.plusDays(random.nextInt(days)).plusHours(9 + random.nextInt(8));
+            queryStarts[i] = start.toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+
+    @Benchmark
+    public int intervalIndex() {
+        long start = nextQuery();
+        // 与 checkConflict 一致：1小时的提议时间，前后各15分钟缓冲
+        return index.overlapping(start - BUFFER_SECONDS, start + 3600 + BUFFER_SECONDS).size();
+    }
+
+    @Benchmark
+    public int linearScan() {
+        long start = nextQuery();
+        long from = start - BUFFER_SECONDS;
+        long to = start + 3600 + BUFFER_SECONDS;
+        int conflicts = 0;
+        for (CalendarEvent event : events) {
+            if (event.getStartTime().toEpochSecond(ZoneOffset.UTC) < to
+                    && event.getEndTime().toEpochSecond(ZoneOffset.UTC) > from) {
+                conflicts++;
+            }
+        }
+        return conflicts;
+    }
+
+    private long nextQuery() {
+        cursor = (cursor + 1) & (queryStarts.length - 1);
+        return queryStarts[cursor];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserScheduleIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,190 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 新会话的对话历史缓存：第一次读取（数据库中还没有对话）之后追加的对话，下一轮直接从缓存读到，不再查询数据库。
+ * Redis 模式用内存中的列表模拟 LRANGE / RPUSH / RPUSHX / LTRIM / DEL。
+ */
+class ConversationHistoryCacheTest {
+
+    private static final int TURNS = 3;
+
+    private ConversationMapper conversationMapper;
+    private StringRedisTemplate redisTemplate;
+    private final Map<String, List<String>> redisLists = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        conversationMapper = mock(ConversationMapper.class);
+        when(conversationMapper.findRecentBySessionId(anyString(), anyInt())).thenReturn(new ArrayList<>());
+
+        RedisListCommands listCommands = mock(RedisListCommands.class, invocation -> {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "rPush" -> {
+                    String key = string((byte[]) args[0]);
+                    List<String> list = redisLists.computeIfAbsent(key, k -> new ArrayList<>());
+                    for (int i = 1; i < args.length; i++) {
+                        list.add(string((byte[]) args[i]));
+                    }
+                    return (long) list.size();
+                }
+                case "rPushX" -> {
+                    String key = string((byte[]) args[0]);
+                    List<String> list = redisLists.get(key);
+                    if (list == null) {
+                        return 0L;
+                    }
+                    list.add(string((byte[]) args[1]));
+                    return (long) list.size();
+                }
+                case "lTrim" -> {
+                    String key = string((byte[]) args[0]);
+                    List<String> list = redisLists.get(key);
+                    int size = list.size();
+                    int start = (int) Math.max(0, (long) args[1] < 0 ? size + (long) args[1] : (long) args[1]);
+                    int end = (int) Math.min(size - 1, (long) args[2] < 0 ? size + (long) args[2] : (long) args[2]);
+                    List<String> kept = start <= end ? new ArrayList<>(list.subList(start, end + 1)) : new ArrayList<>();
+                    if (kept.isEmpty()) {
+                        redisLists.remove(key);
+                    } else {
+                        redisLists.put(key, kept);
+                    }
+                    return null;
+                }
+                default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+            }
+        });
+        RedisKeyCommands keyCommands = mock(RedisKeyCommands.class, invocation -> {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "del" -> {
+                    long deleted = 0;
+                    for (Object key : args) {
+                        deleted += redisLists.remove(string((byte[]) key)) != null ? 1 : 0;
+                    }
+                    return deleted;
+                }
+                case "expire" -> {
+                    return redisLists.containsKey(string((byte[]) args[0]));
+                }
+                default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+            }
+        });
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.listCommands()).thenReturn(listCommands);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+
+        @SuppressWarnings("unchecked")
+        ListOperations<String, String> listOperations = mock(ListOperations.class);
+        when(listOperations.range(anyString(), anyLong(), anyLong())).thenAnswer(invocation ->
+            new ArrayList<>(redisLists.getOrDefault(invocation.<String>getArgument(0), Collections.emptyList())));
+
+        redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            RedisCallback<?> callback = invocation.getArgument(0);
+            callback.doInRedis(connection);
+            return Collections.emptyList();
+        });
+    }
+
+    @Test
+    void newSessionIsServedFromLocalCacheAfterFirstRead() {
+        ConversationHistoryCache cache = cache(false);
+        newSessionFlow(cache);
+    }
+
+    @Test
+    void newSessionIsServedFromRedisAfterFirstRead() {
+        ConversationHistoryCache cache = cache(true);
+        newSessionFlow(cache);
+        assertTrue(redisLists.containsKey("conversation-history:session-new"));
+    }
+
+    @Test
+    void redisListKeepsOnlyLatestTurnsOnceMarkerIsTrimmed() {
+        ConversationHistoryCache cache = cache(true);
+        assertTrue(cache.getRecent("session-new", TURNS).isEmpty());
+
+        List<Conversation> saved = new ArrayList<>();
+        for (int i = 0; i < TURNS + 2; i++) {
+            Conversation conversation = conversation("session-new", "第" + i + "轮", i);
+            saved.add(conversation);
+            cache.append(conversation);
+        }
+
+        assertEquals(TURNS, redisLists.get("conversation-history:session-new").size());
+        assertEquals(List.of(saved.get(4), saved.get(3), saved.get(2)), cache.getRecent("session-new", TURNS));
+        verify(conversationMapper, times(1)).findRecentBySessionId("session-new", TURNS);
+    }
+
+    private void newSessionFlow(ConversationHistoryCache cache) {
+        // 第一轮：数据库中还没有对话，读取后会话即为已加载
+        assertTrue(cache.getRecent("session-new", TURNS).isEmpty());
+        Conversation first = conversation("session-new", "明天下午有空吗", 0);
+        cache.append(first);
+
+        // 第二轮：第一轮的对话可能还在写入队列中，只能从缓存读到
+        assertEquals(List.of(first), cache.getRecent("session-new", TURNS));
+        Conversation second = conversation("session-new", "那就约三点", 1);
+        cache.append(second);
+
+        assertEquals(List.of(second, first), cache.getRecent("session-new", TURNS));
+        verify(conversationMapper, times(1)).findRecentBySessionId("session-new", TURNS);
+    }
+
+    private ConversationHistoryCache cache(boolean redisEnabled) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new ConversationHistoryCache(conversationMapper, redisTemplate, objectMapper, new SimpleMeterRegistry(),
+            TURNS, 100, 30, redisEnabled);
+    }
+
+    private static Conversation conversation(String sessionId, String userMessage, int minute) {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(1L);
+        conversation.setSessionId(sessionId);
+        conversation.setUserMessage(userMessage);
+        conversation.setAiResponse("好的");
+        conversation.setIntent("QUERY");
+        conversation.setSuccessful(true);
+        conversation.setCreatedAt(LocalDateTime.of(2026, 10, 18, 9, minute));
+        return conversation;
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,131 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.services;
+
+import com.ai.intelligentcalendarandconflictdetectionassistant.mapper.ConversationMapper;
+import com.ai.intelligentcalendarandconflictdetectionassistant.pojo.Conversation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 批量写入失败后的重试与逐条写入：只放弃写不进去的记录，并使其所属会话的历史缓存失效
+ */
+class ConversationWriterTest {
+
+    private ConversationMapper conversationMapper;
+    private ConversationSessionRecorder sessionRecorder;
+    private ConversationHistoryCache historyCache;
+    private SimpleMeterRegistry meterRegistry;
+    private ConversationWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        conversationMapper = mock(ConversationMapper.class);
+        sessionRecorder = mock(ConversationSessionRecorder.class);
+        historyCache = mock(ConversationHistoryCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        writer = new ConversationWriter(conversationMapper, sessionRecorder, historyCache, transactionTemplate,
+            meterRegistry, 100, 100, 200, 2, 0, 1000);
+    }
+
+    @Test
+    void badRowIsDroppedAloneOnLastAttempt() {
+        Conversation good1 = conversation("session-a", "你好");
+        Conversation bad = conversation("session-b", "超长的消息");
+        Conversation good2 = conversation("session-c", "明天有空吗");
+        doAnswer(invocation -> {
+            List<Conversation> rows = invocation.getArgument(0);
+            if (rows.contains(bad)) {
+                throw new DataIntegrityViolationException("Data too long for column 'user_message'");
+            }
+            return null;
+        }).when(conversationMapper).insertBatch(anyList());
+
+        writer.flush(new ArrayList<>(List.of(good1, bad, good2)));
+
+        // 2 次整批尝试 + 3 次逐条写入
+        verify(conversationMapper, times(5)).insertBatch(anyList());
+        verify(sessionRecorder).record(List.of(good1));
+        verify(sessionRecorder).record(List.of(good2));
+        verify(sessionRecorder, never()).record(List.of(bad));
+        verify(historyCache).invalidate("session-b");
+        verify(historyCache, times(1)).invalidate(anyString());
+        assertEquals(2.0, meterRegistry.counter("conversation.write.written").count());
+        assertEquals(1.0, meterRegistry.counter("conversation.write.failed").count());
+        assertEquals(1.0, meterRegistry.counter("conversation.write.retried").count());
+    }
+
+    @Test
+    void transientFailureIsRetriedAsOneBatch() {
+        Conversation first = conversation("session-a", "你好");
+        Conversation second = conversation("session-a", "明天有空吗");
+        // flush 结束时会清空批次列表，在调用时复制实参
+        List<List<Conversation>> inserts = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Conversation> rows = invocation.getArgument(0);
+            inserts.add(new ArrayList<>(rows));
+            if (inserts.size() == 1) {
+                throw new QueryTimeoutException("Lock wait timeout exceeded");
+            }
+            return null;
+        }).when(conversationMapper).insertBatch(anyList());
+
+        writer.flush(new ArrayList<>(List.of(first, second)));
+
+        assertEquals(List.of(List.of(first, second), List.of(first, second)), inserts);
+        verify(sessionRecorder, times(1)).record(anyList());
+        verify(historyCache, never()).invalidate(anyString());
+        assertEquals(2.0, meterRegistry.counter("conversation.write.written").count());
+        assertEquals(0.0, meterRegistry.counter("conversation.write.failed").count());
+    }
+
+    @Test
+    void summaryFailureRollsBackOnlyThatRow() {
+        Conversation good = conversation("session-a", "你好");
+        Conversation bad = conversation("session-b", "明天有空吗");
+        doAnswer(invocation -> {
+            List<Conversation> rows = invocation.getArgument(0);
+            if (rows.contains(bad)) {
+                throw new DataIntegrityViolationException("Data too long for column 'last_intent'");
+            }
+            return null;
+        }).when(sessionRecorder).record(anyList());
+
+        writer.flush(new ArrayList<>(List.of(good, bad)));
+
+        verify(conversationMapper).insertBatch(List.of(good));
+        verify(historyCache).invalidate("session-b");
+        verify(historyCache, never()).invalidate("session-a");
+        assertEquals(1.0, meterRegistry.counter("conversation.write.written").count());
+        assertEquals(1.0, meterRegistry.counter("conversation.write.failed").count());
+    }
+
+    private static Conversation conversation(String sessionId, String userMessage) {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(1L);
+        conversation.setSessionId(sessionId);
+        conversation.setUserMessage(userMessage);
+        conversation.setAiResponse("好的");
+        conversation.setIntent("QUERY");
+        conversation.setSuccessful(true);
+        conversation.setCreatedAt(LocalDateTime.of(2026, 10, 18, 9, 0));
+        return conversation;
+    }
+}
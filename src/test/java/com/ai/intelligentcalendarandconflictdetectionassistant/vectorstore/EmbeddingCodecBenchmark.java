@@ -0,0 +1,80 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 向量编码基准：旧版逗号分隔字符串与小端 float32 字节数组的解码耗时
+ * 两种格式每个向量占用的字节数在 setUp 时打印
+ * 运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingCodecBenchmark {
+
+    @Param({"768", "1536"})
+    private int dimensions;
+
+    private String legacy;
+    private byte[] binary;
+    private float[] reuse;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        // 与旧版写入路径一致：float 装箱为 Double 后逗号拼接
+        legacy = Arrays.stream(box(vector)).map(String::valueOf).collect(Collectors.joining(","));
+        binary = EmbeddingCodec.encode(vector);
+        reuse = new float[dimensions];
+        System.out.printf("%n[%d dims] string: %d bytes, float32: %d bytes%n",
+                dimensions, legacy.getBytes(StandardCharsets.UTF_8).length, binary.length);
+    }
+
+    /**
+     * 旧版解码：split 后逐个 Double.valueOf
+     */
+    @Benchmark
+    public List<Double> decodeLegacyString() {
+        return Arrays.stream(legacy.split(","))
+                .map(Double::valueOf)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public float[] decodeFloat32() {
+        return EmbeddingCodec.decode(binary, reuse);
+    }
+
+    private static Double[] box(float[] vector) {
+        Double[] boxed = new Double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            boxed[i] = (double) vector[i];
+        }
+        return boxed;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmbeddingCodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,122 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HNSW 与逐个扫描的查询延迟对比，召回率（top-10 与精确结果的重合比例）在 setUp 时打印
+ * 100万条向量建图耗时较长且需要约 2GB 堆内存（-Xmx4g）
+ * 运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class HnswIndexBenchmark {
+
+    private static final int TOP_K = 10;
+    private static final int QUERY_COUNT = 100;
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    @Param({"128"})
+    private int dimensions;
+
+    @Param({"64", "200"})
+    private int efSearch;
+
+    private float[][] vectors;
+    private float[][] queries;
+    private HnswIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        vectors = new float[size][];
+        index = new HnswIndex(16, 200);
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            vectors[i] = VectorMath.normalize(randomVector(random));
+            index.add(Integer.toString(i), vectors[i]);
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+
+        queries = new float[QUERY_COUNT][];
+        int hits = 0;
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            queries[q] = VectorMath.normalize(randomVector(random));
+            Set<String> exact = new HashSet<>();
+            for (int i : exactTopK(queries[q])) {
+                exact.add(Integer.toString(i));
+            }
+            for (HnswIndex.Match match : index.search(queries[q], TOP_K, efSearch)) {
+                if (exact.contains(match.id())) {
+                    hits++;
+                }
+            }
+        }
+        System.out.printf("%n[%d x %d] build %d ms, recall@%d = %.3f (efSearch=%d)%n",
+                size, dimensions, buildMillis, TOP_K, (double) hits / (QUERY_COUNT * TOP_K), TOP_K, efSearch);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match> hnsw() {
+        return index.search(queries[next++ % QUERY_COUNT], TOP_K, efSearch);
+    }
+
+    @Benchmark
+    public int[] exactScan() {
+        return exactTopK(queries[next++ % QUERY_COUNT]);
+    }
+
+    private int[] exactTopK(float[] query) {
+        PriorityQueue<double[]> top = new PriorityQueue<>(TOP_K + 1, (a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < vectors.length; i++) {
+            float[] vector = vectors[i];
+            float dot = 0;
+            for (int d = 0; d < vector.length; d++) {
+                dot += vector[d] * query[d];
+            }
+            if (top.size() < TOP_K) {
+                top.add(new double[]{dot, i});
+            } else if (dot > top.peek()[0]) {
+                top.poll();
+                top.add(new double[]{dot, i});
+            }
+        }
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) top.poll()[1];
+        }
+        return result;
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HnswIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
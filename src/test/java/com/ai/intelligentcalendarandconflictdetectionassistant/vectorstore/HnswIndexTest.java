@@ -0,0 +1,129 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HNSW 召回率（与精确扫描的 top-10 比较）以及删除、替换后的节点回收
+ */
+class HnswIndexTest {
+
+    private static final int SIZE = 2000;
+    private static final int DIMENSIONS = 32;
+    private static final int TOP_K = 10;
+    private static final int QUERY_COUNT = 50;
+
+    @Test
+    void recallAtDefaultEfSearchMatchesExactScan() {
+        Random random = new Random(42);
+        float[][] vectors = new float[SIZE][];
+        HnswIndex index = new HnswIndex(16, 200, 42);
+        for (int i = 0; i < SIZE; i++) {
+            vectors[i] = VectorMath.normalize(randomVector(random));
+            index.add(Integer.toString(i), vectors[i]);
+        }
+
+        int hits = 0;
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            float[] query = VectorMath.normalize(randomVector(random));
+            Set<String> exact = exactTopK(vectors, query);
+            for (HnswIndex.Match match : index.search(query, TOP_K, 200)) {
+                if (exact.contains(match.id())) {
+                    hits++;
+                }
+            }
+        }
+        double recall = (double) hits / (QUERY_COUNT * TOP_K);
+        assertTrue(recall >= 0.95, "recall@10 = " + recall);
+    }
+
+    @Test
+    void searchReturnsOwnVectorFirst() {
+        Random random = new Random(7);
+        HnswIndex index = new HnswIndex(8, 100, 7);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            float[] vector = randomVector(random);
+            vectors.add(vector);
+            index.add("doc-" + i, vector);
+        }
+        for (int i = 0; i < vectors.size(); i += 50) {
+            List<HnswIndex.Match> matches = index.search(vectors.get(i), 1, 100);
+            assertEquals("doc-" + i, matches.get(0).id());
+            assertEquals(1.0, matches.get(0).similarity(), 1e-5);
+        }
+    }
+
+    @Test
+    void removedIdsAreNeverReturned() {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(8, 100, 3);
+        for (int i = 0; i < 300; i++) {
+            index.add(Integer.toString(i), randomVector(random));
+        }
+        for (int i = 0; i < 300; i += 2) {
+            index.remove(Integer.toString(i));
+        }
+        assertEquals(150, index.size());
+        for (int q = 0; q < 20; q++) {
+            for (HnswIndex.Match match : index.search(randomVector(random), TOP_K, 100)) {
+                assertFalse(Integer.parseInt(match.id()) % 2 == 0, "returned removed id " + match.id());
+            }
+        }
+    }
+
+    @Test
+    void replacingSameIdsCompactsDeadNodes() {
+        Random random = new Random(11);
+        HnswIndex index = new HnswIndex(8, 100, 11);
+        int documents = 200;
+        // 模拟同一个文件被反复重新上传：文本块ID相同，向量被替换
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < documents; i++) {
+                index.add("chunk-" + i, randomVector(random));
+            }
+        }
+        assertEquals(documents, index.size());
+        assertTrue(index.allocatedNodes() <= 2 * documents + 1,
+            "dead nodes not compacted: " + index.allocatedNodes());
+
+        float[] replaced = randomVector(random);
+        index.add("chunk-0", replaced);
+        List<HnswIndex.Match> matches = index.search(replaced, 1, 100);
+        assertEquals("chunk-0", matches.get(0).id());
+        assertEquals(1.0, matches.get(0).similarity(), 1e-5);
+    }
+
+    private static Set<String> exactTopK(float[][] vectors, float[] query) {
+        PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < vectors.length; i++) {
+            best.add(new double[]{VectorMath.dot(query, vectors[i]), i});
+            if (best.size() > TOP_K) {
+                best.poll();
+            }
+        }
+        Set<String> ids = new HashSet<>();
+        for (double[] entry : best) {
+            ids.add(Integer.toString((int) entry[1]));
+        }
+        return ids;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,145 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * int8 量化扫描基准：float32 扫描（从 f32le 字节解码后点积）、int8 编码扫描、int8 扫描加 float32 重排，
+ * 每次调用对全部向量求 top10；setUp 打印每个向量的存储字节数和 int8 扫描加重排相对精确结果的 recall@10
+ * 运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalarQuantizerBenchmark {
+
+    private static final int VECTORS = 10_000;
+    private static final int TOP_K = 10;
+    private static final int QUERIES = 20;
+
+    @Param({"768", "1536"})
+    private int dimensions;
+
+    @Param({"4"})
+    private int rerankFactor;
+
+    private float[] query;
+    private byte[][] fullVectors;
+    private byte[][] quantizedVectors;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        fullVectors = new byte[VECTORS][];
+        quantizedVectors = new byte[VECTORS][];
+        for (int i = 0; i < VECTORS; i++) {
+            float[] vector = VectorMath.normalize(randomVector(random));
+            fullVectors[i] = EmbeddingCodec.encode(vector);
+            quantizedVectors[i] = ScalarQuantizer.encode(vector);
+        }
+        query = VectorMath.normalize(randomVector(random));
+
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] sample = VectorMath.normalize(randomVector(random));
+            Set<Integer> expected = ids(exactTopK(sample, TOP_K));
+            Set<Integer> actual = ids(rerank(sample, quantizedTopK(sample, TOP_K * rerankFactor)));
+            actual.retainAll(expected);
+            recall += (double) actual.size() / TOP_K;
+        }
+        long fullBytes = (long) fullVectors[0].length * VECTORS;
+        long quantizedBytes = (long) quantizedVectors[0].length * VECTORS;
+        System.out.printf("%n[dimensions=%d] float32 %d B/vector (%.1f MB), int8 %d B/vector (%.1f MB), "
+                        + "scanned bytes saved %.1f%%, recall@%d with rerank x%d = %.3f%n",
+                dimensions, fullVectors[0].length, fullBytes / 1e6, quantizedVectors[0].length, quantizedBytes / 1e6,
+                100.0 * (fullBytes - quantizedBytes) / fullBytes, TOP_K, rerankFactor, recall / QUERIES);
+    }
+
+    @Benchmark
+    public PriorityQueue<double[]> float32Scan() {
+        return exactTopK(query, TOP_K);
+    }
+
+    @Benchmark
+    public PriorityQueue<double[]> int8Scan() {
+        return quantizedTopK(query, TOP_K);
+    }
+
+    @Benchmark
+    public PriorityQueue<double[]> int8ScanWithRerank() {
+        return rerank(query, quantizedTopK(query, TOP_K * rerankFactor));
+    }
+
+    private PriorityQueue<double[]> exactTopK(float[] query, int k) {
+        PriorityQueue<double[]> top = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a[1], b[1]));
+        float[] vector = null;
+        for (int i = 0; i < VECTORS; i++) {
+            vector = EmbeddingCodec.decode(fullVectors[i], vector);
+            offer(top, k, i, VectorMath.dot(query, vector));
+        }
+        return top;
+    }
+
+    private PriorityQueue<double[]> quantizedTopK(float[] query, int k) {
+        PriorityQueue<double[]> top = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a[1], b[1]));
+        ScalarQuantizer.Query quantizedQuery = ScalarQuantizer.quantizeQuery(query);
+        for (int i = 0; i < VECTORS; i++) {
+            offer(top, k, i, ScalarQuantizer.dot(quantizedQuery, quantizedVectors[i]));
+        }
+        return top;
+    }
+
+    private PriorityQueue<double[]> rerank(float[] query, PriorityQueue<double[]> candidates) {
+        PriorityQueue<double[]> top = new PriorityQueue<>(TOP_K + 1, (a, b) -> Double.compare(a[1], b[1]));
+        float[] vector = null;
+        for (double[] candidate : candidates) {
+            int id = (int) candidate[0];
+            vector = EmbeddingCodec.decode(fullVectors[id], vector);
+            offer(top, TOP_K, id, VectorMath.dot(query, vector));
+        }
+        return top;
+    }
+
+    private static void offer(PriorityQueue<double[]> top, int k, int id, double score) {
+        if (top.size() >= k && score <= top.peek()[1]) {
+            return;
+        }
+        top.add(new double[]{id, score});
+        if (top.size() > k) {
+            top.poll();
+        }
+    }
+
+    private static Set<Integer> ids(PriorityQueue<double[]> top) {
+        Set<Integer> ids = new HashSet<>();
+        top.forEach(entry -> ids.add((int) entry[0]));
+        return ids;
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ScalarQuantizerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
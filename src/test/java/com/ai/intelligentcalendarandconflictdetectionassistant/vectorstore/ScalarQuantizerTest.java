@@ -0,0 +1,127 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * int8 编码的往返误差，以及编码上的整数点积与还原后浮点点积、精确点积的一致性
+ */
+class ScalarQuantizerTest {
+
+    private static final int DIMENSIONS = 256;
+
+    @Test
+    void decodeStaysWithinHalfAStepOfOriginal() {
+        Random random = new Random(42);
+        for (int n = 0; n < 100; n++) {
+            float[] vector = VectorMath.normalize(randomVector(random));
+            byte[] encoded = ScalarQuantizer.encode(vector);
+            assertEquals(8 + DIMENSIONS, encoded.length);
+            assertEquals(DIMENSIONS, ScalarQuantizer.dimensions(encoded));
+
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (float value : vector) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            float halfStep = (max - min) / 255f / 2;
+            float[] decoded = ScalarQuantizer.decode(encoded);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                assertEquals(vector[i], decoded[i], halfStep + 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    void constantVectorDecodesExactly() {
+        float[] vector = new float[DIMENSIONS];
+        Arrays.fill(vector, 0.25f);
+        float[] decoded = ScalarQuantizer.decode(ScalarQuantizer.encode(vector));
+        for (float value : decoded) {
+            assertEquals(0.25f, value);
+        }
+    }
+
+    @Test
+    void quantizedQueryKeepsExactSumAndFullCodeRange() {
+        float[] query = VectorMath.normalize(randomVector(new Random(7)));
+        ScalarQuantizer.Query quantized = ScalarQuantizer.quantizeQuery(query);
+
+        float sum = 0;
+        float maxAbs = 0;
+        for (float value : query) {
+            sum += value;
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        assertEquals(sum, quantized.sum(), 1e-6f);
+        assertEquals(maxAbs / 127f, quantized.scale(), 1e-9f);
+        int maxCode = 0;
+        for (byte code : quantized.codes()) {
+            maxCode = Math.max(maxCode, Math.abs(code));
+        }
+        assertEquals(127, maxCode);
+    }
+
+    @Test
+    void integerDotMatchesDotOfDequantizedVectors() {
+        Random random = new Random(11);
+        for (int n = 0; n < 100; n++) {
+            float[] query = VectorMath.normalize(randomVector(random));
+            float[] vector = VectorMath.normalize(randomVector(random));
+            byte[] encoded = ScalarQuantizer.encode(vector);
+            ScalarQuantizer.Query quantized = ScalarQuantizer.quantizeQuery(query);
+
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (float value : vector) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            double scale = (max - min) / 255f;
+            // 逐维还原后相乘；公式中的 Σq 取原查询之和，与还原后查询之和的差乘以编码 0 对应的值计入结果
+            float[] decoded = ScalarQuantizer.decode(encoded);
+            double expected = 0;
+            double sumDifference = 0;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                double dequantized = quantized.scale() * quantized.codes()[i];
+                expected += dequantized * decoded[i];
+                sumDifference += query[i] - dequantized;
+            }
+            expected += (min + 128 * scale) * sumDifference;
+            assertEquals(expected, ScalarQuantizer.dot(quantized, encoded), 1e-4);
+        }
+    }
+
+    @Test
+    void approximateDotIsCloseToExactDot() {
+        Random random = new Random(23);
+        double maxError = 0;
+        for (int n = 0; n < 200; n++) {
+            float[] query = VectorMath.normalize(randomVector(random));
+            float[] vector = VectorMath.normalize(randomVector(random));
+            float approximate = ScalarQuantizer.dot(ScalarQuantizer.quantizeQuery(query), ScalarQuantizer.encode(vector));
+            maxError = Math.max(maxError, Math.abs(approximate - VectorMath.dot(query, vector)));
+        }
+        assertTrue(maxError < 0.01, "max error " + maxError);
+    }
+
+    @Test
+    void dimensionMismatchScoresMinusOne() {
+        ScalarQuantizer.Query query = ScalarQuantizer.quantizeQuery(new float[]{1, 0, 0});
+        assertEquals(-1f, ScalarQuantizer.dot(query, ScalarQuantizer.encode(new float[]{1, 0})));
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
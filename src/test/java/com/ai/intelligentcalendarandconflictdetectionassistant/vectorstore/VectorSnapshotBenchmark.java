@@ -0,0 +1,123 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动基准：从 f32le 字节（即从Redis读到的内容，不含网络耗时）解码全部向量到堆上再检索一次，
+ * 对比映射快照文件后直接在映射内存上检索一次；setUp 打印两种方式启动后多占用的堆内存
+ * 运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorSnapshotBenchmark {
+
+    @Param({"20000"})
+    private int vectors;
+
+    @Param({"768", "1536"})
+    private int dimensions;
+
+    private Path file;
+    private List<String> ids;
+    private List<byte[]> redisValues;
+    private float[] query;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        ids = new ArrayList<>(vectors);
+        redisValues = new ArrayList<>(vectors);
+        List<float[]> normalized = new ArrayList<>(vectors);
+        for (int i = 0; i < vectors; i++) {
+            float[] vector = VectorMath.normalize(randomVector(random));
+            ids.add(UUID.randomUUID().toString());
+            normalized.add(vector);
+            redisValues.add(EmbeddingCodec.encode(vector));
+        }
+        query = VectorMath.normalize(randomVector(random));
+        file = Files.createTempFile("vector-snapshot", ".bin");
+        VectorSnapshot.write(file, 0, ids, normalized);
+        normalized = null;
+
+        long before = usedHeap();
+        List<float[]> onHeap = loadOntoHeap();
+        long heapLoaded = usedHeap() - before;
+        before = usedHeap();
+        VectorSnapshot snapshot = VectorSnapshot.open(file);
+        long heapMapped = usedHeap() - before;
+        System.out.printf("%n[vectors=%d, dimensions=%d] snapshot %.1f MB, heap after loading %.1f MB, "
+                        + "heap after mapping %.1f MB (%d/%d)%n",
+                vectors, dimensions, Files.size(file) / 1e6, heapLoaded / 1e6, heapMapped / 1e6,
+                onHeap.size(), snapshot.size());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public double loadOntoHeapAndSearch() {
+        double best = -1;
+        for (float[] vector : loadOntoHeap()) {
+            best = Math.max(best, VectorMath.dot(query, vector));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public double mapSnapshotAndSearch() throws IOException {
+        VectorSnapshot snapshot = VectorSnapshot.open(file);
+        double best = -1;
+        for (int i = 0; i < snapshot.size(); i++) {
+            best = Math.max(best, snapshot.dot(i, query));
+        }
+        return best;
+    }
+
+    private List<float[]> loadOntoHeap() {
+        List<float[]> loaded = new ArrayList<>(redisValues.size());
+        for (byte[] value : redisValues) {
+            loaded.add(EmbeddingCodec.decode(value, null));
+        }
+        return loaded;
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(VectorSnapshotBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,35 @@
+package com.ai.intelligentcalendarandconflictdetectionassistant.vectorstore;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 jdk.incubator.vector 的点积实现
+ * 单独放在 src/vector-api/java 下，只在 vector-api 构建配置（mvn -Pvector-api）中编译，默认构建不引用孵化模块；
+ * 由 {@link VectorMath#enableVectorApi()} 通过反射加载
+ */
+final class PanamaVectorMath implements VectorMath.DotKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    PanamaVectorMath() {
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            sum = va.fma(vb, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+}